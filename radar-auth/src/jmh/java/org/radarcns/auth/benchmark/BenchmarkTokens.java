@@ -0,0 +1,99 @@
+package org.radarcns.auth.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.radarcns.auth.authorization.AuthoritiesConstants;
+import org.radarcns.auth.config.ServerConfig;
+
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Realistic tokens for the benchmarks, signed with a freshly generated key pair. The tokens carry
+ * roles in many projects, like the token of a project administrator in a large deployment.
+ */
+public final class BenchmarkTokens {
+
+    public static final String RESOURCE_NAME = "res_benchmark";
+    public static final String USER = "benchmark-user";
+    public static final int PROJECT_COUNT = 50;
+
+    private final RSAPublicKey publicKey;
+    private final Algorithm algorithm;
+
+    /**
+     * Generate a new key pair for signing tokens.
+     * @throws NoSuchAlgorithmException if RSA is not supported
+     */
+    public BenchmarkTokens() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        publicKey = (RSAPublicKey) keyPair.getPublic();
+        algorithm = Algorithm.RSA256(publicKey, (RSAPrivateKey) keyPair.getPrivate());
+    }
+
+    /**
+     * Server configuration that holds the public key, so no key endpoint is contacted.
+     * @return server configuration
+     */
+    public ServerConfig serverConfig() {
+        return new ServerConfig() {
+            @Override
+            public URI getPublicKeyEndpoint() {
+                return null;
+            }
+
+            @Override
+            public String getResourceName() {
+                return RESOURCE_NAME;
+            }
+
+            @Override
+            public RSAPublicKey getPublicKey() {
+                return publicKey;
+            }
+        };
+    }
+
+    /**
+     * Signed token with an administrator, affiliate and participant role in each of
+     * {@value #PROJECT_COUNT} projects.
+     * @return signed token
+     */
+    public String manyRolesToken() {
+        String[] roles = new String[PROJECT_COUNT * 3];
+        for (int i = 0; i < PROJECT_COUNT; i++) {
+            roles[3 * i] = projectName(i) + ":" + AuthoritiesConstants.PROJECT_ADMIN;
+            roles[3 * i + 1] = projectName(i) + ":" + AuthoritiesConstants.PROJECT_AFFILIATE;
+            roles[3 * i + 2] = "participant-" + projectName(i) + ":"
+                    + AuthoritiesConstants.PARTICIPANT;
+        }
+        Instant now = Instant.now();
+        return JWT.create()
+                .withIssuer("RADAR")
+                .withIssuedAt(Date.from(now))
+                .withExpiresAt(Date.from(now.plusSeconds(24 * 60 * 60)))
+                .withAudience(RESOURCE_NAME)
+                .withSubject(USER)
+                .withArrayClaim("scope", new String[] {"SUBJECT.READ", "PROJECT.READ",
+                        "SOURCE.READ", "MEASUREMENT.CREATE"})
+                .withArrayClaim("authorities", new String[] {AuthoritiesConstants.PROJECT_ADMIN})
+                .withArrayClaim("roles", roles)
+                .withArrayClaim("sources", new String[] {})
+                .withClaim("client_id", "benchmark_client")
+                .withClaim("user_name", USER)
+                .withClaim("jti", "benchmark-jwt-id")
+                .sign(algorithm);
+    }
+
+    public static String projectName(int index) {
+        return "project-" + index;
+    }
+}
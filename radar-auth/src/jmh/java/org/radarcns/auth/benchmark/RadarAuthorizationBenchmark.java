@@ -0,0 +1,111 @@
+package org.radarcns.auth.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.radarcns.auth.authorization.AuthorizationContext;
+import org.radarcns.auth.authorization.Permission;
+import org.radarcns.auth.authorization.Permissions;
+import org.radarcns.auth.authorization.RadarAuthorization;
+import org.radarcns.auth.authorization.RoleAuthority;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the authorization checks that every resource server performs on every request.
+ * The token has roles in {@value BenchmarkTokens#PROJECT_COUNT} projects and no matching scope,
+ * so the checks have to consult the roles.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RadarAuthorizationBenchmark {
+
+    private static final int CONTENDED_THREADS = 8;
+    private static final String SUBJECT = "some-subject";
+
+    private DecodedJWT token;
+    private AuthorizationContext context;
+    private String project;
+
+    /**
+     * Decode a token with many roles and build its authorization context.
+     * @throws Exception if the key pair cannot be generated
+     */
+    @Setup
+    public void setUp() throws Exception {
+        token = JWT.decode(new BenchmarkTokens().manyRolesToken());
+        context = AuthorizationContext.of(token);
+        // last project in the roles claim, to make linear scans show up
+        project = BenchmarkTokens.projectName(BenchmarkTokens.PROJECT_COUNT - 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void checkPermissionOnSubject() {
+        RadarAuthorization.checkPermissionOnSubject(token, Permission.SUBJECT_UPDATE, project,
+                SUBJECT);
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public void checkPermissionOnSubjectContended() {
+        RadarAuthorization.checkPermissionOnSubject(token, Permission.SUBJECT_UPDATE, project,
+                SUBJECT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void checkPermissionOnSubjectWithContext() {
+        RadarAuthorization.checkPermissionOnSubject(context, Permission.SUBJECT_UPDATE, project,
+                SUBJECT);
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public void checkPermissionOnSubjectWithContextContended() {
+        RadarAuthorization.checkPermissionOnSubject(context, Permission.SUBJECT_UPDATE, project,
+                SUBJECT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public AuthorizationContext createContext() {
+        return AuthorizationContext.of(token);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void allowedAuthorities(Blackhole blackhole) {
+        blackhole.consume(Permissions.allowedAuthorities(Permission.SUBJECT_UPDATE)
+                .contains(RoleAuthority.PROJECT_AFFILIATE.authority()));
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public void allowedAuthoritiesContended(Blackhole blackhole) {
+        blackhole.consume(Permissions.allowedAuthorities(Permission.SUBJECT_UPDATE)
+                .contains(RoleAuthority.PROJECT_AFFILIATE.authority()));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean hasAnyMask() {
+        return Permissions.hasAny(RoleAuthority.PROJECT_AFFILIATE.mask(),
+                Permission.SUBJECT_UPDATE);
+    }
+}
@@ -0,0 +1,75 @@
+package org.radarcns.auth.benchmark;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.radarcns.auth.authentication.TokenValidator;
+import org.radarcns.auth.authentication.VerifiedTokenCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link TokenValidator#validateAccessToken(String)}, with and without a
+ * {@link VerifiedTokenCache}. The validator is shared between threads, so the contended
+ * benchmarks show the effect of concurrent access to the key and token caches.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenValidatorBenchmark {
+
+    private static final int CONTENDED_THREADS = 8;
+
+    private TokenValidator validator;
+    private TokenValidator cachingValidator;
+    private String token;
+
+    /**
+     * Create the validators and a token with many roles.
+     * @throws Exception if the key pair cannot be generated
+     */
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkTokens tokens = new BenchmarkTokens();
+        token = tokens.manyRolesToken();
+        validator = new TokenValidator(tokens.serverConfig());
+        cachingValidator = new TokenValidator(tokens.serverConfig(),
+                TokenValidator.FETCH_TIMEOUT_DEFAULT, new VerifiedTokenCache());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public DecodedJWT validate() {
+        return validator.validateAccessToken(token);
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public DecodedJWT validateContended() {
+        return validator.validateAccessToken(token);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public DecodedJWT validateCached() {
+        return cachingValidator.validateAccessToken(token);
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public DecodedJWT validateCachedContended() {
+        return cachingValidator.validateAccessToken(token);
+    }
+}
@@ -21,25 +21,53 @@ import java.net.URLConnection;
 import java.security.KeyFactory;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.X509EncodedKeySpec;
-import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Validates JWT token signed by the Management Portal. It is synchronized and may be used from
- * multiple threads.
+ * Validates JWT token signed by the Management Portal. It is thread-safe and may be used from
+ * multiple threads. The validation path does not take any locks and never performs network I/O:
+ * public keys are held in an atomically swapped, immutable map and are refreshed on a background
+ * thread.
  */
 public class TokenValidator {
 
     protected static final Logger log = LoggerFactory.getLogger(TokenValidator.class);
 
+    /** Key ID under which a key without a <code>kid</code> is stored. */
+    public static final String DEFAULT_KEY_ID = "";
+
     private final ServerConfig config;
-    private JWTVerifier verifier;
+
+    // Immutable map of key ID to verifier. It is replaced as a whole on every successful refresh,
+    // so readers always see a consistent set of keys.
+    private final AtomicReference<Map<String, JWTVerifier>> verifiers =
+            new AtomicReference<>(Collections.emptyMap());
 
     // If a client presents a token with an invalid signature, it might be the keypair was changed.
     // In that case we need to fetch it again, but we don't want a malicious client to be able to
     // make us DOS our own identity server. Fetching it at maximum once per minute mitigates this.
-    private ThreadLocal<Instant> lastFetch = ThreadLocal.withInitial(() -> Instant.EPOCH);
-    private static final long FETCH_TIMEOUT_DEFAULT = 60L;
+    // This limit applies to the whole validator, regardless of the thread the request came from.
+    private final AtomicLong lastFetch = new AtomicLong(0L);
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean(false);
+    // Shared by all validators, so that creating validators does not create threads. The thread
+    // is a daemon thread, so it does not need to be shut down.
+    private static final ScheduledExecutorService REFRESH_EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "radar-auth-key-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+    public static final long FETCH_TIMEOUT_DEFAULT = 60L;
     private final long fetchTimeout;
+    private final VerifiedTokenCache tokenCache;
 
     /**
      * Default constructor. Will load the identity server configuration from a file called
@@ -67,13 +95,26 @@ public class TokenValidator {
      * @param fetchTimeout timeout for retrying the public RSA key
      */
     public TokenValidator(ServerConfig config, long fetchTimeout) {
+        this(config, fetchTimeout, null);
+    }
+
+    /**
+     * Constructor that enables caching of verified tokens. Repeated validation of the same token
+     * will then skip the signature check until the token expires.
+     *
+     * @param config The identity server configuration
+     * @param fetchTimeout timeout for retrying the public RSA key
+     * @param tokenCache cache for verified tokens, or <code>null</code> to disable caching
+     */
+    public TokenValidator(ServerConfig config, long fetchTimeout, VerifiedTokenCache tokenCache) {
         this.fetchTimeout = fetchTimeout;
         this.config = config;
+        this.tokenCache = tokenCache;
         try {
             // Catch this exception here, as the identity server might not be online when this class
             // is instantiated. We want this class to always be able to be instantiated, except for
             // config file errors.
-            updateVerifier();
+            refreshVerifiers();
         } catch (TokenValidationException ex) {
             log.error("Could not get server's public key.", ex);
         }
@@ -82,11 +123,16 @@ public class TokenValidator {
     /**
      * Validates an access token and returns the decoded JWT as a {@link DecodedJWT} object.
      * <p>
-     * If we have not yet fetched the JWT public key, this method will fetch it. If a signature can
-     * not be verified, this method will fetch the JWT public key again, as it might have been
-     * changed, and re-check the token. However this fetching of the public key will only be
-     * performed at most once every <code>fetchTimeout</code> seconds, to prevent (malicious)
-     * clients from making us call the token endpoint too frequently.
+     * If a {@link VerifiedTokenCache} was provided, a token that was verified before and has not
+     * yet expired is returned from the cache without checking its signature again.
+     * </p>
+     * <p>
+     * This method never fetches the public key itself. If no key is known yet, if the token
+     * refers to an unknown key ID, or if its signature can not be verified, a refresh of the
+     * public keys is scheduled in the background and the token is rejected. Concurrent requests
+     * for a refresh are merged into a single fetch, and fetches are performed at most once every
+     * <code>fetchTimeout</code> seconds, to prevent (malicious) clients from making us call the
+     * token endpoint too frequently.
      * </p>
      *
      * @param token The access token
@@ -94,64 +140,114 @@ public class TokenValidator {
      * @throws TokenValidationException If the token can not be validated.
      */
     public DecodedJWT validateAccessToken(String token) throws TokenValidationException {
-        try {
-            return getVerifier().verify(token);
-        } catch (SignatureVerificationException sve) {
-            log.warn("Client presented a token with an incorrect signature, fetching public key"
-                    + " again. Token: {}", token);
-            updateVerifier();
-            return validateAccessToken(token);
-        } catch (JWTVerificationException ex) {
-            throw new TokenValidationException(ex);
+        if (tokenCache == null) {
+            return verify(token);
+        }
+        DecodedJWT jwt = tokenCache.get(token);
+        if (jwt == null) {
+            jwt = verify(token);
+            tokenCache.put(token, jwt);
         }
+        return jwt;
     }
 
-    private JWTVerifier getVerifier() {
-        synchronized (this) {
+    /**
+     * Get the cache of verified tokens.
+     * @return the cache, or <code>null</code> if tokens are not cached
+     */
+    public VerifiedTokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    private DecodedJWT verify(String token) throws TokenValidationException {
+        Map<String, JWTVerifier> localVerifiers = verifiers.get();
+        if (localVerifiers.isEmpty()) {
+            scheduleRefresh();
+            throw new TokenValidationException("No public key available to validate the token.");
+        }
+        try {
+            if (localVerifiers.size() == 1) {
+                return localVerifiers.values().iterator().next().verify(token);
+            }
+            JWTVerifier verifier = localVerifiers.get(keyId(token));
             if (verifier != null) {
-                return verifier;
+                return verifier.verify(token);
+            }
+            // the key ID is unknown, try all known keys before asking for a refresh
+            SignatureVerificationException lastException = null;
+            for (JWTVerifier candidate : localVerifiers.values()) {
+                try {
+                    return candidate.verify(token);
+                } catch (SignatureVerificationException sve) {
+                    lastException = sve;
+                }
             }
+            throw lastException;
+        } catch (SignatureVerificationException sve) {
+            log.warn("Client presented a token with an incorrect signature, scheduling a fetch of"
+                    + " the public key. Token: {}", token);
+            scheduleRefresh();
+            throw new TokenValidationException(sve);
+        } catch (JWTVerificationException ex) {
+            throw new TokenValidationException(ex);
         }
+    }
 
-        JWTVerifier localVerifier = loadVerifier();
-
-        synchronized (this) {
-            verifier = localVerifier;
-            return verifier;
+    /**
+     * Request that the public keys are fetched again in the background. Multiple calls made while
+     * a refresh is pending are merged into a single fetch. This method does not block.
+     */
+    public void scheduleRefresh() {
+        if (!refreshScheduled.compareAndSet(false, true)) {
+            return;
         }
+        long delay = Math.max(0L,
+                lastFetch.get() + TimeUnit.SECONDS.toMillis(fetchTimeout)
+                        - System.currentTimeMillis());
+        log.debug("Fetching public key in {} milliseconds", delay);
+        REFRESH_EXECUTOR.schedule(() -> {
+            try {
+                refreshVerifiers();
+            } catch (TokenValidationException ex) {
+                log.error("Could not get server's public key.", ex);
+            } finally {
+                // only now lastFetch is updated, so a new request waits for the fetch timeout
+                refreshScheduled.set(false);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
     }
 
-    private void updateVerifier() {
-        JWTVerifier localVerifier = loadVerifier();
-        synchronized (this) {
-            this.verifier = localVerifier;
-        }
+    private static String keyId(String token) {
+        String keyId = JWT.decode(token).getKeyId();
+        return keyId == null ? DEFAULT_KEY_ID : keyId;
     }
 
-    private JWTVerifier loadVerifier() throws TokenValidationException {
-        if (Instant.now().isBefore(lastFetch.get().plusSeconds(fetchTimeout))) {
-            // it hasn't been long enough ago to fetch the key again, we deny access
-            log.warn("Fetched public key less than {} seconds ago, denied access.", fetchTimeout);
-            throw new TokenValidationException("Not fetching public key more than once every "
-                + Long.toString(fetchTimeout) + " seconds.");
-        }
-        // whether successful or not, do not request the key more than once per minute
-        lastFetch.set(Instant.now());
+    private void refreshVerifiers() throws TokenValidationException {
+        // whether successful or not, do not request the key more than once per fetchTimeout
+        lastFetch.set(System.currentTimeMillis());
 
-        RSAPublicKey publicKey;
+        Map<String, RSAPublicKey> publicKeys;
         if (config.getPublicKey() == null) {
-            publicKey = publicKeyFromServer();
+            publicKeys = publicKeysFromServer();
         } else {
-            publicKey = config.getPublicKey();
+            publicKeys = Collections.singletonMap(DEFAULT_KEY_ID, config.getPublicKey());
+        }
+
+        Map<String, JWTVerifier> localVerifiers = new LinkedHashMap<>();
+        publicKeys.forEach((keyId, publicKey) -> {
+            Algorithm alg = Algorithm.RSA256(publicKey, null);
+            localVerifiers.put(keyId, JWT.require(alg)
+                    .withAudience(config.getResourceName())
+                    .build());
+        });
+        verifiers.set(Collections.unmodifiableMap(localVerifiers));
+        if (tokenCache != null) {
+            // tokens verified with a key that is no longer published must be checked again
+            tokenCache.clear();
         }
-        Algorithm alg = Algorithm.RSA256(publicKey, null);
-        // we successfully fetched the public key, reset the timer
-        return JWT.require(alg)
-                .withAudience(config.getResourceName())
-                .build();
     }
 
-    private RSAPublicKey publicKeyFromServer() throws TokenValidationException {
+    private Map<String, RSAPublicKey> publicKeysFromServer() throws TokenValidationException {
         log.info("Getting the JWT public key at " + config.getPublicKeyEndpoint());
 
         try {
@@ -161,22 +257,44 @@ public class TokenValidator {
                 ObjectMapper mapper = new ObjectMapper();
                 JsonNode publicKeyInfo = mapper.readTree(inputStream);
 
-                // We expect RSA algorithm, and deny to trust the public key otherwise, see also
-                // https://auth0.com/blog/critical-vulnerabilities-in-json-web-token-libraries/
-                if (!publicKeyInfo.get("alg").asText().equals("SHA256withRSA")) {
-                    throw new TokenValidationException("The identity server reported the following "
-                        + "signing algorithm: " + publicKeyInfo.get("alg")
-                        + ". Expected SHA256withRSA.");
+                Map<String, RSAPublicKey> result = new LinkedHashMap<>();
+                if (publicKeyInfo.has("keys")) {
+                    // key set with one entry per key ID
+                    for (JsonNode keyInfo : publicKeyInfo.get("keys")) {
+                        String keyId = keyInfo.has("kid") ? keyInfo.get("kid").asText()
+                                : DEFAULT_KEY_ID;
+                        result.put(keyId, publicKeyFromJson(keyInfo));
+                    }
+                } else {
+                    result.put(DEFAULT_KEY_ID, publicKeyFromJson(publicKeyInfo));
                 }
-
-                String keyString = publicKeyInfo.get("value").asText();
-                return publicKeyFromString(keyString);
+                if (result.isEmpty()) {
+                    throw new TokenValidationException("The identity server did not report any "
+                            + "public keys.");
+                }
+                return result;
             }
+        } catch (TokenValidationException ex) {
+            throw ex;
         } catch (Exception ex) {
             throw new TokenValidationException(ex);
         }
     }
 
+    private RSAPublicKey publicKeyFromJson(JsonNode publicKeyInfo)
+            throws TokenValidationException {
+        // We expect RSA algorithm, and deny to trust the public key otherwise, see also
+        // https://auth0.com/blog/critical-vulnerabilities-in-json-web-token-libraries/
+        if (!publicKeyInfo.get("alg").asText().equals("SHA256withRSA")) {
+            throw new TokenValidationException("The identity server reported the following "
+                + "signing algorithm: " + publicKeyInfo.get("alg")
+                + ". Expected SHA256withRSA.");
+        }
+
+        String keyString = publicKeyInfo.get("value").asText();
+        return publicKeyFromString(keyString);
+    }
+
     private RSAPublicKey publicKeyFromString(String keyString) throws TokenValidationException {
         log.debug("Parsing public key: " + keyString);
         try (PemReader pemReader = new PemReader(new StringReader(keyString))) {
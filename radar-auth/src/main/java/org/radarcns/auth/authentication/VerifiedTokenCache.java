@@ -0,0 +1,150 @@
+package org.radarcns.auth.authentication;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of access tokens that were already verified by a {@link TokenValidator}. Tokens
+ * are keyed by the SHA-256 digest of the raw token, so the raw token is never stored. A cached
+ * token is only returned until its <code>exp</code> claim has passed; tokens without an
+ * expiration time are never cached. When the cache is full, expired entries are evicted first,
+ * followed by arbitrary entries until a tenth of the cache is free again.
+ *
+ * <p>Pass an instance of this class to
+ * {@link TokenValidator#TokenValidator(org.radarcns.auth.config.ServerConfig, long,
+ * VerifiedTokenCache)} to enable caching. It is thread-safe.</p>
+ */
+public class VerifiedTokenCache {
+
+    public static final int MAX_SIZE_DEFAULT = 10_000;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", ex);
+        }
+    });
+
+    private final int maxSize;
+    private final Map<ByteBuffer, DecodedJWT> tokens;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Cache with a maximum of {@value #MAX_SIZE_DEFAULT} tokens.
+     */
+    public VerifiedTokenCache() {
+        this(MAX_SIZE_DEFAULT);
+    }
+
+    /**
+     * Cache with given maximum size.
+     * @param maxSize maximum number of verified tokens to keep
+     */
+    public VerifiedTokenCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.tokens = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    /**
+     * Get a previously verified token.
+     * @param token raw access token
+     * @return the decoded token, or <code>null</code> if it is not cached or has expired
+     */
+    public DecodedJWT get(String token) {
+        ByteBuffer key = digest(token);
+        DecodedJWT jwt = tokens.get(key);
+        if (jwt == null) {
+            misses.increment();
+            return null;
+        }
+        if (isExpired(jwt, System.currentTimeMillis())) {
+            tokens.remove(key, jwt);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return jwt;
+    }
+
+    /**
+     * Store a verified token.
+     * @param token raw access token
+     * @param jwt the token as decoded by the verifier
+     */
+    public void put(String token, DecodedJWT jwt) {
+        if (jwt.getExpiresAt() == null) {
+            return;
+        }
+        if (tokens.size() >= maxSize) {
+            evict();
+        }
+        tokens.put(digest(token), jwt);
+    }
+
+    /** Remove all cached tokens, for example after the signing keys changed. */
+    public void clear() {
+        tokens.clear();
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        tokens.values().removeIf(jwt -> {
+            boolean expired = isExpired(jwt, now);
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+        // still full: make room by dropping arbitrary entries, freeing a tenth of the cache at
+        // once so that the scan above is not repeated for every insert
+        int targetSize = maxSize - Math.max(1, maxSize / 10);
+        Iterator<ByteBuffer> iterator = tokens.keySet().iterator();
+        while (tokens.size() > targetSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private static boolean isExpired(DecodedJWT jwt, long now) {
+        Date expiresAt = jwt.getExpiresAt();
+        return expiresAt == null || expiresAt.getTime() <= now;
+    }
+
+    private static ByteBuffer digest(String token) {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,152 @@
+package org.radarcns.auth.authorization;
+
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.radarcns.auth.authorization.RadarAuthorization.AUTHORITIES_CLAIM;
+import static org.radarcns.auth.authorization.RadarAuthorization.ROLES_CLAIM;
+import static org.radarcns.auth.authorization.RadarAuthorization.SCOPE_CLAIM;
+
+/**
+ * Immutable index of the authorization related claims of a token. The <code>roles</code>,
+ * <code>authorities</code> and <code>scope</code> claims are parsed once when the context is
+ * created, after which the permission checks in {@link RadarAuthorization} are a map lookup and
+ * a bitwise comparison against {@link Permissions#hasAny(long, Permission)}. Create one context
+ * per token and reuse it for all checks on that token.
+ */
+public final class AuthorizationContext {
+
+    private final String subject;
+    private final boolean superUser;
+    private final Set<String> scopes;
+    private final Set<String> globalAuthorities;
+    private final long authorityMask;
+    private final Map<String, Set<String>> projectAuthorities;
+    private final Map<String, Long> projectAuthorityMasks;
+
+    private AuthorizationContext(DecodedJWT token) {
+        subject = token.getSubject();
+
+        scopes = Collections.unmodifiableSet(new HashSet<>(claimList(token, SCOPE_CLAIM)));
+
+        Set<String> localGlobal = new HashSet<>(claimList(token, AUTHORITIES_CLAIM));
+        globalAuthorities = Collections.unmodifiableSet(localGlobal);
+        superUser = localGlobal.contains(AuthoritiesConstants.SYS_ADMIN);
+
+        // roles have the format PROJECT:AUTHORITY
+        Map<String, Set<String>> localProjects = new HashMap<>();
+        Map<String, Long> localProjectMasks = new HashMap<>();
+        long localMask = 0L;
+        for (String authority : localGlobal) {
+            localMask |= RoleAuthority.maskOf(authority);
+        }
+        for (String role : claimList(token, ROLES_CLAIM)) {
+            int projectEnd = role.indexOf(':');
+            if (projectEnd < 0) {
+                continue;
+            }
+            int authorityEnd = role.indexOf(':', projectEnd + 1);
+            String authority = authorityEnd < 0 ? role.substring(projectEnd + 1)
+                    : role.substring(projectEnd + 1, authorityEnd);
+            if (authority.isEmpty()) {
+                continue;
+            }
+            String project = role.substring(0, projectEnd);
+            long mask = RoleAuthority.maskOf(authority);
+            localProjects.computeIfAbsent(project, p -> new HashSet<>()).add(authority);
+            localProjectMasks.merge(project, mask, (m1, m2) -> m1 | m2);
+            localMask |= mask;
+        }
+        localProjects.replaceAll((p, auths) -> Collections.unmodifiableSet(auths));
+        projectAuthorities = Collections.unmodifiableMap(localProjects);
+        projectAuthorityMasks = Collections.unmodifiableMap(localProjectMasks);
+        authorityMask = localMask;
+    }
+
+    /**
+     * Parse the authorization claims of given token.
+     * @param token decoded token
+     * @return authorization context of the token
+     */
+    public static AuthorizationContext of(DecodedJWT token) {
+        return new AuthorizationContext(token);
+    }
+
+    private static List<String> claimList(DecodedJWT token, String name) {
+        Claim claim = token.getClaim(name);
+        List<String> values = claim == null ? null : claim.asList(String.class);
+        return values == null ? Collections.emptyList() : values;
+    }
+
+    /** Subject of the token. */
+    public String getSubject() {
+        return subject;
+    }
+
+    /** Whether the token has the system administrator authority. */
+    public boolean isSuperUser() {
+        return superUser;
+    }
+
+    /**
+     * Whether the token has an OAuth scope that grants given permission.
+     * @param permission permission to check
+     * @return true if the <code>ENTITY.OPERATION</code> scope is present, false otherwise
+     */
+    public boolean hasScope(Permission permission) {
+        return !scopes.isEmpty() && scopes.contains(permission.scopeName());
+    }
+
+    /**
+     * Whether any authority of the token, in any project or globally, grants given permission.
+     * @param permission permission to check
+     * @return true if the permission is granted, false otherwise
+     */
+    public boolean hasAuthority(Permission permission) {
+        return Permissions.hasAny(authorityMask, permission);
+    }
+
+    /**
+     * Whether an authority of the token in given project grants given permission.
+     * @param permission permission to check
+     * @param projectName project to check
+     * @return true if the permission is granted, false otherwise
+     */
+    public boolean hasAuthorityOnProject(Permission permission, String projectName) {
+        Long mask = projectAuthorityMasks.get(projectName);
+        return mask != null && Permissions.hasAny(mask, permission);
+    }
+
+    /**
+     * Check if this token has only the participant authority in given project.
+     * @param projectName project to check
+     * @return true if PARTICIPANT is the only authority in the project, false otherwise
+     */
+    public boolean isJustParticipant(String projectName) {
+        Set<String> authorities = getAuthoritiesForProject(projectName);
+        return authorities.size() == 1 && authorities.contains(AuthoritiesConstants.PARTICIPANT);
+    }
+
+    /** Authorities of the token in given project. */
+    public Set<String> getAuthoritiesForProject(String projectName) {
+        Set<String> authorities = projectAuthorities.get(projectName);
+        return authorities == null ? Collections.emptySet() : authorities;
+    }
+
+    /** Non-project based authorities of the token. */
+    public Set<String> getGlobalAuthorities() {
+        return globalAuthorities;
+    }
+
+    /** OAuth scopes of the token. */
+    public Set<String> getScopes() {
+        return scopes;
+    }
+}
@@ -100,6 +100,7 @@ public class Permission {
 
     private final Entity entity;
     private final Operation operation;
+    private final String scopeName;
 
     private Permission(Entity entity, Operation operation) {
         if (entity == null || operation == null) {
@@ -107,6 +108,7 @@ public class Permission {
         }
         this.entity = entity;
         this.operation = operation;
+        this.scopeName = entity.toString() + "." + operation.toString();
     }
 
     public Entity getEntity() {
@@ -117,6 +119,14 @@ public class Permission {
         return operation;
     }
 
+    /**
+     * Name of the OAuth scope that grants this permission.
+     * @return the scope in <code>ENTITY.OPERATION</code> format
+     */
+    public String scopeName() {
+        return scopeName;
+    }
+
     /**
      * Get all currently defined permissions.
      * @return A list containing all currently defined permissions
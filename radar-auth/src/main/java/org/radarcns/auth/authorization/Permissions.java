@@ -21,8 +21,29 @@ public class Permissions {
 
     private static Map<Permission, Set<String>> PERMISSION_MATRIX;
 
+    // Unmodifiable views of the permission matrix, so lookups do not allocate.
+    private static final Map<Permission, Set<String>> PERMISSION_MATRIX_VIEW;
+
+    // Bitmask of allowed authorities, indexed by entity and operation ordinal. See
+    // RoleAuthority#mask() for the bit of each authority.
+    private static final long[][] AUTHORITY_MASKS;
+
     static {
         initPermissions();
+
+        Map<Permission, Set<String>> view = new HashMap<>();
+        PERMISSION_MATRIX.forEach((p, auths) -> view.put(p, Collections.unmodifiableSet(auths)));
+        PERMISSION_MATRIX_VIEW = Collections.unmodifiableMap(view);
+
+        AUTHORITY_MASKS = new long[Permission.Entity.values().length]
+                [Permission.Operation.values().length];
+        PERMISSION_MATRIX.forEach((p, auths) -> {
+            long mask = 0L;
+            for (String authority : auths) {
+                mask |= RoleAuthority.maskOf(authority);
+            }
+            AUTHORITY_MASKS[p.getEntity().ordinal()][p.getOperation().ordinal()] = mask;
+        });
     }
 
     /**
@@ -32,18 +53,37 @@ public class Permissions {
      * @return An unmodifiable view of the set of allowed authorities.
      */
     public static Set<String> allowedAuthorities(Permission permission) {
-        if (PERMISSION_MATRIX.containsKey(permission)) {
-            return Collections.unmodifiableSet(PERMISSION_MATRIX.get(permission));
-        } else {
-            return Collections.emptySet();
-        }
+        Set<String> authorities = PERMISSION_MATRIX_VIEW.get(permission);
+        return authorities == null ? Collections.emptySet() : authorities;
+    }
+
+    /**
+     * Look up the allowed authorities for a given permission as a bitmask of
+     * {@link RoleAuthority#mask()} values.
+     * @param permission The permission to look up.
+     * @return mask of allowed authorities
+     */
+    public static long allowedAuthorityMask(Permission permission) {
+        return AUTHORITY_MASKS[permission.getEntity().ordinal()]
+                [permission.getOperation().ordinal()];
+    }
+
+    /**
+     * Check whether any of the given authorities is allowed the given permission. This does not
+     * allocate and does not perform any string comparisons.
+     * @param authorityMask bitmask of {@link RoleAuthority#mask()} values
+     * @param permission The permission to check.
+     * @return true if at least one of the authorities has the permission, false otherwise
+     */
+    public static boolean hasAny(long authorityMask, Permission permission) {
+        return (allowedAuthorityMask(permission) & authorityMask) != 0L;
     }
 
     /**
      * @return An unmodifiable view of the permission matrix.
      */
     public static Map<Permission, Set<String>> getPermissionMatrix() {
-        return Collections.unmodifiableMap(PERMISSION_MATRIX);
+        return PERMISSION_MATRIX_VIEW;
     }
 
     /**
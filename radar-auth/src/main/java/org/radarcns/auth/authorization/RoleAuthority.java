@@ -0,0 +1,72 @@
+package org.radarcns.auth.authorization;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Enumeration of the authorities in {@link AuthoritiesConstants}. Each authority has a bit in a
+ * <code>long</code> mask, so that sets of authorities can be compared with a single bitwise
+ * operation, see {@link Permissions#hasAny(long, Permission)}.
+ */
+public enum RoleAuthority {
+    SYS_ADMIN(AuthoritiesConstants.SYS_ADMIN),
+    PROJECT_ADMIN(AuthoritiesConstants.PROJECT_ADMIN),
+    PROJECT_OWNER(AuthoritiesConstants.PROJECT_OWNER),
+    PROJECT_AFFILIATE(AuthoritiesConstants.PROJECT_AFFILIATE),
+    PROJECT_ANALYST(AuthoritiesConstants.PROJECT_ANALYST),
+    PARTICIPANT(AuthoritiesConstants.PARTICIPANT);
+
+    private static final Map<String, RoleAuthority> BY_AUTHORITY;
+
+    static {
+        Map<String, RoleAuthority> byAuthority = new HashMap<>();
+        for (RoleAuthority authority : values()) {
+            byAuthority.put(authority.authority, authority);
+        }
+        BY_AUTHORITY = Collections.unmodifiableMap(byAuthority);
+    }
+
+    private final String authority;
+    private final long mask;
+
+    RoleAuthority(String authority) {
+        this.authority = authority;
+        this.mask = 1L << ordinal();
+    }
+
+    /**
+     * Authority name as it appears in tokens.
+     * @return one of the {@link AuthoritiesConstants}
+     */
+    public String authority() {
+        return authority;
+    }
+
+    /**
+     * Bit of this authority in an authority mask.
+     * @return mask with only the bit of this authority set
+     */
+    public long mask() {
+        return mask;
+    }
+
+    /**
+     * Look up an authority by its name.
+     * @param authority authority name, for example {@link AuthoritiesConstants#PARTICIPANT}
+     * @return the authority, or <code>null</code> if the name is unknown
+     */
+    public static RoleAuthority valueOfAuthority(String authority) {
+        return BY_AUTHORITY.get(authority);
+    }
+
+    /**
+     * Bit of the authority with given name in an authority mask.
+     * @param authority authority name
+     * @return mask with the bit of the authority set, or <code>0</code> if the name is unknown
+     */
+    public static long maskOf(String authority) {
+        RoleAuthority roleAuthority = BY_AUTHORITY.get(authority);
+        return roleAuthority == null ? 0L : roleAuthority.mask;
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.EnvironmentVariables;
 import org.radarcns.auth.authentication.TokenValidator;
+import org.radarcns.auth.authentication.VerifiedTokenCache;
 import org.radarcns.auth.config.YamlServerConfig;
 import org.radarcns.auth.exception.TokenValidationException;
 import org.radarcns.auth.unit.util.TokenTestUtils;
@@ -17,6 +18,9 @@ import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 
 /**
  * Created by dverbeec on 24/04/2017.
@@ -80,4 +84,63 @@ public class TokenValidatorTest {
         validator = new TokenValidator();
         validator.validateAccessToken(TokenTestUtils.VALID_TOKEN);
     }
+
+    @Test
+    public void testPublicKeySetFromServer() {
+        stubFor(get(urlEqualTo(TokenTestUtils.PUBLIC_KEY))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-type", TokenTestUtils.APPLICATION_JSON)
+                        .withBody("{\"keys\": [" + TokenTestUtils.PUBLIC_KEY_BODY
+                            .replaceFirst("\\{", "{\"kid\": \"key1\",") + "]}")));
+        validator = new TokenValidator();
+        validator.validateAccessToken(TokenTestUtils.VALID_TOKEN);
+    }
+
+    @Test
+    public void testPublicKeyFetchedInBackground() throws Exception {
+        stubFor(get(urlEqualTo(TokenTestUtils.PUBLIC_KEY))
+                .willReturn(aResponse().withStatus(404)));
+        validator = new TokenValidator(YamlServerConfig.readFromFileOrClasspath(), 0L);
+        try {
+            validator.validateAccessToken(TokenTestUtils.VALID_TOKEN);
+            fail("Token should not be validated without a public key");
+        } catch (TokenValidationException ex) {
+            // expected, a refresh is now scheduled
+        }
+
+        stubFor(get(urlEqualTo(TokenTestUtils.PUBLIC_KEY))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-type", TokenTestUtils.APPLICATION_JSON)
+                        .withBody(TokenTestUtils.PUBLIC_KEY_BODY)));
+        for (int i = 0; i < 50; i++) {
+            try {
+                assertNotNull(validator.validateAccessToken(TokenTestUtils.VALID_TOKEN));
+                return;
+            } catch (TokenValidationException ex) {
+                Thread.sleep(100L);
+            }
+        }
+        fail("Public key was not fetched in the background");
+    }
+
+    @Test
+    public void testVerifiedTokenCache() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        validator = new TokenValidator(YamlServerConfig.readFromFileOrClasspath(), 60L, cache);
+        validator.validateAccessToken(TokenTestUtils.VALID_TOKEN);
+        validator.validateAccessToken(TokenTestUtils.VALID_TOKEN);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+
+        try {
+            validator.validateAccessToken(TokenTestUtils.EXPIRED_TOKEN);
+            fail("Expired token should not be validated");
+        } catch (TokenValidationException ex) {
+            // expired tokens are not cached
+            assertEquals(1, cache.size());
+        }
+    }
 }
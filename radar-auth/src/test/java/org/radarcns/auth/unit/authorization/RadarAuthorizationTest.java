@@ -4,16 +4,20 @@ import com.auth0.jwt.interfaces.DecodedJWT;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.radarcns.auth.authorization.AuthoritiesConstants;
+import org.radarcns.auth.authorization.AuthorizationContext;
 import org.radarcns.auth.authorization.Permission;
 import org.radarcns.auth.authorization.Permissions;
 import org.radarcns.auth.authorization.RadarAuthorization;
+import org.radarcns.auth.authorization.RoleAuthority;
 import org.radarcns.auth.exception.NotAuthorizedException;
 import org.radarcns.auth.unit.util.TokenTestUtils;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -178,4 +182,38 @@ public class RadarAuthorizationTest {
         assertFalse(RadarAuthorization.isJustParticipant(token, ""));
     }
 
+    @Test
+    public void testAuthorizationContext() {
+        AuthorizationContext context = AuthorizationContext.of(
+                TokenTestUtils.PROJECT_ADMIN_TOKEN);
+        assertFalse(context.isSuperUser());
+        assertTrue(context.isJustParticipant("PROJECT2"));
+        assertFalse(context.isJustParticipant("PROJECT1"));
+        assertEquals(Collections.singleton(AuthoritiesConstants.PROJECT_ADMIN),
+                context.getAuthoritiesForProject("PROJECT1"));
+        assertTrue(context.getAuthoritiesForProject("PROJECT3").isEmpty());
+
+        // the same context can be reused for all checks
+        Permission.allPermissions().stream()
+                .filter(p -> p.getEntity() == Permission.Entity.SUBJECT)
+                .forEach(p -> RadarAuthorization.checkPermissionOnSubject(context, p,
+                        "PROJECT1", "some-subject"));
+
+        AuthorizationContext multipleRoles = AuthorizationContext.of(
+                TokenTestUtils.MULTIPLE_ROLES_IN_PROJECT_TOKEN);
+        assertFalse(multipleRoles.isJustParticipant("PROJECT2"));
+        assertTrue(AuthorizationContext.of(TokenTestUtils.SCOPE_TOKEN)
+                .hasScope(Permission.SUBJECT_READ));
+    }
+
+    @Test
+    public void testPermissionMasksMatchMatrix() {
+        Permission.allPermissions().forEach(p -> {
+            for (RoleAuthority authority : RoleAuthority.values()) {
+                assertEquals(Permissions.allowedAuthorities(p).contains(authority.authority()),
+                        Permissions.hasAny(authority.mask(), p));
+            }
+            assertFalse(Permissions.hasAny(0L, p));
+        });
+    }
 }
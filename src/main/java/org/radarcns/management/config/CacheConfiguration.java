@@ -4,12 +4,22 @@ import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.config.JHipsterProperties;
 
 import com.hazelcast.config.Config;
+import com.hazelcast.config.EntryListenerConfig;
+import com.hazelcast.config.NearCacheConfig;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.config.MapConfig;
 import com.hazelcast.config.EvictionPolicy;
 import com.hazelcast.config.MaxSizeConfig;
 
+import org.hibernate.cache.spi.UpdateTimestampsCache;
+import org.radarcns.management.config.ManagementPortalProperties.Cache.Region;
+
+import org.radarcns.management.security.CachingClientDetailsService;
+import org.radarcns.management.security.HazelcastApprovalStore;
+import org.radarcns.management.security.HazelcastAuthorizationCodeServices;
+import org.radarcns.management.security.TokenClaimsProvider;
+import org.radarcns.management.security.TokenRateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +32,7 @@ import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
 
 import javax.annotation.PreDestroy;
+import java.util.Map;
 
 @Configuration
 @EnableCaching
@@ -29,6 +40,9 @@ import javax.annotation.PreDestroy;
 @AutoConfigureBefore(value = { WebConfigurer.class, DatabaseConfiguration.class })
 public class CacheConfiguration {
 
+    /** Package of the entities; their Hibernate cache regions are named after the class. */
+    public static final String DOMAIN_REGION_PREFIX = "org.radarcns.management.domain.";
+
     private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
 
     @Autowired
@@ -48,7 +62,13 @@ public class CacheConfiguration {
     }
 
     @Bean
-    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties) {
+    public CacheEvictionCounter cacheEvictionCounter() {
+        return new CacheEvictionCounter();
+    }
+
+    @Bean
+    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties,
+            ManagementPortalProperties managementPortalProperties) {
         log.debug("Configuring Hazelcast");
 
         HazelcastInstance hazelCastInstance = Hazelcast.getHazelcastInstanceByName("ManagementPortal");
@@ -71,7 +91,30 @@ public class CacheConfiguration {
             config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(false);
         }
         config.getMapConfigs().put("default", initializeDefaultMapConfig());
-        config.getMapConfigs().put("org.radarcns.management.domain.*", initializeDomainMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(DOMAIN_REGION_PREFIX + "*", initializeDomainMapConfig(jHipsterProperties));
+        for (Map.Entry<String, Region> region
+                : managementPortalProperties.getCache().getRegions().entrySet()) {
+            String regionName = DOMAIN_REGION_PREFIX + region.getKey();
+            config.getMapConfigs().put(regionName,
+                initializeRegionMapConfig(regionName, region.getValue(), jHipsterProperties));
+        }
+        // cached query results are only valid as long as the update timestamps of their tables
+        // are kept, so the timestamps must never be evicted
+        config.getMapConfigs().put(UpdateTimestampsCache.REGION_NAME, initializeTimestampsMapConfig());
+        // token claims are evicted on change, the time to live only bounds the effect of races
+        config.getMapConfigs().put(TokenClaimsProvider.CACHE_NAME, initializeDomainMapConfig(jHipsterProperties));
+        MapConfig clientDetailsConfig = initializeDomainMapConfig(jHipsterProperties);
+        clientDetailsConfig.setTimeToLiveSeconds(
+            managementPortalProperties.getOauth().getClientCacheTimeToLiveSeconds());
+        config.getMapConfigs().put(CachingClientDetailsService.CACHE_NAME, clientDetailsConfig);
+        config.getMapConfigs().put(TokenRateLimiter.MAP_NAME,
+            initializeRateLimitMapConfig(managementPortalProperties));
+        config.getMapConfigs().put(HazelcastAuthorizationCodeServices.MAP_NAME,
+            initializeAuthorizationMapConfig(HazelcastAuthorizationCodeServices.MAP_NAME,
+                managementPortalProperties.getOauth().getAuthorizationCodeTimeToLiveSeconds()));
+        config.getMapConfigs().put(HazelcastApprovalStore.MAP_NAME,
+            initializeAuthorizationMapConfig(HazelcastApprovalStore.MAP_NAME,
+                managementPortalProperties.getOauth().getApprovalTimeToLiveSeconds()));
         return Hazelcast.newHazelcastInstance(config);
     }
 
@@ -105,9 +148,81 @@ public class CacheConfiguration {
         return mapConfig;
     }
 
+    private MapConfig initializeTimestampsMapConfig() {
+        MapConfig mapConfig = new MapConfig(UpdateTimestampsCache.REGION_NAME);
+        mapConfig.setEvictionPolicy(EvictionPolicy.NONE);
+        mapConfig.setTimeToLiveSeconds(0);
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(Integer.MAX_VALUE, MaxSizeConfig.MaxSizePolicy.PER_NODE));
+        return mapConfig;
+    }
+
+    /**
+     * Token buckets of the token endpoint. A bucket that has not been used for its time to live
+     * is full again, so it can be removed; the buckets are not worth a backup.
+     */
+    private MapConfig initializeRateLimitMapConfig(
+            ManagementPortalProperties managementPortalProperties) {
+        MapConfig mapConfig = new MapConfig(TokenRateLimiter.MAP_NAME);
+        mapConfig.setBackupCount(0);
+        mapConfig.setTimeToLiveSeconds(TokenRateLimiter.bucketTimeToLiveSeconds(
+            managementPortalProperties.getOauth().getTokenRateLimit()));
+        return mapConfig;
+    }
+
+    /**
+     * Authorization codes and approvals are only kept in Hazelcast, so they have a backup on
+     * another member and are never evicted before their time to live.
+     */
+    private MapConfig initializeAuthorizationMapConfig(String name, int timeToLiveSeconds) {
+        MapConfig mapConfig = new MapConfig(name);
+        mapConfig.setBackupCount(1);
+        mapConfig.setEvictionPolicy(EvictionPolicy.NONE);
+        mapConfig.setTimeToLiveSeconds(timeToLiveSeconds);
+        return mapConfig;
+    }
+
     private MapConfig initializeDomainMapConfig(JHipsterProperties jHipsterProperties) {
         MapConfig mapConfig = new MapConfig();
         mapConfig.setTimeToLiveSeconds(jHipsterProperties.getCache().getHazelcast().getTimeToLiveSeconds());
+        mapConfig.addEntryListenerConfig(evictionListenerConfig());
         return mapConfig;
     }
+
+    /**
+     * Configuration of a single Hibernate cache region. Regions of read-mostly entities can
+     * enable a near cache, so that reads are served from a local copy instead of from the
+     * member that owns the entry. Hazelcast invalidates near cache entries when they change.
+     */
+    private MapConfig initializeRegionMapConfig(String name, Region region,
+            JHipsterProperties jHipsterProperties) {
+        int timeToLive = region.getTimeToLiveSeconds() != null ? region.getTimeToLiveSeconds()
+            : jHipsterProperties.getCache().getHazelcast().getTimeToLiveSeconds();
+
+        MapConfig mapConfig = new MapConfig(name);
+        mapConfig.setTimeToLiveSeconds(timeToLive);
+        mapConfig.setInMemoryFormat(region.getInMemoryFormat());
+        if (region.getMaxSize() > 0) {
+            mapConfig.setEvictionPolicy(EvictionPolicy.LRU);
+            mapConfig.setMaxSizeConfig(new MaxSizeConfig(region.getMaxSize(),
+                region.getMaxSizePolicy()));
+        }
+        if (region.isNearCache()) {
+            NearCacheConfig nearCacheConfig = new NearCacheConfig(name);
+            nearCacheConfig.setInMemoryFormat(region.getNearCacheInMemoryFormat());
+            nearCacheConfig.setMaxSize(region.getNearCacheMaxSize());
+            nearCacheConfig.setEvictionPolicy(EvictionPolicy.LRU.name());
+            nearCacheConfig.setTimeToLiveSeconds(region.getNearCacheTimeToLiveSeconds() != null
+                ? region.getNearCacheTimeToLiveSeconds() : timeToLive);
+            nearCacheConfig.setInvalidateOnChange(true);
+            nearCacheConfig.setCacheLocalEntries(true);
+            mapConfig.setNearCacheConfig(nearCacheConfig);
+        }
+        mapConfig.addEntryListenerConfig(evictionListenerConfig());
+        return mapConfig;
+    }
+
+    private EntryListenerConfig evictionListenerConfig() {
+        // only count evictions of entries owned by this member
+        return new EntryListenerConfig(cacheEvictionCounter(), true, false);
+    }
 }
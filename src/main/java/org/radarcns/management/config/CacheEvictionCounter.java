@@ -0,0 +1,33 @@
+package org.radarcns.management.config;
+
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.map.listener.EntryEvictedListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the entries that were evicted from each Hazelcast map on this member, because the map
+ * reached its maximum size or because the entries expired. Hazelcast does not keep this count
+ * in its own map statistics.
+ */
+public class CacheEvictionCounter implements EntryEvictedListener<Object, Object> {
+
+    private final ConcurrentMap<String, LongAdder> evictions = new ConcurrentHashMap<>();
+
+    @Override
+    public void entryEvicted(EntryEvent<Object, Object> event) {
+        evictions.computeIfAbsent(event.getName(), name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Get the number of entries evicted from a map on this member.
+     * @param mapName name of the map
+     * @return number of evicted entries
+     */
+    public long getEvictions(String mapName) {
+        LongAdder count = evictions.get(mapName);
+        return count == null ? 0L : count.sum();
+    }
+}
@@ -11,6 +11,20 @@ public final class Constants {
     public static final String SYSTEM_ACCOUNT = "system";
     public static final String ANONYMOUS_USER = "anonymoususer";
 
+    /**
+     * Number of ids that Hibernate takes from hibernate_sequence at once. This must equal the
+     * increment of the sequence in the database, see the Liquibase changelog.
+     */
+    public static final int SEQUENCE_ALLOCATION_SIZE = 100;
+
+    /**
+     * Password hash of an account that has no password yet, because the user still has to set
+     * one with the reset key. It has the length of a BCrypt hash, so it fits the password column,
+     * but it is not a valid BCrypt hash, so no password matches it.
+     */
+    public static final String NO_PASSWORD =
+            "!no-password-set!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!";
+
     private Constants() {
     }
 }
@@ -1,7 +1,12 @@
 package org.radarcns.management.config;
 
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.MaxSizeConfig.MaxSizePolicy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Created by nivethika on 3-10-17.
  */
@@ -15,6 +20,12 @@ public class ManagementPortalProperties {
 
     private final CatalogueServer catalogueServer = new CatalogueServer();
 
+    private final Audit audit = new Audit();
+
+    private final Cache cache = new Cache();
+
+    private final CredentialHashing credentialHashing = new CredentialHashing();
+
     public ManagementPortalProperties.Frontend getFrontend() {
         return frontend;
     }
@@ -30,6 +41,48 @@ public class ManagementPortalProperties {
     public CatalogueServer getCatalogueServer() {
         return catalogueServer;
     }
+
+    public Audit getAudit() {
+        return audit;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public CredentialHashing getCredentialHashing() {
+        return credentialHashing;
+    }
+
+    /**
+     * Thread pool that hashes passwords that users set. Hashing is deliberately slow, so the
+     * number of passwords that are hashed at the same time and the number of waiting requests are
+     * bounded; further password changes are rejected until the queue has room again.
+     */
+    public static class CredentialHashing {
+
+        /** Number of hashing threads; 0 for the number of processors. */
+        private int threads = 0;
+
+        private int queueCapacity = 100;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
     public static class Mail {
 
         private String from = "";
@@ -107,8 +160,35 @@ public class ManagementPortalProperties {
     }
 
     public static class Oauth {
+
+        /** Where authorization codes and approvals are kept. */
+        public enum AuthorizationStore {
+            /** In the database. */
+            JDBC,
+            /** In Hazelcast maps, shared by the cluster members. */
+            HAZELCAST
+        }
+
         private String clientsFile;
 
+        /** Time to live of cached OAuth clients; changed clients are evicted immediately. */
+        private int clientCacheTimeToLiveSeconds = 3600;
+
+        /** How long a verified client secret is remembered; 0 to always check the hash. */
+        private int verifiedSecretTimeToLiveSeconds = 300;
+
+        private int verifiedSecretMaxEntries = 1000;
+
+        private AuthorizationStore authorizationStore = AuthorizationStore.JDBC;
+
+        /** Time after which an authorization code that was not redeemed expires. */
+        private int authorizationCodeTimeToLiveSeconds = 300;
+
+        /** Time after which unchanged approvals are removed from the Hazelcast store. */
+        private int approvalTimeToLiveSeconds = 31 * 24 * 60 * 60;
+
+        private final TokenRateLimit tokenRateLimit = new TokenRateLimit();
+
         public String getClientsFile() {
             return clientsFile;
         }
@@ -116,6 +196,149 @@ public class ManagementPortalProperties {
         public void setClientsFile(String clientsFile) {
             this.clientsFile = clientsFile;
         }
+
+        public int getClientCacheTimeToLiveSeconds() {
+            return clientCacheTimeToLiveSeconds;
+        }
+
+        public void setClientCacheTimeToLiveSeconds(int clientCacheTimeToLiveSeconds) {
+            this.clientCacheTimeToLiveSeconds = clientCacheTimeToLiveSeconds;
+        }
+
+        public int getVerifiedSecretTimeToLiveSeconds() {
+            return verifiedSecretTimeToLiveSeconds;
+        }
+
+        public void setVerifiedSecretTimeToLiveSeconds(int verifiedSecretTimeToLiveSeconds) {
+            this.verifiedSecretTimeToLiveSeconds = verifiedSecretTimeToLiveSeconds;
+        }
+
+        public int getVerifiedSecretMaxEntries() {
+            return verifiedSecretMaxEntries;
+        }
+
+        public void setVerifiedSecretMaxEntries(int verifiedSecretMaxEntries) {
+            this.verifiedSecretMaxEntries = verifiedSecretMaxEntries;
+        }
+
+        public AuthorizationStore getAuthorizationStore() {
+            return authorizationStore;
+        }
+
+        public void setAuthorizationStore(AuthorizationStore authorizationStore) {
+            this.authorizationStore = authorizationStore;
+        }
+
+        public int getAuthorizationCodeTimeToLiveSeconds() {
+            return authorizationCodeTimeToLiveSeconds;
+        }
+
+        public void setAuthorizationCodeTimeToLiveSeconds(int authorizationCodeTimeToLiveSeconds) {
+            this.authorizationCodeTimeToLiveSeconds = authorizationCodeTimeToLiveSeconds;
+        }
+
+        public int getApprovalTimeToLiveSeconds() {
+            return approvalTimeToLiveSeconds;
+        }
+
+        public void setApprovalTimeToLiveSeconds(int approvalTimeToLiveSeconds) {
+            this.approvalTimeToLiveSeconds = approvalTimeToLiveSeconds;
+        }
+
+        public TokenRateLimit getTokenRateLimit() {
+            return tokenRateLimit;
+        }
+
+        /**
+         * Limits on the requests to the token endpoint. Each client and each user has a token
+         * bucket that holds up to {@code burst} requests and refills at {@code requestsPerMinute};
+         * a limit of 0 requests per minute disables that bucket.
+         */
+        public static class TokenRateLimit {
+
+            private boolean enabled = true;
+
+            /** Share the buckets between cluster members through Hazelcast. */
+            private boolean clustered = false;
+
+            private int clientRequestsPerMinute = 6000;
+
+            private int clientBurst = 1000;
+
+            private int principalRequestsPerMinute = 30;
+
+            private int principalBurst = 10;
+
+            /** Maximum number of token requests handled at the same time; 0 for no maximum. */
+            private int maxConcurrentRequests = 0;
+
+            /** Number of local buckets above which full buckets are removed. */
+            private int maxTrackedKeys = 100000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public boolean isClustered() {
+                return clustered;
+            }
+
+            public void setClustered(boolean clustered) {
+                this.clustered = clustered;
+            }
+
+            public int getClientRequestsPerMinute() {
+                return clientRequestsPerMinute;
+            }
+
+            public void setClientRequestsPerMinute(int clientRequestsPerMinute) {
+                this.clientRequestsPerMinute = clientRequestsPerMinute;
+            }
+
+            public int getClientBurst() {
+                return clientBurst;
+            }
+
+            public void setClientBurst(int clientBurst) {
+                this.clientBurst = clientBurst;
+            }
+
+            public int getPrincipalRequestsPerMinute() {
+                return principalRequestsPerMinute;
+            }
+
+            public void setPrincipalRequestsPerMinute(int principalRequestsPerMinute) {
+                this.principalRequestsPerMinute = principalRequestsPerMinute;
+            }
+
+            public int getPrincipalBurst() {
+                return principalBurst;
+            }
+
+            public void setPrincipalBurst(int principalBurst) {
+                this.principalBurst = principalBurst;
+            }
+
+            public int getMaxConcurrentRequests() {
+                return maxConcurrentRequests;
+            }
+
+            public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+                this.maxConcurrentRequests = maxConcurrentRequests;
+            }
+
+            public int getMaxTrackedKeys() {
+                return maxTrackedKeys;
+            }
+
+            public void setMaxTrackedKeys(int maxTrackedKeys) {
+                this.maxTrackedKeys = maxTrackedKeys;
+            }
+        }
     }
 
     public static class CatalogueServer {
@@ -124,6 +347,9 @@ public class ManagementPortalProperties {
 
         private String serverUrl;
 
+        /** JSON file or directory of JSON files to import instead of the catalog server. */
+        private String localPath;
+
         public String getServerUrl() {
             return serverUrl;
         }
@@ -139,6 +365,274 @@ public class ManagementPortalProperties {
         public void setEnableAutoImport(boolean enableAutoImport) {
             this.enableAutoImport = enableAutoImport;
         }
+
+        public String getLocalPath() {
+            return localPath;
+        }
+
+        public void setLocalPath(String localPath) {
+            this.localPath = localPath;
+        }
+    }
+
+    public static class Audit {
+
+        private final Async async = new Async();
+
+        private final Retention retention = new Retention();
+
+        public Async getAsync() {
+            return async;
+        }
+
+        public Retention getRetention() {
+            return retention;
+        }
+
+        public static class Async {
+
+            /** What to do with an audit event when the queue is full. */
+            public enum OverflowPolicy {
+                /** Drop the event and count it as dropped. */
+                DROP,
+                /** Wait up to offerTimeoutMillis for space in the queue, then drop the event. */
+                BLOCK,
+                /** Write the event synchronously on the calling thread. */
+                CALLER_RUNS
+            }
+
+            private boolean enabled = true;
+
+            private int queueCapacity = 10000;
+
+            private int batchSize = 100;
+
+            private long flushIntervalMillis = 1000;
+
+            private OverflowPolicy overflowPolicy = OverflowPolicy.CALLER_RUNS;
+
+            private long offerTimeoutMillis = 100;
+
+            private long shutdownTimeoutSeconds = 10;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public long getFlushIntervalMillis() {
+                return flushIntervalMillis;
+            }
+
+            public void setFlushIntervalMillis(long flushIntervalMillis) {
+                this.flushIntervalMillis = flushIntervalMillis;
+            }
+
+            public OverflowPolicy getOverflowPolicy() {
+                return overflowPolicy;
+            }
+
+            public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+                this.overflowPolicy = overflowPolicy;
+            }
+
+            public long getOfferTimeoutMillis() {
+                return offerTimeoutMillis;
+            }
+
+            public void setOfferTimeoutMillis(long offerTimeoutMillis) {
+                this.offerTimeoutMillis = offerTimeoutMillis;
+            }
+
+            public long getShutdownTimeoutSeconds() {
+                return shutdownTimeoutSeconds;
+            }
+
+            public void setShutdownTimeoutSeconds(long shutdownTimeoutSeconds) {
+                this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+            }
+        }
+
+        public static class Retention {
+
+            private boolean enabled = false;
+
+            private String cron = "0 30 2 * * ?";
+
+            private int maxAgeDays = 365;
+
+            private int chunkSize = 1000;
+
+            private boolean archiveEnabled = false;
+
+            private String archiveDirectory = "audit-archive";
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getCron() {
+                return cron;
+            }
+
+            public void setCron(String cron) {
+                this.cron = cron;
+            }
+
+            public int getMaxAgeDays() {
+                return maxAgeDays;
+            }
+
+            public void setMaxAgeDays(int maxAgeDays) {
+                this.maxAgeDays = maxAgeDays;
+            }
+
+            public int getChunkSize() {
+                return chunkSize;
+            }
+
+            public void setChunkSize(int chunkSize) {
+                this.chunkSize = chunkSize;
+            }
+
+            public boolean isArchiveEnabled() {
+                return archiveEnabled;
+            }
+
+            public void setArchiveEnabled(boolean archiveEnabled) {
+                this.archiveEnabled = archiveEnabled;
+            }
+
+            public String getArchiveDirectory() {
+                return archiveDirectory;
+            }
+
+            public void setArchiveDirectory(String archiveDirectory) {
+                this.archiveDirectory = archiveDirectory;
+            }
+        }
     }
 
+    public static class Cache {
+
+        /**
+         * Hibernate second level cache regions, by entity name relative to the domain package,
+         * for example {@code SourceType}. Regions that are not listed use the defaults.
+         */
+        private final Map<String, Region> regions = new HashMap<>();
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public static class Region {
+
+            /** Time to live of entries; if not set, the JHipster cache time to live is used. */
+            private Integer timeToLiveSeconds;
+
+            /** Maximum size according to maxSizePolicy, 0 for no limit. */
+            private int maxSize = 0;
+
+            private MaxSizePolicy maxSizePolicy = MaxSizePolicy.PER_NODE;
+
+            private InMemoryFormat inMemoryFormat = InMemoryFormat.BINARY;
+
+            /** Keep a local copy of read entries on each member, for read-mostly entities. */
+            private boolean nearCache = false;
+
+            private int nearCacheMaxSize = 10000;
+
+            /** Time to live of near cache entries; if not set, timeToLiveSeconds is used. */
+            private Integer nearCacheTimeToLiveSeconds;
+
+            private InMemoryFormat nearCacheInMemoryFormat = InMemoryFormat.OBJECT;
+
+            public Integer getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Integer timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public MaxSizePolicy getMaxSizePolicy() {
+                return maxSizePolicy;
+            }
+
+            public void setMaxSizePolicy(MaxSizePolicy maxSizePolicy) {
+                this.maxSizePolicy = maxSizePolicy;
+            }
+
+            public InMemoryFormat getInMemoryFormat() {
+                return inMemoryFormat;
+            }
+
+            public void setInMemoryFormat(InMemoryFormat inMemoryFormat) {
+                this.inMemoryFormat = inMemoryFormat;
+            }
+
+            public boolean isNearCache() {
+                return nearCache;
+            }
+
+            public void setNearCache(boolean nearCache) {
+                this.nearCache = nearCache;
+            }
+
+            public int getNearCacheMaxSize() {
+                return nearCacheMaxSize;
+            }
+
+            public void setNearCacheMaxSize(int nearCacheMaxSize) {
+                this.nearCacheMaxSize = nearCacheMaxSize;
+            }
+
+            public Integer getNearCacheTimeToLiveSeconds() {
+                return nearCacheTimeToLiveSeconds;
+            }
+
+            public void setNearCacheTimeToLiveSeconds(Integer nearCacheTimeToLiveSeconds) {
+                this.nearCacheTimeToLiveSeconds = nearCacheTimeToLiveSeconds;
+            }
+
+            public InMemoryFormat getNearCacheInMemoryFormat() {
+                return nearCacheInMemoryFormat;
+            }
+
+            public void setNearCacheInMemoryFormat(InMemoryFormat nearCacheInMemoryFormat) {
+                this.nearCacheInMemoryFormat = nearCacheInMemoryFormat;
+            }
+        }
+    }
 }
@@ -2,6 +2,7 @@ package org.radarcns.management.config;
 
 import io.github.jhipster.config.JHipsterProperties;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Slf4jReporter;
@@ -10,6 +11,8 @@ import com.codahale.metrics.jvm.*;
 import com.ryantenney.metrics.spring.config.annotation.EnableMetrics;
 import com.ryantenney.metrics.spring.config.annotation.MetricsConfigurerAdapter;
 import com.zaxxer.hikari.HikariDataSource;
+import org.radarcns.auth.authentication.VerifiedTokenCache;
+import org.radarcns.management.security.JwtAuthenticationFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +31,7 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
     private static final String PROP_METRIC_REG_JVM_THREADS = "jvm.threads";
     private static final String PROP_METRIC_REG_JVM_FILES = "jvm.files";
     private static final String PROP_METRIC_REG_JVM_BUFFERS = "jvm.buffers";
+    private static final String PROP_METRIC_REG_TOKEN_CACHE = "security.token-cache";
     private final Logger log = LoggerFactory.getLogger(MetricsConfiguration.class);
 
     private MetricRegistry metricRegistry = new MetricRegistry();
@@ -60,6 +64,15 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
         metricRegistry.register(PROP_METRIC_REG_JVM_THREADS, new ThreadStatesGaugeSet());
         metricRegistry.register(PROP_METRIC_REG_JVM_FILES, new FileDescriptorRatioGauge());
         metricRegistry.register(PROP_METRIC_REG_JVM_BUFFERS, new BufferPoolMetricSet(ManagementFactory.getPlatformMBeanServer()));
+        VerifiedTokenCache tokenCache = JwtAuthenticationFilter.getTokenCache();
+        metricRegistry.register(PROP_METRIC_REG_TOKEN_CACHE + ".size",
+            (Gauge<Integer>) tokenCache::size);
+        metricRegistry.register(PROP_METRIC_REG_TOKEN_CACHE + ".hits",
+            (Gauge<Long>) tokenCache::getHitCount);
+        metricRegistry.register(PROP_METRIC_REG_TOKEN_CACHE + ".misses",
+            (Gauge<Long>) tokenCache::getMissCount);
+        metricRegistry.register(PROP_METRIC_REG_TOKEN_CACHE + ".evictions",
+            (Gauge<Long>) tokenCache::getEvictionCount);
         if (hikariDataSource != null) {
             log.debug("Monitoring the datasource");
             hikariDataSource.setMetricRegistry(metricRegistry);
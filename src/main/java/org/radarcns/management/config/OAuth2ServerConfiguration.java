@@ -1,11 +1,22 @@
 package org.radarcns.management.config;
 
+import com.hazelcast.core.HazelcastInstance;
 import io.github.jhipster.security.AjaxLogoutSuccessHandler;
 import io.github.jhipster.security.Http401UnauthorizedEntryPoint;
 import org.radarcns.auth.authorization.AuthoritiesConstants;
+import org.radarcns.management.config.ManagementPortalProperties.Oauth.AuthorizationStore;
+import org.radarcns.management.security.CachingClientDetailsService;
+import org.radarcns.management.security.CachingPasswordEncoder;
 import org.radarcns.management.security.ClaimsTokenEnhancer;
+import org.radarcns.management.security.HazelcastApprovalStore;
+import org.radarcns.management.security.HazelcastAuthorizationCodeServices;
+import org.radarcns.management.security.TokenRateLimitFilter;
+import org.radarcns.management.security.TokenRateLimiter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -85,6 +96,42 @@ public class OAuth2ServerConfiguration {
         return clientDetailsService;
     }
 
+    /**
+     * Client details service used by the authorization server to authenticate clients. Clients
+     * are cached, so code that changes clients in the {@link #jdbcClientDetailsService()} must
+     * evict them from this service.
+     */
+    @Bean
+    public CachingClientDetailsService cachingClientDetailsService(CacheManager cacheManager) {
+        return new CachingClientDetailsService(jdbcClientDetailsService(), cacheManager);
+    }
+
+    /**
+     * Encoder used to check client secrets, remembering recently verified secrets.
+     */
+    @Bean
+    public CachingPasswordEncoder clientSecretEncoder(
+            ManagementPortalProperties managementPortalProperties) {
+        ManagementPortalProperties.Oauth oauth = managementPortalProperties.getOauth();
+        return new CachingPasswordEncoder(new BCryptPasswordEncoder(),
+                oauth.getVerifiedSecretTimeToLiveSeconds(), oauth.getVerifiedSecretMaxEntries());
+    }
+
+    /**
+     * Rate limits the token endpoint before any authentication takes place.
+     */
+    @Bean
+    public FilterRegistrationBean tokenRateLimitFilter(TokenRateLimiter tokenRateLimiter,
+            ManagementPortalProperties managementPortalProperties) {
+        FilterRegistrationBean registration = new FilterRegistrationBean(
+                new TokenRateLimitFilter(tokenRateLimiter));
+        registration.addUrlPatterns("/oauth/token");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        registration.setEnabled(
+                managementPortalProperties.getOauth().getTokenRateLimit().isEnabled());
+        return registration;
+    }
+
     @Configuration
     @EnableResourceServer
     protected static class ResourceServerConfiguration extends ResourceServerConfigurerAdapter {
@@ -163,18 +210,38 @@ public class OAuth2ServerConfiguration {
         private DataSource dataSource;
 
         @Autowired
-        private JdbcClientDetailsService jdbcClientDetailsService;
+        private CachingClientDetailsService cachingClientDetailsService;
+
+        @Autowired
+        private CachingPasswordEncoder clientSecretEncoder;
+
+        @Autowired
+        private HazelcastInstance hazelcastInstance;
+
+        @Autowired
+        private ManagementPortalProperties managementPortalProperties;
 
         @Bean
         protected AuthorizationCodeServices authorizationCodeServices() {
+            if (isHazelcastAuthorizationStore()) {
+                return new HazelcastAuthorizationCodeServices(hazelcastInstance);
+            }
             return new JdbcAuthorizationCodeServices(dataSource);
         }
 
         @Bean
         public ApprovalStore approvalStore() {
+            if (isHazelcastAuthorizationStore()) {
+                return new HazelcastApprovalStore(hazelcastInstance);
+            }
             return new JdbcApprovalStore(dataSource);
         }
 
+        private boolean isHazelcastAuthorizationStore() {
+            return managementPortalProperties.getOauth().getAuthorizationStore()
+                    == AuthorizationStore.HAZELCAST;
+        }
+
         @Override
         public void configure(AuthorizationServerEndpointsConfigurer endpoints)
                 throws Exception {
@@ -205,7 +272,7 @@ public class OAuth2ServerConfiguration {
             oauthServer.allowFormAuthenticationForClients()
                        .checkTokenAccess("isAuthenticated()")
                        .tokenKeyAccess("isAnonymous() || isAuthenticated()")
-                       .passwordEncoder(new BCryptPasswordEncoder());
+                       .passwordEncoder(clientSecretEncoder);
         }
 
         @Bean
@@ -222,7 +289,7 @@ public class OAuth2ServerConfiguration {
 
         @Override
         public void configure(ClientDetailsServiceConfigurer clients) throws Exception {
-            clients.withClientDetails(jdbcClientDetailsService);
+            clients.withClientDetails(cachingClientDetailsService);
         }
 
         @Bean
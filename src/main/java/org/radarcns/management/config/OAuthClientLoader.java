@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import org.radarcns.auth.authorization.Permission;
+import org.radarcns.management.security.CachingClientDetailsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,6 +41,9 @@ public class OAuthClientLoader {
     @Autowired
     private JdbcClientDetailsService clientDetailsService;
 
+    @Autowired
+    private CachingClientDetailsService cachingClientDetailsService;
+
     @Autowired
     private  ManagementPortalProperties managementPortalProperties;
 
@@ -115,6 +119,7 @@ public class OAuthClientLoader {
         }
         try {
             clientDetailsService.addClientDetails(details);
+            cachingClientDetailsService.evict(details.getClientId());
             logger.info("OAuth client loaded: " + details.getClientId());
         } catch (Exception ex) {
             logger.error("Unable to load OAuth client " + details.getClientId() + ": "
@@ -1,13 +1,18 @@
 package org.radarcns.management.config;
 
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.List;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.radarcns.management.config.ManagementPortalProperties.CatalogueServer;
 import org.radarcns.management.domain.SourceData;
 import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.repository.SourceDataRepository;
 import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.CatalogSnapshotService;
+import org.radarcns.management.service.CatalogVersionService;
+import org.radarcns.management.service.CatalogVersionService.Catalog;
 import org.radarcns.management.service.catalog.CatalogSourceData;
 import org.radarcns.management.service.catalog.CatalogSourceType;
 import org.radarcns.management.service.catalog.SourceTypeResponse;
@@ -16,93 +21,402 @@ import org.radarcns.management.service.mapper.CatalogSourceTypeMapper;
 import org.radarcns.management.web.rest.util.HttpUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.http.ResponseEntity;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Upon start of Spring application, this class automatically import the source-types
- * provided by Catalog server in Radar-Schemas.
- * This will be executed when a valid URL of the catalog server is provided and
- * enableAutoImport is set to true.
+ * Once the Spring application is ready, this class imports the source-types provided by the
+ * Catalog server in Radar-Schemas. This will be executed when enableAutoImport is set to true
+ * and either a valid URL of the catalog server or a local path is provided.
+ * <p>
+ * The import runs asynchronously on the task executor, so it does not delay startup. The
+ * catalog is compared with the existing source types, by producer, model and version, and
+ * their source data, by name. Only new and changed rows are written, all in one transaction,
+ * so that the JDBC driver can batch them. Source types and source data that are no longer in
+ * the catalog are kept, because existing sources may still refer to them.
+ * </p>
+ * <p>
+ * The {@code localPath} may point to a JSON file in the catalog server response format, or to
+ * a directory of such files, to import a catalog without a running catalog server. Progress
+ * and duration are reported in the {@link MetricRegistry} under {@code catalog.import}.
+ * </p>
  */
 @Component
-public class SourceTypeLoader implements CommandLineRunner {
+public class SourceTypeLoader {
 
-    private Logger log = LoggerFactory.getLogger(SourceTypeLoader.class);
+    private static final Logger log = LoggerFactory.getLogger(SourceTypeLoader.class);
 
-    @Autowired
-    private SourceTypeRepository sourceTypeRepository;
+    private static final String METRIC_PREFIX = "catalog.import";
 
-    @Autowired
-    private SourceDataRepository sourceDataRepository;
+    private final SourceTypeRepository sourceTypeRepository;
 
-    @Autowired
-    private ManagementPortalProperties managementPortalProperties;
+    private final SourceDataRepository sourceDataRepository;
 
-    @Autowired
-    private CatalogSourceTypeMapper catalogSourceTypeMapper;
+    private final CatalogSourceTypeMapper catalogSourceTypeMapper;
 
-    @Autowired
-    private CatalogSourceDataMapper catalogSourceDataMapper;
+    private final CatalogSourceDataMapper catalogSourceDataMapper;
 
-    public void run(String... args) {
+    private final CatalogVersionService catalogVersionService;
 
-        String catalogServerUrl = managementPortalProperties.getCatalogueServer().getServerUrl();
+    private final CatalogSnapshotService catalogSnapshotService;
 
-        if (managementPortalProperties.getCatalogueServer().isEnableAutoImport()) {
+    private final TransactionTemplate transactionTemplate;
 
-            try {
-                if (HttpUtil.isReachable(new URL(catalogServerUrl))) {
-                    RestTemplate restTemplate = new RestTemplate();
-                    ResponseEntity<SourceTypeResponse> catalogues = null;
-                    log.debug("Requesting source-types from catalogue server...");
-                    catalogues = restTemplate
-                        .getForEntity(
-                            managementPortalProperties.getCatalogueServer().getServerUrl(),
-                            SourceTypeResponse.class);
-                    SourceTypeResponse catalogueDTO = catalogues.getBody();
-                    List<CatalogSourceType> catalogSourceTypes = new ArrayList<>();
-                    if (catalogueDTO.getPassiveSources() != null) {
-                        catalogSourceTypes.addAll(catalogueDTO.getPassiveSources());
-                    }
-                    if (catalogueDTO.getActiveSources() != null) {
-                        catalogSourceTypes.addAll(catalogueDTO.getActiveSources());
-                    }
-                    if (catalogueDTO.getMonitorSources() != null) {
-                        catalogSourceTypes.addAll(catalogueDTO.getMonitorSources());
-                    }
+    private final CatalogueServer config;
 
-                    for (CatalogSourceType catalogSourceType : catalogSourceTypes) {
-                        SourceType sourceType = catalogSourceTypeMapper
-                            .catalogSourceTypeToSourceType(catalogSourceType);
-                        sourceTypeRepository.save(sourceType);
-
-                        for (CatalogSourceData catalogSourceData : catalogSourceType.getData()) {
-                            SourceData sourceData = catalogSourceDataMapper
-                                .catalogSourceDataToSourceData(catalogSourceData);
-                            sourceData.sourceDataName(
-                                sourceType.getProducer() + "_" + sourceType.getModel() + "_"
-                                    + sourceType
-                                    .getCatalogVersion() + "_" + sourceData.getSourceDataType());
-                            sourceData.sourceType(sourceType);
-                            sourceDataRepository.save(sourceData);
-                        }
-                    }
+    private final ObjectMapper objectMapper;
+
+    private final RestTemplate restTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final AtomicInteger progressTotal = new AtomicInteger(0);
+
+    private final AtomicInteger progressDone = new AtomicInteger(0);
+
+    private final AtomicLong lastRunTimestamp = new AtomicLong(0L);
+
+    private final Counter createdSourceTypes;
+
+    private final Counter updatedSourceTypes;
+
+    private final Counter createdSourceData;
+
+    private final Counter updatedSourceData;
+
+    private final Timer importTimer;
+
+    public SourceTypeLoader(SourceTypeRepository sourceTypeRepository,
+            SourceDataRepository sourceDataRepository,
+            CatalogSourceTypeMapper catalogSourceTypeMapper,
+            CatalogSourceDataMapper catalogSourceDataMapper,
+            CatalogVersionService catalogVersionService,
+            CatalogSnapshotService catalogSnapshotService,
+            PlatformTransactionManager transactionManager,
+            ManagementPortalProperties managementPortalProperties, ObjectMapper objectMapper,
+            RestTemplateBuilder restTemplateBuilder, MetricRegistry metricRegistry) {
+        this.sourceTypeRepository = sourceTypeRepository;
+        this.sourceDataRepository = sourceDataRepository;
+        this.catalogSourceTypeMapper = catalogSourceTypeMapper;
+        this.catalogSourceDataMapper = catalogSourceDataMapper;
+        this.catalogVersionService = catalogVersionService;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = managementPortalProperties.getCatalogueServer();
+        this.objectMapper = objectMapper;
+        this.restTemplate = restTemplateBuilder.build();
+
+        this.createdSourceTypes = metricRegistry.counter(
+            MetricRegistry.name(METRIC_PREFIX, "source-types", "created"));
+        this.updatedSourceTypes = metricRegistry.counter(
+            MetricRegistry.name(METRIC_PREFIX, "source-types", "updated"));
+        this.createdSourceData = metricRegistry.counter(
+            MetricRegistry.name(METRIC_PREFIX, "source-data", "created"));
+        this.updatedSourceData = metricRegistry.counter(
+            MetricRegistry.name(METRIC_PREFIX, "source-data", "updated"));
+        this.importTimer = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "duration"));
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "progress"),
+            (Gauge<Double>) this::getProgress);
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "last-run-timestamp"),
+            (Gauge<Long>) lastRunTimestamp::get);
+    }
+
+    /**
+     * Import the catalog in the background once the application is ready, if auto import is
+     * enabled.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!config.isEnableAutoImport()) {
+            log.info("Auto source-type import is disabled");
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Source-type import is still running, skipping this import");
+            return;
+        }
+        try {
+            List<CatalogSourceType> catalogSourceTypes = fetchCatalog();
+            if (catalogSourceTypes != null) {
+                int changes = importSourceTypes(catalogSourceTypes);
+                log.info("Completed source-type import from catalog: {} rows changed", changes);
+            }
+        } catch (IOException | RestClientException ex) {
+            log.error("Failed to read source-types from the catalog: {}", ex.toString());
+        } finally {
+            lastRunTimestamp.set(System.currentTimeMillis());
+            running.set(false);
+        }
+    }
+
+    /**
+     * Import source types and their source data, writing only the rows that are new or changed.
+     * @param catalogSourceTypes source types in the catalog
+     * @return the number of source types and source data rows that were created or updated
+     */
+    public int importSourceTypes(List<CatalogSourceType> catalogSourceTypes) {
+        try (Timer.Context ignored = importTimer.time()) {
+            progressDone.set(0);
+            progressTotal.set(catalogSourceTypes.size());
+            return transactionTemplate.execute(status -> applyCatalog(catalogSourceTypes));
+        }
+    }
+
+    /**
+     * Read the catalog from the local path, if configured, or from the catalog server otherwise.
+     * @return the catalog source types, or null if the catalog is not available
+     * @throws IOException if the local catalog cannot be read
+     */
+    private List<CatalogSourceType> fetchCatalog() throws IOException {
+        if (config.getLocalPath() != null && !config.getLocalPath().isEmpty()) {
+            log.debug("Reading source-types from {}", config.getLocalPath());
+            return readCatalog(Paths.get(config.getLocalPath()));
+        }
+
+        String catalogServerUrl = config.getServerUrl();
+        try {
+            if (!HttpUtil.isReachable(new URL(catalogServerUrl))) {
+                log.warn("Catalog Service {} is unreachable", catalogServerUrl);
+                return null;
+            }
+        } catch (MalformedURLException e) {
+            log.warn("Invalid Url provided for Catalog server url {} : {}", catalogServerUrl,
+                e.getMessage());
+            return null;
+        }
+        log.debug("Requesting source-types from catalogue server...");
+        SourceTypeResponse response = restTemplate.getForObject(catalogServerUrl,
+            SourceTypeResponse.class);
+        List<CatalogSourceType> catalogSourceTypes = new ArrayList<>();
+        addSourceTypes(catalogSourceTypes, response);
+        return catalogSourceTypes;
+    }
+
+    /**
+     * Read the catalog from a JSON file, or from all JSON files in a directory.
+     * @param path file or directory
+     * @return the catalog source types
+     * @throws IOException if the path cannot be read
+     */
+    List<CatalogSourceType> readCatalog(Path path) throws IOException {
+        List<CatalogSourceType> catalogSourceTypes = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.json")) {
+                stream.forEach(files::add);
+            }
+            // import in a stable order, so that later files consistently take precedence
+            files.sort(null);
+            for (Path file : files) {
+                addSourceTypes(catalogSourceTypes, objectMapper.readValue(file.toFile(),
+                    SourceTypeResponse.class));
+            }
+        } else {
+            addSourceTypes(catalogSourceTypes, objectMapper.readValue(path.toFile(),
+                SourceTypeResponse.class));
+        }
+        return catalogSourceTypes;
+    }
+
+    private static void addSourceTypes(List<CatalogSourceType> catalogSourceTypes,
+            SourceTypeResponse response) {
+        if (response == null) {
+            return;
+        }
+        if (response.getPassiveSources() != null) {
+            catalogSourceTypes.addAll(response.getPassiveSources());
+        }
+        if (response.getActiveSources() != null) {
+            catalogSourceTypes.addAll(response.getActiveSources());
+        }
+        if (response.getMonitorSources() != null) {
+            catalogSourceTypes.addAll(response.getMonitorSources());
+        }
+    }
 
-                    log.info("Completed source-type import from catalog-server");
+    private int applyCatalog(List<CatalogSourceType> catalogSourceTypes) {
+        Map<String, SourceType> existingTypes = new HashMap<>();
+        Map<String, SourceData> existingData = new HashMap<>();
+        for (SourceType sourceType : sourceTypeRepository.findAllWithEagerRelationships()) {
+            existingTypes.put(sourceTypeKey(sourceType), sourceType);
+            if (sourceType.getSourceData() != null) {
+                for (SourceData sourceData : sourceType.getSourceData()) {
+                    existingData.put(sourceData.getSourceDataName(), sourceData);
                 }
-                else {
-                    log.warn("Catalog Service {} is unreachable: {}", catalogServerUrl);
+            }
+        }
+
+        // a source type that occurs more than once in the catalog is imported once, last wins
+        Map<String, SourceType> newTypes = new LinkedHashMap<>();
+        Map<String, SourceData> newData = new LinkedHashMap<>();
+        int updatedTypeCount = 0;
+        int updatedDataCount = 0;
+
+        for (CatalogSourceType catalogSourceType : catalogSourceTypes) {
+            SourceType imported = catalogSourceTypeMapper
+                .catalogSourceTypeToSourceType(catalogSourceType);
+            String key = sourceTypeKey(imported);
+            SourceType sourceType = existingTypes.get(key);
+            if (sourceType == null) {
+                sourceType = newTypes.get(key);
+            }
+            if (sourceType == null) {
+                imported.setSourceData(new HashSet<>());
+                newTypes.put(key, imported);
+                sourceType = imported;
+            } else if (copySourceType(imported, sourceType) && sourceType.getId() != null) {
+                updatedTypeCount++;
+            }
+
+            if (catalogSourceType.getData() != null) {
+                for (CatalogSourceData catalogSourceData : catalogSourceType.getData()) {
+                    SourceData importedData = catalogSourceDataMapper
+                        .catalogSourceDataToSourceData(catalogSourceData);
+                    String name = sourceType.getProducer() + "_" + sourceType.getModel() + "_"
+                        + sourceType.getCatalogVersion() + "_" + importedData.getSourceDataType();
+                    SourceData sourceData = existingData.get(name);
+                    if (sourceData == null) {
+                        sourceData = newData.get(name);
+                    }
+                    if (sourceData == null) {
+                        importedData.sourceDataName(name);
+                        if (sourceType.getSourceData() != null) {
+                            // keep the loaded collection in sync with the persistence context
+                            sourceType.addSourceData(importedData);
+                        } else {
+                            importedData.sourceType(sourceType);
+                        }
+                        newData.put(name, importedData);
+                    } else if (copySourceData(importedData, sourceData)
+                            && sourceData.getId() != null) {
+                        updatedDataCount++;
+                    }
                 }
-            } catch (MalformedURLException e) {
-                log.warn("Invalid Url provided for Catalog server url {} : {}", catalogServerUrl, e.getMessage());
             }
-        } else {
-            log.info("Auto source-type import is disabled");
+            progressDone.incrementAndGet();
         }
 
+        // managed entities that changed are written on flush; new rows are inserted in batches
+        sourceTypeRepository.save(newTypes.values());
+        sourceDataRepository.save(newData.values());
+        sourceDataRepository.flush();
+
+        createdSourceTypes.inc(newTypes.size());
+        updatedSourceTypes.inc(updatedTypeCount);
+        createdSourceData.inc(newData.size());
+        updatedSourceData.inc(updatedDataCount);
+
+        int changes = newTypes.size() + updatedTypeCount + newData.size() + updatedDataCount;
+        log.debug("Source-type import created {} and updated {} source types, created {} and "
+                + "updated {} source data", newTypes.size(), updatedTypeCount, newData.size(),
+            updatedDataCount);
+        if (changes > 0) {
+            catalogVersionService.increment(Catalog.values());
+            catalogSnapshotService.invalidate();
+        }
+        return changes;
+    }
+
+    /** Fraction of the source types in the current or last import that have been processed. */
+    private double getProgress() {
+        int total = progressTotal.get();
+        return total == 0 ? 1.0 : (double) progressDone.get() / total;
+    }
+
+    private static String sourceTypeKey(SourceType sourceType) {
+        return sourceType.getProducer() + '\0' + sourceType.getModel() + '\0'
+            + sourceType.getCatalogVersion();
+    }
+
+    /**
+     * Copy the catalog fields of a source type to an existing one.
+     * @return whether any field changed
+     */
+    private static boolean copySourceType(SourceType from, SourceType to) {
+        boolean changed = false;
+        if (!Objects.equals(from.getName(), to.getName())) {
+            to.setName(from.getName());
+            changed = true;
+        }
+        if (!Objects.equals(from.getDescription(), to.getDescription())) {
+            to.setDescription(from.getDescription());
+            changed = true;
+        }
+        if (!Objects.equals(from.getAssessmentType(), to.getAssessmentType())) {
+            to.setAssessmentType(from.getAssessmentType());
+            changed = true;
+        }
+        if (!Objects.equals(from.getAppProvider(), to.getAppProvider())) {
+            to.setAppProvider(from.getAppProvider());
+            changed = true;
+        }
+        if (!Objects.equals(from.getSourceTypeScope(), to.getSourceTypeScope())) {
+            to.setSourceTypeScope(from.getSourceTypeScope());
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Copy the catalog fields of source data to existing source data.
+     * @return whether any field changed
+     */
+    private static boolean copySourceData(SourceData from, SourceData to) {
+        boolean changed = false;
+        if (!Objects.equals(from.getFrequency(), to.getFrequency())) {
+            to.setFrequency(from.getFrequency());
+            changed = true;
+        }
+        if (!Objects.equals(from.getUnit(), to.getUnit())) {
+            to.setUnit(from.getUnit());
+            changed = true;
+        }
+        if (!Objects.equals(from.getProcessingState(), to.getProcessingState())) {
+            to.setProcessingState(from.getProcessingState());
+            changed = true;
+        }
+        if (!Objects.equals(from.getKeySchema(), to.getKeySchema())) {
+            to.setKeySchema(from.getKeySchema());
+            changed = true;
+        }
+        if (!Objects.equals(from.getValueSchema(), to.getValueSchema())) {
+            to.setValueSchema(from.getValueSchema());
+            changed = true;
+        }
+        if (!Objects.equals(from.getTopic(), to.getTopic())) {
+            to.setTopic(from.getTopic());
+            changed = true;
+        }
+        if (!Objects.equals(from.getProvider(), to.getProvider())) {
+            to.setProvider(from.getProvider());
+            changed = true;
+        }
+        return changed;
     }
 }
@@ -0,0 +1,239 @@
+package org.radarcns.management.config.audit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.radarcns.management.config.ManagementPortalProperties;
+import org.radarcns.management.config.ManagementPortalProperties.Audit.Async;
+import org.radarcns.management.domain.PersistentAuditEvent;
+import org.radarcns.management.repository.PersistenceAuditEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes audit events to the database in batches from a background thread.
+ * <p>
+ * Events are put on a bounded in-memory queue. A single flusher thread takes events from the
+ * queue and saves up to {@code batchSize} of them in one transaction, waiting at most
+ * {@code flushIntervalMillis} for a batch to fill up. This way token grants and other audited
+ * requests do not each need their own database round-trip. When the queue is full,
+ * the configured {@link Async.OverflowPolicy} decides whether the event is dropped, the caller
+ * waits, or the event is written synchronously. Remaining events are written on shutdown.
+ * </p>
+ * <p>
+ * Queue depth, dropped and written events are reported in the {@link MetricRegistry} under
+ * {@code audit.async}. Events of a queued batch that could not be saved count as dropped.
+ * </p>
+ */
+@Component
+public class AsyncAuditEventWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncAuditEventWriter.class);
+
+    private static final String METRIC_PREFIX = "audit.async";
+
+    private final PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Async config;
+
+    private final BlockingQueue<PersistentAuditEvent> queue;
+
+    private final Counter droppedEvents;
+
+    private final Counter writtenEvents;
+
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+
+    private Thread flusher;
+
+    public AsyncAuditEventWriter(PersistenceAuditEventRepository persistenceAuditEventRepository,
+            PlatformTransactionManager transactionManager,
+            ManagementPortalProperties managementPortalProperties, MetricRegistry metricRegistry) {
+        this.persistenceAuditEventRepository = persistenceAuditEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(
+            TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.config = managementPortalProperties.getAudit().getAsync();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity()));
+
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "queue-size"),
+            (Gauge<Integer>) queue::size);
+        this.droppedEvents = metricRegistry.counter(MetricRegistry.name(METRIC_PREFIX, "dropped"));
+        this.writtenEvents = metricRegistry.counter(MetricRegistry.name(METRIC_PREFIX, "written"));
+        this.flushTimer = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "flush"));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            log.info("Asynchronous audit event writing is disabled");
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "audit-event-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Write the remaining events before the application shuts down.
+     */
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        // the flusher notices this within one flush interval
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(config.getShutdownTimeoutSeconds()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // drain whatever the flusher did not get to
+        List<PersistentAuditEvent> batch = new ArrayList<>(config.getBatchSize());
+        while (queue.drainTo(batch, config.getBatchSize()) > 0) {
+            saveOrDrop(batch);
+            batch.clear();
+        }
+        log.info("Audit event writer stopped; {} events dropped in total",
+            droppedEvents.getCount());
+    }
+
+    /**
+     * Queue an audit event for writing. Depending on the configuration, the event is written
+     * synchronously instead.
+     * @param event the event to write
+     */
+    public void write(PersistentAuditEvent event) {
+        if (!running) {
+            saveNow(event);
+            return;
+        }
+        if (queue.offer(event)) {
+            return;
+        }
+        switch (config.getOverflowPolicy()) {
+            case CALLER_RUNS:
+                saveNow(event);
+                break;
+            case BLOCK:
+                try {
+                    if (!queue.offer(event, config.getOfferTimeoutMillis(),
+                            TimeUnit.MILLISECONDS)) {
+                        drop(event);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    drop(event);
+                }
+                break;
+            case DROP:
+            default:
+                drop(event);
+                break;
+        }
+    }
+
+    private void drop(PersistentAuditEvent event) {
+        droppedEvents.inc();
+        log.warn("Audit event queue is full, dropped {} event of {}", event.getAuditEventType(),
+            event.getPrincipal());
+    }
+
+    private void flushLoop() {
+        List<PersistentAuditEvent> batch = new ArrayList<>(config.getBatchSize());
+        boolean interrupted = false;
+        while (running && !interrupted) {
+            try {
+                PersistentAuditEvent first = queue.poll(config.getFlushIntervalMillis(),
+                    TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+            } catch (InterruptedException ex) {
+                log.warn("Audit event flusher interrupted; events are written synchronously "
+                    + "until shutdown");
+                interrupted = true;
+            }
+            // events taken from the queue are written even if the flusher was interrupted
+            saveOrDrop(batch);
+            batch.clear();
+        }
+        if (interrupted) {
+            // new events are written by the caller, queued events by stop()
+            running = false;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Add events to the batch until it is full or the flush interval has passed since the first
+     * event was taken from the queue.
+     */
+    private void fillBatch(List<PersistentAuditEvent> batch) throws InterruptedException {
+        int batchSize = Math.max(1, config.getBatchSize());
+        long deadline = System.nanoTime()
+            + TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMillis());
+        while (batch.size() < batchSize && running) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            PersistentAuditEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void saveNow(PersistentAuditEvent event) {
+        List<PersistentAuditEvent> batch = new ArrayList<>(1);
+        batch.add(event);
+        save(batch);
+    }
+
+    /**
+     * Save a batch that was taken from the queue. If that fails, the events are counted as
+     * dropped, since there is no caller left to report the failure to.
+     */
+    private void saveOrDrop(List<PersistentAuditEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            save(batch);
+        } catch (RuntimeException ex) {
+            droppedEvents.inc(batch.size());
+            log.error("Failed to write {} audit events, dropped them", batch.size(), ex);
+        }
+    }
+
+    private void save(List<PersistentAuditEvent> batch) {
+        try (Timer.Context ignored = flushTimer.time()) {
+            transactionTemplate.execute(status -> persistenceAuditEventRepository.save(batch));
+        }
+        writtenEvents.inc(batch.size());
+    }
+}
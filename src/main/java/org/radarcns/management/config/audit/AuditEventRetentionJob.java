@@ -0,0 +1,214 @@
+package org.radarcns.management.config.audit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.radarcns.management.config.ManagementPortalProperties;
+import org.radarcns.management.config.ManagementPortalProperties.Audit.Retention;
+import org.radarcns.management.domain.PersistentAuditEvent;
+import org.radarcns.management.repository.PersistenceAuditEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Removes audit events that are older than the configured retention period.
+ * <p>
+ * Events are removed in chunks of {@code chunkSize}, each in its own transaction, so that the
+ * job never holds many rows in memory or locks a large part of the audit table. If archiving
+ * is enabled, each chunk is first appended to a gzip compressed newline delimited JSON file in
+ * the archive directory, and flushed to disk before the chunk is deleted. An interrupted run
+ * may leave a chunk in the archive that is not deleted yet; it is archived again on the next
+ * run.
+ * </p>
+ * <p>
+ * The job runs on the {@code managementportal.audit.retention.cron} schedule when it is
+ * enabled. Progress is reported in the {@link MetricRegistry} under {@code audit.retention}.
+ * </p>
+ */
+@Component
+public class AuditEventRetentionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditEventRetentionJob.class);
+
+    private static final String METRIC_PREFIX = "audit.retention";
+
+    private final PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Retention config;
+
+    private final JsonFactory jsonFactory;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final AtomicLong lastRunDeleted = new AtomicLong(0L);
+
+    private final AtomicLong lastRunTimestamp = new AtomicLong(0L);
+
+    private final Counter deletedEvents;
+
+    private final Counter archivedEvents;
+
+    private final Timer chunkTimer;
+
+    public AuditEventRetentionJob(PersistenceAuditEventRepository persistenceAuditEventRepository,
+            PlatformTransactionManager transactionManager,
+            ManagementPortalProperties managementPortalProperties, ObjectMapper objectMapper,
+            MetricRegistry metricRegistry) {
+        this.persistenceAuditEventRepository = persistenceAuditEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = managementPortalProperties.getAudit().getRetention();
+        this.jsonFactory = objectMapper.getFactory();
+
+        this.deletedEvents = metricRegistry.counter(MetricRegistry.name(METRIC_PREFIX, "deleted"));
+        this.archivedEvents = metricRegistry.counter(
+            MetricRegistry.name(METRIC_PREFIX, "archived"));
+        this.chunkTimer = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "chunk"));
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "last-run-deleted"),
+            (Gauge<Long>) lastRunDeleted::get);
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "last-run-timestamp"),
+            (Gauge<Long>) lastRunTimestamp::get);
+    }
+
+    /**
+     * Remove the audit events that are older than the configured maximum age.
+     * <p>
+     * This is scheduled according to {@code managementportal.audit.retention.cron}, by default
+     * every day at 02:30 (am).
+     * </p>
+     */
+    @Scheduled(cron = "${managementportal.audit.retention.cron:0 30 2 * * ?}")
+    public void removeExpiredEvents() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        removeEventsBefore(LocalDateTime.now().minusDays(config.getMaxAgeDays()));
+    }
+
+    /**
+     * Remove all audit events before given date, archiving them first if configured.
+     * @param cutoff date before which events are removed
+     * @return the number of events removed, or -1 if another run is still in progress
+     */
+    public long removeEventsBefore(LocalDateTime cutoff) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Audit event retention is still running, skipping this run");
+            return -1L;
+        }
+        log.info("Removing audit events before {}", cutoff);
+        long total = 0L;
+        int chunkSize = Math.max(1, config.getChunkSize());
+        try (Archive archive = config.isArchiveEnabled() ? new Archive(cutoff) : null) {
+            int removed;
+            do {
+                try (Timer.Context ignored = chunkTimer.time()) {
+                    removed = transactionTemplate.execute(
+                        status -> removeChunk(cutoff, chunkSize, archive));
+                }
+                total += removed;
+                lastRunDeleted.set(total);
+                log.debug("Removed {} audit events so far", total);
+            } while (removed >= chunkSize);
+        } catch (IOException | UncheckedIOException ex) {
+            log.error("Failed to archive audit events, stopped after removing {} events", total,
+                ex);
+        } finally {
+            lastRunTimestamp.set(System.currentTimeMillis());
+            running.set(false);
+        }
+        log.info("Removed {} audit events before {}", total, cutoff);
+        return total;
+    }
+
+    private int removeChunk(LocalDateTime cutoff, int chunkSize, Archive archive) {
+        List<Long> ids = persistenceAuditEventRepository.findOldestIdsBefore(
+            cutoff, new PageRequest(0, chunkSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        if (archive != null) {
+            List<PersistentAuditEvent> events =
+                persistenceAuditEventRepository.findAllWithDataByIdIn(ids);
+            // the chunk is on disk before its deletion is committed
+            archive.write(events);
+            archivedEvents.inc(events.size());
+        }
+        persistenceAuditEventRepository.deleteDataByEventIdIn(ids);
+        persistenceAuditEventRepository.deleteByIdIn(ids);
+        deletedEvents.inc(ids.size());
+        return ids.size();
+    }
+
+    /** Compressed NDJSON file that is only created once the first event is written to it. */
+    private class Archive implements Closeable {
+        private final Path path;
+
+        private JsonGenerator generator;
+
+        Archive(LocalDateTime cutoff) {
+            this.path = Paths.get(config.getArchiveDirectory(), "audit-events-before-"
+                + cutoff.toLocalDate() + "-" + System.currentTimeMillis() + ".ndjson.gz");
+        }
+
+        void write(List<PersistentAuditEvent> events) {
+            try {
+                if (generator == null) {
+                    Files.createDirectories(path.getParent());
+                    // sync flush makes every flush a complete deflate block on disk
+                    OutputStream out = new GZIPOutputStream(Files.newOutputStream(path), true);
+                    generator = jsonFactory.createGenerator(out);
+                    generator.setRootValueSeparator(null);
+                    log.info("Archiving audit events to {}", path);
+                }
+                for (PersistentAuditEvent event : events) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", event.getId());
+                    generator.writeStringField("principal", event.getPrincipal());
+                    generator.writeStringField("timestamp", String.valueOf(event.getAuditEventDate()));
+                    generator.writeStringField("type", event.getAuditEventType());
+                    generator.writeObjectFieldStart("data");
+                    for (Map.Entry<String, String> entry : event.getData().entrySet()) {
+                        generator.writeStringField(entry.getKey(), entry.getValue());
+                    }
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (generator != null) {
+                generator.close();
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.Map;
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
+import org.radarcns.management.config.Constants;
 
 /**
  * Persist AuditEvent managed by the Spring Boot actuator
@@ -18,7 +19,8 @@ public class PersistentAuditEvent implements Serializable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000)
+    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000,
+            allocationSize = Constants.SEQUENCE_ALLOCATION_SIZE)
     @Column(name = "event_id")
     private Long id;
 
@@ -14,6 +14,7 @@ import javax.validation.constraints.NotNull;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Cascade;
+import org.radarcns.management.config.Constants;
 import org.radarcns.management.domain.enumeration.ProjectStatus;
 
 /**
@@ -28,7 +29,8 @@ public class Project extends AbstractAuditingEntity implements Serializable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000)
+    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000,
+            allocationSize = Constants.SEQUENCE_ALLOCATION_SIZE)
     private Long id;
 
     @NotNull
@@ -24,6 +24,7 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.radarcns.management.config.Constants;
 
 /**
  * A Role.
@@ -37,7 +38,8 @@ public class Role extends AbstractAuditingEntity implements Serializable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000)
+    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000,
+            allocationSize = Constants.SEQUENCE_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToMany(mappedBy = "roles")
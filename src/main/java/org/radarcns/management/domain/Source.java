@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import org.radarcns.management.config.Constants;
 
 /**
  * A Source.
@@ -40,7 +41,8 @@ public class Source extends AbstractAuditingEntity implements Serializable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000)
+    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000,
+            allocationSize = Constants.SEQUENCE_ALLOCATION_SIZE)
     private Long id;
 
     @NotNull
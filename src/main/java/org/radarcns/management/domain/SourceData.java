@@ -18,6 +18,7 @@ import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.NotFound;
 import org.hibernate.annotations.NotFoundAction;
+import org.radarcns.management.config.Constants;
 import org.radarcns.management.domain.enumeration.ProcessingState;
 
 /**
@@ -32,7 +33,8 @@ public class SourceData extends AbstractAuditingEntity implements Serializable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000)
+    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000,
+            allocationSize = Constants.SEQUENCE_ALLOCATION_SIZE)
     private Long id;
 
     //SourceData type e.g. ACCELEROMETER, TEMPERATURE.
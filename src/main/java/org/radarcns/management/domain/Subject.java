@@ -8,10 +8,14 @@ import java.util.Objects;
 import java.util.Set;
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Cascade;
 import org.hibernate.annotations.CascadeType;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.radarcns.management.config.Constants;
 
 /**
  * A Subject.
@@ -25,7 +29,8 @@ public class Subject extends AbstractAuditingEntity implements Serializable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000)
+    @SequenceGenerator(name = "sequenceGenerator", initialValue = 1000,
+            allocationSize = Constants.SEQUENCE_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "external_link")
@@ -48,6 +53,7 @@ public class Subject extends AbstractAuditingEntity implements Serializable {
     @JoinTable(name = "subject_sources",
                joinColumns = @JoinColumn(name="subjects_id", referencedColumnName="id"),
                inverseJoinColumns = @JoinColumn(name="sources_id", referencedColumnName="id"))
+    @BatchSize(size = 100)
     @Cascade(CascadeType.SAVE_UPDATE)
     private Set<Source> sources = new HashSet<>();
 
@@ -56,6 +62,7 @@ public class Subject extends AbstractAuditingEntity implements Serializable {
     @Column(name="attribute_value")
     @CollectionTable(name="subject_metadata" ,  joinColumns = @JoinColumn(name = "id"))
     @Cascade(CascadeType.ALL)
+    @Fetch(FetchMode.SUBSELECT)
     Map<String, String> attributes = new HashMap<>();
 
     public Long getId() {
@@ -3,87 +3,135 @@ package org.radarcns.management.filters;
 import static org.radarcns.management.filters.OAuth2TokenRequestPreZuulFilter.REFRESH_TOKEN_COOKIE;
 
 import io.github.jhipster.config.JHipsterConstants;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.Map;
 
 import javax.servlet.http.Cookie;
+import javax.ws.rs.HttpMethod;
 
-import org.apache.commons.io.IOUtils;
 import org.radarcns.management.config.ManagementPortalProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
 
 /**
- * A post-filter for all the request sent to Zuul proxy.
- * This investigates the response body and stores the Refresh token in a Cookie and remove it from response body.
+ * A post-filter for the token requests sent to Zuul proxy.
+ * This stores the Refresh token of a successful token response in a Cookie and removes it from
+ * the response body, and removes the Cookie again when the token is deleted. The response body
+ * is buffered and rewritten in a single pass; if it is not valid JSON, it is passed on
+ * unchanged. Responses of other routes are not touched.
  */
 @Component
 public class OAuth2TokenRequestPostZuulFilter extends ZuulFilter {
 
+    private static final String REFRESH_TOKEN_FIELD = "refresh_token";
+
     @Autowired
     private ManagementPortalProperties managementPortalProperties;
 
     @Autowired
     private  Environment env;
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = new JsonFactory();
 
     @Override
     public Object run() {
         final RequestContext ctx = RequestContext.getCurrentContext();
         logger.debug("in zuul filter " + ctx.getRequest().getRequestURI());
 
-        final String requestURI = ctx.getRequest().getRequestURI();
-        final String requestMethod = ctx.getRequest().getMethod();
-        Collection<String> activeProfiles = Arrays.asList(env.getActiveProfiles());
+        if (HttpMethod.DELETE.equals(ctx.getRequest().getMethod())) {
+            ctx.getResponse().addCookie(createRefreshTokenCookie(ctx, "", 0));
+            return null;
+        }
+        if (ctx.getResponseStatusCode() != HttpStatus.OK.value()
+                || ctx.getResponseGZipped() || ctx.getResponseDataStream() == null) {
+            return null;
+        }
 
+        final byte[] body;
         try (final InputStream is = ctx.getResponseDataStream()) {
-            String responseBody = IOUtils.toString(is, "UTF-8");
-            if (responseBody.contains("refresh_token")) {
-                final Map<String, Object> responseMap = mapper
-                    .readValue(responseBody, new TypeReference<Map<String, Object>>() {
-                    });
-                final String refreshToken = responseMap.get("refresh_token").toString();
-                responseMap.remove("refresh_token");
-                responseBody = mapper.writeValueAsString(responseMap);
-
-                final Cookie cookie = new Cookie(REFRESH_TOKEN_COOKIE, refreshToken);
-                cookie.setHttpOnly(true);
-                cookie.setSecure(activeProfiles.contains(JHipsterConstants.SPRING_PROFILE_PRODUCTION));
-                cookie.setPath(ctx.getRequest().getContextPath() + "/oauthserver/oauth/token");
-                cookie.setMaxAge(this.managementPortalProperties.getFrontend().getSessionTimeout()); // 30 minites
-                ctx.getResponse().addCookie(cookie);
+            body = StreamUtils.copyToByteArray(is);
+        } catch (final IOException e) {
+            logger.error("Error occured in zuul post filter", e);
+            return null;
+        }
 
+        ByteArrayOutputStream responseBody = new ByteArrayOutputStream(body.length);
+        try {
+            final String refreshToken = removeRefreshToken(body, responseBody);
+            if (refreshToken != null) {
+                ctx.getResponse().addCookie(createRefreshTokenCookie(ctx, refreshToken,
+                        this.managementPortalProperties.getFrontend().getSessionTimeout()));
             }
-            if (requestURI.contains("oauth/token") && requestMethod.equals("DELETE")) {
-                final Cookie cookie = new Cookie(REFRESH_TOKEN_COOKIE, "");
-                cookie.setMaxAge(0);
-                cookie.setSecure(activeProfiles.contains(JHipsterConstants.SPRING_PROFILE_PRODUCTION));
-                cookie.setPath(ctx.getRequest().getContextPath() + "/oauthserver/oauth/token");
-                ctx.getResponse().addCookie(cookie);
-            }
-            ctx.setResponseBody(responseBody);
-
+            ctx.setResponseDataStream(new ByteArrayInputStream(responseBody.toByteArray()));
         } catch (final IOException e) {
-            logger.error("Error occured in zuul post filter", e);
+            logger.error("Token response is not valid JSON, passing it on unchanged", e);
+            ctx.setResponseDataStream(new ByteArrayInputStream(body));
         }
         return null;
     }
 
+    /**
+     * Copy a JSON token response, without its top-level refresh token field.
+     * @param in token response
+     * @param out stream to write the token response without refresh token to
+     * @return the refresh token, or null if the response did not contain one
+     * @throws IOException if the response is not valid JSON
+     */
+    private String removeRefreshToken(byte[] in, ByteArrayOutputStream out)
+            throws IOException {
+        String refreshToken = null;
+        try (JsonParser parser = jsonFactory.createParser(in);
+                JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                generator.copyCurrentStructure(parser);
+                return null;
+            }
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                if (REFRESH_TOKEN_FIELD.equals(fieldName)) {
+                    refreshToken = parser.getValueAsString();
+                    parser.skipChildren();
+                } else {
+                    generator.writeFieldName(fieldName);
+                    generator.copyCurrentStructure(parser);
+                }
+            }
+            generator.writeEndObject();
+        }
+        return refreshToken;
+    }
+
+    private Cookie createRefreshTokenCookie(RequestContext ctx, String value, int maxAge) {
+        final Cookie cookie = new Cookie(REFRESH_TOKEN_COOKIE, value);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(Arrays.asList(env.getActiveProfiles())
+                .contains(JHipsterConstants.SPRING_PROFILE_PRODUCTION));
+        cookie.setPath(ctx.getRequest().getContextPath() + "/oauthserver/oauth/token");
+        cookie.setMaxAge(maxAge);
+        return cookie;
+    }
+
     @Override
     public boolean shouldFilter() {
-        return true;
+        return RequestContext.getCurrentContext().getRequest().getRequestURI()
+                .contains("/oauth/token");
     }
 
     @Override
@@ -1,11 +1,16 @@
 package org.radarcns.management.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 import java.util.List;
+import javax.persistence.QueryHint;
 import org.radarcns.management.domain.Authority;
 
 import org.radarcns.management.domain.Role;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 /**
@@ -13,6 +18,11 @@ import org.springframework.data.repository.query.Param;
  */
 public interface AuthorityRepository extends JpaRepository<Authority, String> {
 
+    /** Hibernate query cache region of cacheable authority queries. */
+    String QUERY_CACHE_REGION = "org.radarcns.management.domain.Authority.queries";
+
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
     @Query("select authority from Authority authority where authority.name = :authorityName")
     Authority findByAuthorityName(@Param("authorityName") String authorityName);
 
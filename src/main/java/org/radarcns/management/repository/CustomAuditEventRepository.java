@@ -1,14 +1,13 @@
 package org.radarcns.management.repository;
 
 import org.radarcns.management.config.Constants;
+import org.radarcns.management.config.audit.AsyncAuditEventWriter;
 import org.radarcns.management.config.audit.AuditEventConverter;
 import org.radarcns.management.domain.PersistentAuditEvent;
 
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -28,11 +27,14 @@ public class CustomAuditEventRepository implements AuditEventRepository {
 
     private final AuditEventConverter auditEventConverter;
 
+    private final AsyncAuditEventWriter auditEventWriter;
+
     public CustomAuditEventRepository(PersistenceAuditEventRepository persistenceAuditEventRepository,
-            AuditEventConverter auditEventConverter) {
+            AuditEventConverter auditEventConverter, AsyncAuditEventWriter auditEventWriter) {
 
         this.persistenceAuditEventRepository = persistenceAuditEventRepository;
         this.auditEventConverter = auditEventConverter;
+        this.auditEventWriter = auditEventWriter;
     }
 
     @Override
@@ -63,8 +65,13 @@ public class CustomAuditEventRepository implements AuditEventRepository {
         return auditEventConverter.convertToAuditEvent(persistentAuditEvents);
     }
 
+    /**
+     * Store an audit event. The event is handed to the {@link AsyncAuditEventWriter}, which
+     * writes it in its own transaction, usually in a batch with other events.
+     *
+     * @param event the event to store
+     */
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void add(AuditEvent event) {
         if (!AUTHORIZATION_FAILURE.equals(event.getType()) &&
             !Constants.ANONYMOUS_USER.equals(event.getPrincipal())) {
@@ -75,7 +82,7 @@ public class CustomAuditEventRepository implements AuditEventRepository {
             Instant instant = Instant.ofEpochMilli(event.getTimestamp().getTime());
             persistentAuditEvent.setAuditEventDate(LocalDateTime.ofInstant(instant, ZoneId.systemDefault()));
             persistentAuditEvent.setData(auditEventConverter.convertDataToStrings(event.getData()));
-            persistenceAuditEventRepository.save(persistentAuditEvent);
+            auditEventWriter.write(persistentAuditEvent);
         }
     }
 }
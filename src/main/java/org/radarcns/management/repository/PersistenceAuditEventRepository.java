@@ -4,10 +4,18 @@ import org.radarcns.management.domain.PersistentAuditEvent;
 
 import java.time.LocalDateTime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * Spring Data JPA repository for the PersistentAuditEvent entity.
@@ -23,4 +31,63 @@ public interface PersistenceAuditEventRepository extends JpaRepository<Persisten
     List<PersistentAuditEvent> findByPrincipalAndAuditEventDateAfterAndAuditEventType(String principle, LocalDateTime after, String type);
 
     Page<PersistentAuditEvent> findAllByAuditEventDateBetween(LocalDateTime fromDate, LocalDateTime toDate, Pageable pageable);
+
+    /**
+     * IDs of the first page of events in (event_date, event_id) order, for keyset pagination.
+     */
+    @Query("select e.id from PersistentAuditEvent e where e.auditEventDate is not null "
+        + "order by e.auditEventDate asc, e.id asc")
+    List<Long> findFirstPageIdsOrderByDateAndId(Pageable pageable);
+
+    /**
+     * IDs of the page of events following the event with given date and id, in
+     * (event_date, event_id) order. Only the page size of the pageable is used; no count query is
+     * performed.
+     */
+    @Query("select e.id from PersistentAuditEvent e where e.auditEventDate > :date "
+        + "or (e.auditEventDate = :date and e.id > :id) "
+        + "order by e.auditEventDate asc, e.id asc")
+    List<Long> findPageIdsAfterOrderByDateAndId(@Param("date") LocalDateTime date,
+        @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Stream the IDs of all events between the given dates in (event_date, event_id) order. The
+     * returned stream must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select e.id from PersistentAuditEvent e "
+        + "where e.auditEventDate between :fromDate and :toDate "
+        + "order by e.auditEventDate asc, e.id asc")
+    Stream<Long> streamIdsByAuditEventDateBetween(
+        @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
+
+    /**
+     * IDs of the oldest events before given date, in (event_date, event_id) order.
+     */
+    @Query("select e.id from PersistentAuditEvent e where e.auditEventDate < :date "
+        + "order by e.auditEventDate asc, e.id asc")
+    List<Long> findOldestIdsBefore(@Param("date") LocalDateTime date, Pageable pageable);
+
+    /**
+     * Events with given ids, with their data, in (event_date, event_id) order. The data is
+     * fetched in the same query, so that it can be read without a query per event.
+     */
+    @Query("select distinct e from PersistentAuditEvent e left join fetch e.data "
+        + "where e.id in (:ids) order by e.auditEventDate asc, e.id asc")
+    List<PersistentAuditEvent> findAllWithDataByIdIn(@Param("ids") List<Long> ids);
+
+    /**
+     * Delete the data of the events with given ids. This must be done before deleting the events
+     * themselves with {@link #deleteByIdIn(List)}.
+     */
+    @Modifying
+    @Query(value = "delete from jhi_persistent_audit_evt_data where event_id in (:ids)", nativeQuery = true)
+    int deleteDataByEventIdIn(@Param("ids") List<Long> ids);
+
+    /**
+     * Delete the events with given ids, without loading them.
+     */
+    @Modifying
+    @Query("delete from PersistentAuditEvent e where e.id in (:ids)")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
 }
@@ -1,10 +1,15 @@
 package org.radarcns.management.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 import java.util.Optional;
+import javax.persistence.QueryHint;
 import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.domain.Project;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
@@ -15,12 +20,17 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface ProjectRepository extends JpaRepository<Project,Long> {
 
+    /** Hibernate query cache region of cacheable project queries. */
+    String QUERY_CACHE_REGION = "org.radarcns.management.domain.Project.queries";
+
     @Query("select distinct project from Project project left join fetch project.sourceTypes")
     List<Project> findAllWithEagerRelationships();
 
     @Query("select project from Project project left join fetch project.sourceTypes where project.id =:id")
     Project findOneWithEagerRelationships(@Param("id") Long id);
 
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
     @Query("select project from Project project left join fetch project.sourceTypes where project.projectName =:name")
     Project findOneWithEagerRelationshipsByName(@Param("name") String name);
 
@@ -32,4 +42,8 @@ public interface ProjectRepository extends JpaRepository<Project,Long> {
         + "and sourceType.id = :sourceTypeId ")
     Optional<SourceType> findSourceTypeByProjectIdAndSourceTypeId(@Param("id") Long id,
         @Param("sourceTypeId") Long sourceTypeId);
+
+    @Query("select project.id, sourceType.id from Project project "
+        + "join project.sourceTypes sourceType")
+    List<Object[]> findAllProjectSourceTypeIds();
 }
@@ -1,11 +1,16 @@
 package org.radarcns.management.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
 import org.radarcns.management.domain.Role;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 /**
@@ -14,6 +19,9 @@ import org.springframework.data.repository.query.Param;
 @SuppressWarnings("unused")
 public interface RoleRepository extends JpaRepository<Role, Long> {
 
+    /** Hibernate query cache region of cacheable role queries. */
+    String QUERY_CACHE_REGION = "org.radarcns.management.domain.Role.queries";
+
     @Query("select role from Role role inner join role.authority authority where authority.name = :authorityName")
     List<Role> findRolesByAuthorityName(@Param("authorityName") String authorityName);
 
@@ -23,6 +31,8 @@ public interface RoleRepository extends JpaRepository<Role, Long> {
     @Query("select role from Role role left join fetch role.authority where role.id =:id")
     Role findOneWithEagerRelationships(@Param("id") Long id);
 
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
     Role findOneByProjectIdAndAuthorityName(@Param("projectId") Long projectId, @Param("authorityName") String authorityName);
 
     @Query("select role from Role role join role.authority join role.project " +
@@ -2,11 +2,19 @@ package org.radarcns.management.repository;
 
 import org.radarcns.management.domain.Source;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * Spring Data JPA repository for the Source entity.
@@ -20,7 +28,40 @@ public interface SourceRepository extends JpaRepository<Source,Long> {
 
     List<Source> findAllSourcesByProjectIdAndAssigned(@Param("projectId") Long projectId , @Param("assigned") Boolean assigned);
 
+    /**
+     * Stream all sources in id order, with their attributes. The returned stream is backed by a
+     * database cursor; it must be consumed and closed within a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select source from Source source left join fetch source.attributes "
+        + "order by source.id")
+    Stream<Source> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select source from Source source left join fetch source.attributes "
+        + "where source.project.id = :projectId order by source.id")
+    Stream<Source> streamAllByProjectId(@Param("projectId") Long projectId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select source from Source source left join fetch source.attributes "
+        + "where source.project.id = :projectId and source.assigned = :assigned "
+        + "order by source.id")
+    Stream<Source> streamAllByProjectIdAndAssigned(@Param("projectId") Long projectId,
+        @Param("assigned") Boolean assigned);
+
     Optional<Source> findOneBySourceId(UUID sourceId);
 
+    List<Source> findAllBySourceIdIn(Collection<UUID> sourceIds);
+
+    /**
+     * Set the assigned flag of the sources with given ids, without loading them. Hibernate evicts
+     * the source entity cache region after a bulk update; the persistence context is cleared, so
+     * entities loaded before the update must be loaded again.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Source source set source.assigned = :assigned where source.id in (:ids)")
+    int updateAssignedByIdIn(@Param("assigned") boolean assigned,
+        @Param("ids") Collection<Long> ids);
+
     Optional<Source> findOneBySourceName(String sourceName);
 }
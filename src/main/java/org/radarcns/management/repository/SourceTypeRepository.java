@@ -5,9 +5,14 @@ import org.radarcns.management.domain.SourceType;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * Spring Data JPA repository for the SourceType entity.
@@ -18,6 +23,15 @@ public interface SourceTypeRepository extends JpaRepository<SourceType,Long> {
     @Query("select distinct sourceType from SourceType sourceType left join fetch sourceType.sourceData")
     List<SourceType> findAllWithEagerRelationships();
 
+    /**
+     * Stream all source types in id order, with their source data. The returned stream is backed
+     * by a database cursor; it must be consumed and closed within a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select sourceType from SourceType sourceType left join fetch sourceType.sourceData "
+        + "order by sourceType.id")
+    Stream<SourceType> streamAllWithEagerRelationships();
+
     @Query("select sourceType from SourceType sourceType left join fetch sourceType.sourceData where sourceType.id =:id")
     SourceType findOneWithEagerRelationships(@Param("id") Long id);
 
@@ -4,12 +4,21 @@ import java.util.Optional;
 import java.util.UUID;
 import org.radarcns.management.domain.Source;
 import org.radarcns.management.domain.Subject;
+import org.radarcns.management.service.dto.MinimalSubjectDTO;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  * Spring Data JPA repository for the Subject entity.
@@ -17,7 +26,12 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface SubjectRepository extends JpaRepository<Subject, Long> {
 
-    @Query("select distinct subject from Subject subject left join fetch subject.sources")
+    /**
+     * Find all subjects, with their sources, user and user roles, so that the list can be mapped
+     * without a query per subject. Subjects have few sources and roles, so joining both is cheap.
+     */
+    @Query("select distinct subject from Subject subject left join fetch subject.sources "
+        + "left join fetch subject.user user left join fetch user.roles")
     List<Subject> findAllWithEagerRelationships();
 
     @Query("select distinct subject from Subject subject left join fetch subject.sources "
@@ -25,6 +39,58 @@ public interface SubjectRepository extends JpaRepository<Subject, Long> {
         + "join user.roles roles where roles.project.projectName = :projectName")
     List<Subject> findAllByProjectName(@Param("projectName") String projectName);
 
+    /**
+     * Stream the ids of all subjects in id order. The returned stream is backed by a database
+     * cursor; it must be consumed and closed within a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select subject.id from Subject subject order by subject.id")
+    Stream<Long> streamAllIds();
+
+    /**
+     * Stream the ids of the subjects in a project in id order. The returned stream is backed by
+     * a database cursor; it must be consumed and closed within a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select subject.id from Subject subject where exists (select role from Role role "
+        + "join role.users member where member = subject.user "
+        + "and role.project.projectName = :projectName) order by subject.id")
+    Stream<Long> streamIdsByProjectName(@Param("projectName") String projectName);
+
+    /**
+     * Find subjects by id in id order, with their user and user roles. Sources and attributes
+     * are not joined, so that rows are not multiplied; they are loaded for all found subjects at
+     * once when they are first accessed.
+     */
+    @Query("select distinct subject from Subject subject left join fetch subject.user user "
+        + "left join fetch user.roles where subject.id in (:ids) order by subject.id")
+    List<Subject> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "select new org.radarcns.management.service.dto.MinimalSubjectDTO("
+        + "subject.id, user.login, subject.externalLink, subject.externalId, user.activated, "
+        + "subject.removed, project.id, project.projectName) "
+        + "from Subject subject join subject.user user join user.roles role "
+        + "join role.project project join role.authority authority "
+        + "where authority.name = :authority",
+        countQuery = "select count(subject) from Subject subject join subject.user user "
+        + "join user.roles role join role.authority authority "
+        + "where authority.name = :authority")
+    Page<MinimalSubjectDTO> findAllMinimalByAuthority(@Param("authority") String authority,
+        Pageable pageable);
+
+    @Query(value = "select new org.radarcns.management.service.dto.MinimalSubjectDTO("
+        + "subject.id, user.login, subject.externalLink, subject.externalId, user.activated, "
+        + "subject.removed, project.id, project.projectName) "
+        + "from Subject subject join subject.user user join user.roles role "
+        + "join role.project project join role.authority authority "
+        + "where authority.name = :authority and project.projectName = :projectName",
+        countQuery = "select count(subject) from Subject subject join subject.user user "
+        + "join user.roles role join role.project project join role.authority authority "
+        + "where authority.name = :authority and project.projectName = :projectName")
+    Page<MinimalSubjectDTO> findAllMinimalByProjectNameAndAuthority(
+        @Param("projectName") String projectName, @Param("authority") String authority,
+        Pageable pageable);
+
     @Query("select subject from Subject subject left join fetch subject.sources "
         + "where subject.id =:id")
     Subject findOneWithEagerRelationships(@Param("id") Long id);
@@ -42,6 +108,10 @@ public interface SubjectRepository extends JpaRepository<Subject, Long> {
     @Query("select subject.sources from Subject subject WHERE subject.user.login = :login")
     List<Source> findSourcesBySubjectLogin(@Param("login") String login);
 
+    @Query("select source.sourceId from Subject subject join subject.sources source "
+        + "WHERE subject.user.login = :login")
+    List<UUID> findSourceIdsBySubjectLogin(@Param("login") String login);
+
     @Query("select distinct subject from Subject subject left join fetch subject.sources "
         + "left join fetch subject.user user "
         + "join user.roles roles where roles.project.projectName = :projectName "
@@ -49,6 +119,11 @@ public interface SubjectRepository extends JpaRepository<Subject, Long> {
     Optional<Subject> findOneByProjectNameAndExternalId(@Param("projectName") String projectName,
         @Param("externalId") String externalId);
 
+    @Query("select distinct subject.externalId from Subject subject "
+        + "join subject.user user join user.roles roles "
+        + "where roles.project.projectName = :projectName and subject.externalId is not null")
+    List<String> findExternalIdsByProjectName(@Param("projectName") String projectName);
+
     @Query("select subject.sources from Subject subject WHERE subject.externalId = :externalId")
     List<Subject> findAllByExternalId(@Param("externalId") String externalId);
 
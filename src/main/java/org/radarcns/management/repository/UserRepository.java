@@ -10,6 +10,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.Query;
@@ -54,4 +55,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("select user from User user join user.roles roles "
         + " where roles.project.projectName = :projectName ")
     Page<User> findAllByProjectName(Pageable pageable, String projectName);
+
+    @Query("select concat(project.projectName, ':', authority.name) from User user "
+        + "join user.roles role join role.project project join role.authority authority "
+        + "where user.login = :login")
+    List<String> findRoleNamesByLogin(@Param("login") String login);
+
+    @Query("select user.login from User user where user.login in (:logins)")
+    List<String> findLoginsIn(@Param("logins") Collection<String> logins);
 }
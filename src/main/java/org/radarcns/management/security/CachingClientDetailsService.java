@@ -0,0 +1,60 @@
+package org.radarcns.management.security;
+
+import org.radarcns.management.service.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientDetailsService;
+import org.springframework.security.oauth2.provider.ClientRegistrationException;
+
+/**
+ * Caches the OAuth clients that are read by the authorization server.
+ * <p>
+ * Every token request authenticates its client, which would otherwise read the client from the
+ * database each time. Found clients are cached in the {@value #CACHE_NAME} cache, which is
+ * shared by all members of the cluster; unknown clients are not cached. Code that changes or
+ * removes a client must call {@link #evict(String)}.
+ * </p>
+ */
+public class CachingClientDetailsService implements ClientDetailsService {
+
+    public static final String CACHE_NAME = "oauthClientDetails";
+
+    private final Logger log = LoggerFactory.getLogger(CachingClientDetailsService.class);
+
+    private final ClientDetailsService delegate;
+
+    private final Cache cache;
+
+    public CachingClientDetailsService(ClientDetailsService delegate, CacheManager cacheManager) {
+        this.delegate = delegate;
+        this.cache = cacheManager.getCache(CACHE_NAME);
+    }
+
+    @Override
+    public ClientDetails loadClientByClientId(String clientId)
+            throws ClientRegistrationException {
+        ClientDetails details = cache.get(clientId, ClientDetails.class);
+        if (details == null) {
+            details = delegate.loadClientByClientId(clientId);
+            cache.put(clientId, details);
+        }
+        return details;
+    }
+
+    /**
+     * Remove a cached client, after the current transaction commits.
+     * @param clientId OAuth client ID
+     */
+    public void evict(String clientId) {
+        if (clientId == null) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            log.debug("Evicting OAuth client {}", clientId);
+            cache.evict(clientId);
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package org.radarcns.management.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Password encoder that remembers which raw secrets were recently verified against which hashes,
+ * so that repeated authentications of the same OAuth client skip the deliberately slow hash check.
+ * <p>
+ * Only successful checks are remembered, for {@code timeToLiveSeconds}, in memory of this
+ * instance only. Entries are keyed by an HMAC of the raw secret and its hash, with a key that is
+ * generated at startup and never leaves this object, so the raw secrets themselves are not kept.
+ * A changed or removed secret has a different hash, so it never matches an old entry.
+ * </p>
+ */
+public class CachingPasswordEncoder implements PasswordEncoder {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final PasswordEncoder delegate;
+
+    private final long timeToLiveMillis;
+
+    private final int maxEntries;
+
+    private final SecretKeySpec key;
+
+    private final Map<String, Long> verified = new ConcurrentHashMap<>();
+
+    /**
+     * Password encoder that caches successful matches of given delegate.
+     * @param delegate encoder that hashes and checks the secrets
+     * @param timeToLiveSeconds how long a successful check is remembered
+     * @param maxEntries maximum number of remembered checks
+     */
+    public CachingPasswordEncoder(PasswordEncoder delegate, int timeToLiveSeconds,
+            int maxEntries) {
+        this.delegate = delegate;
+        this.timeToLiveMillis = timeToLiveSeconds * 1000L;
+        this.maxEntries = maxEntries;
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.key = new SecretKeySpec(keyBytes, MAC_ALGORITHM);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null || timeToLiveMillis <= 0) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+        String digest = digest(rawPassword, encodedPassword);
+        long now = System.currentTimeMillis();
+        Long expiry = verified.get(digest);
+        if (expiry != null) {
+            if (expiry > now) {
+                return true;
+            }
+            verified.remove(digest, expiry);
+        }
+        if (!delegate.matches(rawPassword, encodedPassword)) {
+            return false;
+        }
+        if (verified.size() >= maxEntries) {
+            verified.values().removeIf(e -> e <= now);
+            if (verified.size() >= maxEntries) {
+                verified.clear();
+            }
+        }
+        verified.put(digest, now + timeToLiveMillis);
+        return true;
+    }
+
+    /** Forget all verified secrets. */
+    public void clear() {
+        verified.clear();
+    }
+
+    private String digest(CharSequence rawPassword, String encodedPassword) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(mac.doFinal());
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Cannot compute " + MAC_ALGORITHM, ex);
+        }
+    }
+}
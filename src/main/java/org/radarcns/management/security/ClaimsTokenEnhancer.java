@@ -1,9 +1,6 @@
 package org.radarcns.management.security;
 
-import org.radarcns.management.domain.Source;
-import org.radarcns.management.domain.User;
-import org.radarcns.management.repository.SubjectRepository;
-import org.radarcns.management.repository.UserRepository;
+import org.radarcns.management.security.TokenClaimsProvider.TokenClaims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -20,19 +17,12 @@ import org.springframework.security.oauth2.provider.token.TokenEnhancer;
 
 import java.time.Instant;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class ClaimsTokenEnhancer implements TokenEnhancer, InitializingBean {
 
     @Autowired
-    private SubjectRepository subjectRepository;
-
-    @Autowired
-    private UserRepository userRepository;
+    private TokenClaimsProvider tokenClaimsProvider;
 
     @Autowired
     private AuditEventRepository auditEventRepository;
@@ -56,23 +46,9 @@ public class ClaimsTokenEnhancer implements TokenEnhancer, InitializingBean {
             // add the 'sub' claim in accordance with JWT spec
             additionalInfo.put("sub", userName);
 
-            Optional<User> optUser = userRepository.findOneByLogin(userName);
-            if (optUser.isPresent()) {
-                List<String> roles = optUser.get().getRoles().stream()
-                        .filter(role -> Objects.nonNull(role.getProject()))
-                        .map(role -> role.getProject().getProjectName() + ":"
-                                + role.getAuthority().getName())
-                        .collect(Collectors.toList());
-                additionalInfo.put("roles", roles);
-
-            }
-
-            List<Source> assignedSources = subjectRepository.findSourcesBySubjectLogin(userName);
-
-            List<String> sourceIds = assignedSources.stream()
-                    .map(s -> s.getSourceId().toString())
-                    .collect(Collectors.toList());
-            additionalInfo.put("sources", sourceIds);
+            TokenClaims claims = tokenClaimsProvider.getClaims(userName);
+            additionalInfo.put("roles", claims.getRoles());
+            additionalInfo.put("sources", claims.getSources());
         }
         // add iat and iss optional JWT claims
         additionalInfo.put("iat", Instant.now().getEpochSecond());
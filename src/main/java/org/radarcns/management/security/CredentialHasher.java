@@ -0,0 +1,117 @@
+package org.radarcns.management.security;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.radarcns.management.config.ManagementPortalProperties;
+import org.radarcns.management.config.ManagementPortalProperties.CredentialHashing;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes the passwords that users set, on a dedicated thread pool of bounded size with a bounded
+ * queue. The calling request thread waits for the hash, but at most {@code threads} passwords are
+ * hashed at the same time, so a burst of password changes can not take all processors. When the
+ * queue is full, the password change is rejected with {@code 503 Service Unavailable}.
+ */
+@Component
+public class CredentialHasher {
+
+    private static final String METRIC_PREFIX = "credential-hashing";
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer hashTimer;
+
+    private final Counter rejected;
+
+    public CredentialHasher(PasswordEncoder passwordEncoder,
+            ManagementPortalProperties managementPortalProperties,
+            MetricRegistry metricRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        CredentialHashing config = managementPortalProperties.getCredentialHashing();
+        int threads = config.getThreads() > 0 ? config.getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "hash"));
+        this.rejected = metricRegistry.counter(MetricRegistry.name(METRIC_PREFIX, "rejected"));
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "queued"),
+                (Gauge<Integer>) () -> executor.getQueue().size());
+    }
+
+    /**
+     * Hash a password that a user set.
+     * @param rawPassword password as entered by the user
+     * @return encoded password
+     * @throws HashingUnavailableException if too many passwords are waiting to be hashed
+     */
+    public String hash(CharSequence rawPassword) {
+        Future<String> result;
+        try {
+            result = executor.submit(() -> {
+                try (Timer.Context ignored = hashTimer.time()) {
+                    return passwordEncoder.encode(rawPassword);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.inc();
+            throw new HashingUnavailableException("Too many passwords are being changed", ex);
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Failed to hash password", ex.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Thrown when a password can not be hashed because the hashing queue is full. */
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE,
+            reason = "Too many passwords are being changed, try again later")
+    public static class HashingUnavailableException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public HashingUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private static class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "credential-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
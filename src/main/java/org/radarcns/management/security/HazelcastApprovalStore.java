@@ -0,0 +1,193 @@
+package org.radarcns.management.security;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+import org.springframework.security.oauth2.provider.approval.Approval;
+import org.springframework.security.oauth2.provider.approval.Approval.ApprovalStatus;
+import org.springframework.security.oauth2.provider.approval.ApprovalStore;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the scopes that users approved for OAuth clients in the {@value #MAP_NAME} Hazelcast map
+ * instead of in the database. All approvals of a user for a client are kept in a single entry,
+ * which is changed by entry processors on the member that owns it, so concurrent changes from
+ * different members are not lost. Entries expire with the time to live of the map; like the
+ * database store, the expiry date of each approval is checked by the approval handler.
+ */
+public class HazelcastApprovalStore implements ApprovalStore {
+
+    public static final String MAP_NAME = "oauthApprovals";
+
+    private final IMap<String, HashMap<String, StoredApproval>> approvals;
+
+    private boolean handleRevocationsAsExpiry = false;
+
+    public HazelcastApprovalStore(HazelcastInstance hazelcastInstance) {
+        this.approvals = hazelcastInstance.getMap(MAP_NAME);
+    }
+
+    /**
+     * Whether revoked approvals are kept with an expiry date of now, instead of removed.
+     * @param handleRevocationsAsExpiry keep revoked approvals as expired approvals
+     */
+    public void setHandleRevocationsAsExpiry(boolean handleRevocationsAsExpiry) {
+        this.handleRevocationsAsExpiry = handleRevocationsAsExpiry;
+    }
+
+    @Override
+    public boolean addApprovals(Collection<Approval> approvals) {
+        groupByKey(approvals).forEach((key, group) -> this.approvals.executeOnKey(key,
+                new AddProcessor(group.stream()
+                        .map(StoredApproval::new)
+                        .collect(Collectors.toList()))));
+        return true;
+    }
+
+    @Override
+    public boolean revokeApprovals(Collection<Approval> approvals) {
+        long expiresAt = handleRevocationsAsExpiry ? System.currentTimeMillis() : -1L;
+        boolean success = true;
+        for (Map.Entry<String, List<Approval>> group : groupByKey(approvals).entrySet()) {
+            List<String> scopes = group.getValue().stream()
+                    .map(Approval::getScope)
+                    .collect(Collectors.toList());
+            success &= (Boolean) this.approvals.executeOnKey(group.getKey(),
+                    new RevokeProcessor(scopes, expiresAt));
+        }
+        return success;
+    }
+
+    @Override
+    public Collection<Approval> getApprovals(String userId, String clientId) {
+        Map<String, StoredApproval> stored = approvals.get(key(userId, clientId));
+        if (stored == null) {
+            return Collections.emptyList();
+        }
+        return stored.values().stream()
+                .map(approval -> approval.toApproval(userId, clientId))
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, List<Approval>> groupByKey(Collection<Approval> approvals) {
+        return approvals.stream().collect(Collectors.groupingBy(
+                approval -> key(approval.getUserId(), approval.getClientId()),
+                LinkedHashMap::new, Collectors.toList()));
+    }
+
+    /** Logins can not contain a colon, so the key is unique. */
+    private static String key(String userId, String clientId) {
+        return userId + ':' + clientId;
+    }
+
+    /** Approval of a single scope, without the user and client that are part of the key. */
+    static final class StoredApproval implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String scope;
+
+        private final ApprovalStatus status;
+
+        private final long expiresAt;
+
+        private final long lastUpdatedAt;
+
+        StoredApproval(Approval approval) {
+            this(approval.getScope(),
+                    approval.getStatus() != null ? approval.getStatus() : ApprovalStatus.APPROVED,
+                    approval.getExpiresAt() != null ? approval.getExpiresAt().getTime()
+                            : Long.MAX_VALUE,
+                    approval.getLastUpdatedAt() != null ? approval.getLastUpdatedAt().getTime()
+                            : System.currentTimeMillis());
+        }
+
+        private StoredApproval(String scope, ApprovalStatus status, long expiresAt,
+                long lastUpdatedAt) {
+            this.scope = scope;
+            this.status = status;
+            this.expiresAt = expiresAt;
+            this.lastUpdatedAt = lastUpdatedAt;
+        }
+
+        StoredApproval expire(long now) {
+            return new StoredApproval(scope, status, now, now);
+        }
+
+        Approval toApproval(String userId, String clientId) {
+            return new Approval(userId, clientId, scope, new Date(expiresAt), status,
+                    new Date(lastUpdatedAt));
+        }
+    }
+
+    /** Adds or replaces approvals of a user for a client. */
+    static final class AddProcessor
+            extends AbstractEntryProcessor<String, HashMap<String, StoredApproval>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<StoredApproval> added;
+
+        AddProcessor(List<StoredApproval> added) {
+            this.added = new ArrayList<>(added);
+        }
+
+        @Override
+        public Object process(Map.Entry<String, HashMap<String, StoredApproval>> entry) {
+            HashMap<String, StoredApproval> value = entry.getValue() != null
+                    ? new HashMap<>(entry.getValue()) : new HashMap<>();
+            added.forEach(approval -> value.put(approval.scope, approval));
+            entry.setValue(value);
+            return null;
+        }
+    }
+
+    /**
+     * Removes or expires approvals of a user for a client. Returns whether all approvals
+     * existed.
+     */
+    static final class RevokeProcessor
+            extends AbstractEntryProcessor<String, HashMap<String, StoredApproval>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> scopes;
+
+        /** Expiry time of revoked approvals, or -1 to remove them. */
+        private final long expiresAt;
+
+        RevokeProcessor(List<String> scopes, long expiresAt) {
+            this.scopes = new ArrayList<>(scopes);
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public Object process(Map.Entry<String, HashMap<String, StoredApproval>> entry) {
+            if (entry.getValue() == null) {
+                return Boolean.FALSE;
+            }
+            HashMap<String, StoredApproval> value = new HashMap<>(entry.getValue());
+            boolean success = true;
+            for (String scope : scopes) {
+                StoredApproval approval = value.remove(scope);
+                if (approval == null) {
+                    success = false;
+                } else if (expiresAt >= 0) {
+                    value.put(scope, approval.expire(expiresAt));
+                }
+            }
+            entry.setValue(value.isEmpty() ? null : value);
+            return success;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.radarcns.management.security;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.code.RandomValueAuthorizationCodeServices;
+
+/**
+ * Keeps issued authorization codes in the {@value #MAP_NAME} Hazelcast map instead of in the
+ * database. A code can be redeemed on any member of the cluster, exactly once, because it is
+ * removed atomically when it is consumed. Codes that are never redeemed expire with the time to
+ * live of the map.
+ */
+public class HazelcastAuthorizationCodeServices extends RandomValueAuthorizationCodeServices {
+
+    public static final String MAP_NAME = "oauthAuthorizationCodes";
+
+    private final IMap<String, OAuth2Authentication> codes;
+
+    public HazelcastAuthorizationCodeServices(HazelcastInstance hazelcastInstance) {
+        this.codes = hazelcastInstance.getMap(MAP_NAME);
+    }
+
+    @Override
+    protected void store(String code, OAuth2Authentication authentication) {
+        codes.set(code, authentication);
+    }
+
+    @Override
+    protected OAuth2Authentication remove(String code) {
+        return codes.remove(code);
+    }
+}
@@ -1,6 +1,7 @@
 package org.radarcns.management.security;
 
 import org.radarcns.auth.authentication.TokenValidator;
+import org.radarcns.auth.authentication.VerifiedTokenCache;
 import org.radarcns.auth.exception.TokenValidationException;
 import org.radarcns.management.config.LocalKeystoreConfig;
 import org.slf4j.Logger;
@@ -24,7 +25,9 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends GenericFilterBean {
 
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
-    private static TokenValidator validator = new TokenValidator(new LocalKeystoreConfig());
+    private static final VerifiedTokenCache tokenCache = new VerifiedTokenCache();
+    private static TokenValidator validator = new TokenValidator(new LocalKeystoreConfig(),
+            TokenValidator.FETCH_TIMEOUT_DEFAULT, tokenCache);
     public static final String TOKEN_ATTRIBUTE = "jwt";
 
     @Override
@@ -45,6 +48,14 @@ public class JwtAuthenticationFilter extends GenericFilterBean {
         }
     }
 
+    /**
+     * Cache of tokens that were already verified by this filter.
+     * @return the token cache
+     */
+    public static VerifiedTokenCache getTokenCache() {
+        return tokenCache;
+    }
+
     private String getToken(ServletRequest request, ServletResponse response) {
         HttpServletRequest req = (HttpServletRequest) request;
         HttpServletResponse res = (HttpServletResponse) response;
@@ -1,6 +1,7 @@
 package org.radarcns.management.security;
 
 import com.auth0.jwt.interfaces.DecodedJWT;
+import org.radarcns.auth.authorization.AuthorizationContext;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
@@ -14,6 +15,8 @@ import javax.servlet.ServletRequest;
  */
 public final class SecurityUtils {
 
+    public static final String AUTHORIZATION_CONTEXT_ATTRIBUTE = "authorizationContext";
+
     private SecurityUtils() {
     }
 
@@ -69,5 +72,22 @@ public final class SecurityUtils {
         return (DecodedJWT) jwt;
     }
 
+    /**
+     * Get the authorization context of the JWT in given request. The context is created on first
+     * use and stored in the request, so the token claims are only parsed once per request.
+     * @param request servlet request
+     * @return authorization context of the decoded JWT
+     * @throws AccessDeniedException if the {@code "jwt"} attribute is missing or does not contain a
+     *                               decoded JWT
+     */
+    public static AuthorizationContext getAuthorizationContext(ServletRequest request) {
+        Object context = request.getAttribute(AUTHORIZATION_CONTEXT_ATTRIBUTE);
+        if (context instanceof AuthorizationContext) {
+            return (AuthorizationContext) context;
+        }
+        AuthorizationContext newContext = AuthorizationContext.of(getJWT(request));
+        request.setAttribute(AUTHORIZATION_CONTEXT_ATTRIBUTE, newContext);
+        return newContext;
+    }
 
 }
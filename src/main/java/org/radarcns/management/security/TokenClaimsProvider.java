@@ -0,0 +1,138 @@
+package org.radarcns.management.security;
+
+import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.repository.UserRepository;
+import org.radarcns.management.service.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Provides the roles and source IDs that are added as claims to the access tokens of a user.
+ * <p>
+ * The claims are read with two scalar projection queries, instead of loading the user with its
+ * roles, projects and authorities, and the subject with its sources. The result is cached per
+ * login in the {@value #CACHE_NAME} cache, so that in the common case issuing or refreshing a
+ * token does not touch the database at all. Services that change role or source assignments
+ * must call {@link #evict(String)} or {@link #evictAll()}; eviction is delayed until the current
+ * transaction commits.
+ * </p>
+ * <p>
+ * A token request that read the claims before that commit may store them after the eviction.
+ * On the member that evicts, such a request notices the eviction and removes the claims it
+ * stored again. A request on another member of the cluster can keep the old claims in the cache
+ * until they expire, so the time to live of the cache bounds how long old claims are used.
+ * </p>
+ */
+@Service
+public class TokenClaimsProvider {
+
+    public static final String CACHE_NAME = "tokenClaims";
+
+    private final Logger log = LoggerFactory.getLogger(TokenClaimsProvider.class);
+
+    private final UserRepository userRepository;
+
+    private final SubjectRepository subjectRepository;
+
+    private final Cache cache;
+
+    /** Incremented before every eviction, to detect evictions while claims are read. */
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TokenClaimsProvider(UserRepository userRepository, SubjectRepository subjectRepository,
+            CacheManager cacheManager) {
+        this.userRepository = userRepository;
+        this.subjectRepository = subjectRepository;
+        this.cache = cacheManager.getCache(CACHE_NAME);
+    }
+
+    /**
+     * Get the token claims of a user.
+     * @param login login of the user
+     * @return the roles and sources of the user; empty if the user does not exist
+     */
+    @Transactional(readOnly = true)
+    public TokenClaims getClaims(String login) {
+        TokenClaims claims = cache.get(login, TokenClaims.class);
+        if (claims == null) {
+            long evictionsBefore = evictions.get();
+            List<String> roles = userRepository.findRoleNamesByLogin(login);
+            List<String> sources = subjectRepository.findSourceIdsBySubjectLogin(login).stream()
+                    .map(UUID::toString)
+                    .collect(Collectors.toList());
+            claims = new TokenClaims(roles, sources);
+            cache.put(login, claims);
+            if (evictions.get() != evictionsBefore) {
+                // the claims may have been read before the change that caused the eviction
+                cache.evict(login);
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * Remove the cached claims of a user, after the current transaction commits.
+     * @param login login of the user
+     */
+    public void evict(String login) {
+        if (login == null) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            log.debug("Evicting token claims of {}", login);
+            evictions.incrementAndGet();
+            cache.evict(login);
+        });
+    }
+
+    /**
+     * Remove the cached claims of all users, after the current transaction commits. Use this when
+     * the affected users are not known, for example when a role or project is changed.
+     */
+    public void evictAll() {
+        TransactionUtil.afterCommit(() -> {
+            log.debug("Evicting all token claims");
+            evictions.incrementAndGet();
+            cache.clear();
+        });
+    }
+
+    /**
+     * Roles and source IDs of a user, as they are put in the access token.
+     */
+    public static class TokenClaims implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> roles;
+
+        private final List<String> sources;
+
+        public TokenClaims(List<String> roles, List<String> sources) {
+            this.roles = Collections.unmodifiableList(new ArrayList<>(roles));
+            this.sources = Collections.unmodifiableList(new ArrayList<>(sources));
+        }
+
+        /** Roles in the format {@code PROJECT:AUTHORITY}. */
+        public List<String> getRoles() {
+            return roles;
+        }
+
+        /** IDs of the sources assigned to the user. */
+        public List<String> getSources() {
+            return sources;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.radarcns.management.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Rejects token requests with {@code 429 Too Many Requests} when the client or the user has made
+ * too many of them, or when too many token requests are already being handled. This runs before
+ * the client and user are authenticated, so rejected requests cost no database access or hash
+ * check. The client is taken from the HTTP Basic credentials or the {@code client_id} parameter,
+ * and the user from the {@code username} parameter of a password grant.
+ */
+public class TokenRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String BASIC_PREFIX = "Basic ";
+
+    private final TokenRateLimiter rateLimiter;
+
+    public TokenRateLimitFilter(TokenRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        String clientId = getClientId(request);
+        long wait = clientId != null ? rateLimiter.acquireClient(clientId) : 0L;
+        if (wait == 0L) {
+            String username = request.getParameter("username");
+            if (username != null) {
+                wait = rateLimiter.acquirePrincipal(username);
+            }
+        }
+        if (wait > 0L) {
+            reject(response, wait);
+            return;
+        }
+        if (!rateLimiter.tryEnter()) {
+            reject(response, 1000L);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            rateLimiter.exit();
+        }
+    }
+
+    private static String getClientId(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BASIC_PREFIX)) {
+            try {
+                String credentials = new String(Base64.getDecoder().decode(
+                        header.substring(BASIC_PREFIX.length()).trim()), StandardCharsets.UTF_8);
+                int separator = credentials.indexOf(':');
+                if (separator != -1) {
+                    return credentials.substring(0, separator);
+                }
+            } catch (IllegalArgumentException ex) {
+                // invalid credentials are rejected by the authentication filter
+            }
+            return null;
+        }
+        return request.getParameter("client_id");
+    }
+
+    private static void reject(HttpServletResponse response, long waitMillis) throws IOException {
+        long retryAfter = (waitMillis + 999L) / 1000L;
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"too_many_requests\",\"error_description\":"
+                + "\"Too many token requests, retry after " + retryAfter + " seconds\"}");
+    }
+}
@@ -0,0 +1,266 @@
+package org.radarcns.management.security;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+import org.radarcns.management.config.ManagementPortalProperties;
+import org.radarcns.management.config.ManagementPortalProperties.Oauth.TokenRateLimit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for the token endpoint.
+ * <p>
+ * Every OAuth client and every user has a token bucket, implemented with the generic cell rate
+ * algorithm: a bucket is a single timestamp, the theoretical time at which it is empty, that is
+ * advanced with a compare-and-set for every admitted request. Buckets are kept in a concurrent
+ * map, so requests for different keys do not contend and no request ever takes a lock. In
+ * clustered mode, the buckets are kept in the {@value #MAP_NAME} Hazelcast map instead and
+ * updated by an entry processor on the member that owns the key. Full buckets carry no state, so
+ * they are removed locally when there are many, and expire from the Hazelcast map.
+ * </p>
+ */
+@Component
+public class TokenRateLimiter {
+
+    public static final String MAP_NAME = "tokenRateLimits";
+
+    private static final String METRIC_PREFIX = "oauth.token.rate-limit";
+
+    private static final long PRUNE_INTERVAL_MILLIS = 1000L;
+
+    private final Limit clientLimit;
+
+    private final Limit principalLimit;
+
+    private final int maxTrackedKeys;
+
+    private final IMap<String, Long> clusterBuckets;
+
+    private final ConcurrentMap<String, AtomicLong> localBuckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastPrune = new AtomicLong();
+
+    private final Semaphore concurrentRequests;
+
+    private final LongSupplier clock;
+
+    private final Counter rejectedClient;
+
+    private final Counter rejectedPrincipal;
+
+    private final Counter rejectedConcurrency;
+
+    @Autowired
+    public TokenRateLimiter(ManagementPortalProperties managementPortalProperties,
+            HazelcastInstance hazelcastInstance, MetricRegistry metricRegistry) {
+        this(managementPortalProperties.getOauth().getTokenRateLimit(),
+                managementPortalProperties.getOauth().getTokenRateLimit().isClustered()
+                        ? hazelcastInstance.getMap(MAP_NAME) : null,
+                metricRegistry, System::currentTimeMillis);
+    }
+
+    TokenRateLimiter(TokenRateLimit config, IMap<String, Long> clusterBuckets,
+            MetricRegistry metricRegistry, LongSupplier clock) {
+        this.clientLimit = Limit.of(config.getClientRequestsPerMinute(), config.getClientBurst());
+        this.principalLimit = Limit.of(config.getPrincipalRequestsPerMinute(),
+                config.getPrincipalBurst());
+        this.maxTrackedKeys = config.getMaxTrackedKeys();
+        this.clusterBuckets = clusterBuckets;
+        this.concurrentRequests = config.getMaxConcurrentRequests() > 0
+                ? new Semaphore(config.getMaxConcurrentRequests()) : null;
+        this.clock = clock;
+
+        this.rejectedClient = metricRegistry.counter(
+                MetricRegistry.name(METRIC_PREFIX, "rejected", "client"));
+        this.rejectedPrincipal = metricRegistry.counter(
+                MetricRegistry.name(METRIC_PREFIX, "rejected", "principal"));
+        this.rejectedConcurrency = metricRegistry.counter(
+                MetricRegistry.name(METRIC_PREFIX, "rejected", "concurrency"));
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "local-buckets"),
+                (Gauge<Integer>) localBuckets::size);
+        if (concurrentRequests != null) {
+            int maxConcurrent = config.getMaxConcurrentRequests();
+            metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "in-flight"),
+                    (Gauge<Integer>) () -> maxConcurrent
+                            - concurrentRequests.availablePermits());
+        }
+    }
+
+    /**
+     * Take a token from the bucket of an OAuth client.
+     * @param clientId OAuth client ID
+     * @return 0 if the request is admitted, otherwise the number of milliseconds after which the
+     *         bucket has a token again
+     */
+    public long acquireClient(String clientId) {
+        long wait = acquire("client:" + clientId, clientLimit);
+        if (wait > 0) {
+            rejectedClient.inc();
+        }
+        return wait;
+    }
+
+    /**
+     * Take a token from the bucket of a user.
+     * @param principal login of the user
+     * @return 0 if the request is admitted, otherwise the number of milliseconds after which the
+     *         bucket has a token again
+     */
+    public long acquirePrincipal(String principal) {
+        long wait = acquire("principal:" + principal, principalLimit);
+        if (wait > 0) {
+            rejectedPrincipal.inc();
+        }
+        return wait;
+    }
+
+    /**
+     * Start handling a token request, if fewer than the maximum number of concurrent requests are
+     * being handled. A successful call must be followed by a call to {@link #exit()}.
+     * @return whether the request may be handled
+     */
+    public boolean tryEnter() {
+        if (concurrentRequests == null || concurrentRequests.tryAcquire()) {
+            return true;
+        }
+        rejectedConcurrency.inc();
+        return false;
+    }
+
+    /** Finish handling a token request that was admitted by {@link #tryEnter()}. */
+    public void exit() {
+        if (concurrentRequests != null) {
+            concurrentRequests.release();
+        }
+    }
+
+    /**
+     * Longest time that a bucket can hold state, after which it is full again.
+     * @param config rate limit configuration
+     * @return time to live of a bucket in seconds
+     */
+    public static int bucketTimeToLiveSeconds(TokenRateLimit config) {
+        long millis = 0;
+        for (Limit limit : new Limit[] {
+                Limit.of(config.getClientRequestsPerMinute(), config.getClientBurst()),
+                Limit.of(config.getPrincipalRequestsPerMinute(), config.getPrincipalBurst())}) {
+            if (limit != null) {
+                millis = Math.max(millis, limit.tolerance + limit.interval);
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, millis / 1000L + 1L);
+    }
+
+    private long acquire(String key, Limit limit) {
+        if (limit == null) {
+            return 0L;
+        }
+        if (clusterBuckets != null) {
+            return (Long) clusterBuckets.executeOnKey(key,
+                    new AcquireProcessor(limit.interval, limit.tolerance));
+        }
+        long now = clock.getAsLong();
+        AtomicLong bucket = localBuckets.get(key);
+        if (bucket == null) {
+            pruneLocalBuckets(now);
+            AtomicLong newBucket = new AtomicLong(now);
+            bucket = localBuckets.putIfAbsent(key, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+        while (true) {
+            long emptyAt = bucket.get();
+            long wait = limit.waitTime(emptyAt, now);
+            if (wait > 0L) {
+                return wait;
+            }
+            if (bucket.compareAndSet(emptyAt, limit.next(emptyAt, now))) {
+                return 0L;
+            }
+        }
+    }
+
+    private void pruneLocalBuckets(long now) {
+        long previous = lastPrune.get();
+        if (localBuckets.size() < maxTrackedKeys || now - previous < PRUNE_INTERVAL_MILLIS
+                || !lastPrune.compareAndSet(previous, now)) {
+            return;
+        }
+        localBuckets.values().removeIf(bucket -> bucket.get() <= now);
+    }
+
+    /** Rate of a bucket: one token every interval, and at most tolerance worth of tokens. */
+    private static final class Limit {
+
+        private final long interval;
+
+        private final long tolerance;
+
+        private Limit(long interval, long tolerance) {
+            this.interval = interval;
+            this.tolerance = tolerance;
+        }
+
+        private static Limit of(int requestsPerMinute, int burst) {
+            if (requestsPerMinute <= 0) {
+                return null;
+            }
+            long interval = Math.max(1L, 60_000L / requestsPerMinute);
+            return new Limit(interval, interval * (Math.max(burst, 1) - 1));
+        }
+
+        private long waitTime(long emptyAt, long now) {
+            return waitTime(emptyAt, now, tolerance);
+        }
+
+        private static long waitTime(long emptyAt, long now, long tolerance) {
+            return Math.max(0L, emptyAt - tolerance - now);
+        }
+
+        private long next(long emptyAt, long now) {
+            return Math.max(emptyAt, now) + interval;
+        }
+    }
+
+    /**
+     * Takes a token from a bucket in the Hazelcast map, on the member that owns the bucket.
+     * Returns the wait time in milliseconds, 0 if the token was taken.
+     */
+    static final class AcquireProcessor extends AbstractEntryProcessor<String, Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long interval;
+
+        private final long tolerance;
+
+        AcquireProcessor(long interval, long tolerance) {
+            super(false);
+            this.interval = interval;
+            this.tolerance = tolerance;
+        }
+
+        @Override
+        public Object process(Map.Entry<String, Long> entry) {
+            long now = System.currentTimeMillis();
+            long emptyAt = entry.getValue() != null ? entry.getValue() : now;
+            long wait = Limit.waitTime(emptyAt, now, tolerance);
+            if (wait == 0L) {
+                entry.setValue(Math.max(emptyAt, now) + interval);
+            }
+            return wait;
+        }
+    }
+}
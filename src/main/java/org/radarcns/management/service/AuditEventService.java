@@ -1,36 +1,63 @@
 package org.radarcns.management.service;
 
 import org.radarcns.management.config.audit.AuditEventConverter;
+import org.radarcns.management.domain.PersistentAuditEvent;
 import org.radarcns.management.repository.PersistenceAuditEventRepository;
 import java.time.LocalDateTime;
+import org.radarcns.management.web.rest.errors.CustomParameterizedException;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for managing audit events.
  * <p>
  * This is the default implementation to support SpringBoot Actuator AuditEventRepository
  * </p>
+ * <p>
+ * Besides offset based pages, events can be read with an opaque cursor, which encodes the date
+ * and id of the last event of the previous page. Such a query uses the (event_date, event_id)
+ * index and does not need a count query, so it stays fast at any depth in the audit log.
+ * </p>
  */
 @Service
 @Transactional
 public class AuditEventService {
 
+    public static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
+    /** Number of events that are loaded at once, with their data, when streaming. */
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final PersistenceAuditEventRepository persistenceAuditEventRepository;
 
     private final AuditEventConverter auditEventConverter;
 
+    private final EntityManager entityManager;
+
     public AuditEventService(
         PersistenceAuditEventRepository persistenceAuditEventRepository,
-        AuditEventConverter auditEventConverter) {
+        AuditEventConverter auditEventConverter,
+        EntityManager entityManager) {
 
         this.persistenceAuditEventRepository = persistenceAuditEventRepository;
         this.auditEventConverter = auditEventConverter;
+        this.entityManager = entityManager;
     }
 
     public Page<AuditEvent> findAll(Pageable pageable) {
@@ -47,4 +74,121 @@ public class AuditEventService {
         return Optional.ofNullable(persistenceAuditEventRepository.findOne(id)).map
             (auditEventConverter::convertToAuditEvent);
     }
+
+    /**
+     * Get the page of events that follows the given cursor, ordered by date and id.
+     *
+     * @param cursor cursor returned with the previous page, or {@code null} for the first page
+     * @param size maximum number of events to return
+     * @return the events and the cursor of the next page
+     * @throws CustomParameterizedException if the cursor can not be parsed
+     */
+    @Transactional(readOnly = true)
+    public CursorPage findAfterCursor(String cursor, int size) {
+        Pageable pageable = new PageRequest(0, Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE)));
+        List<Long> ids;
+        if (cursor == null || cursor.isEmpty()) {
+            ids = persistenceAuditEventRepository.findFirstPageIdsOrderByDateAndId(pageable);
+        } else {
+            String[] position = decodeCursor(cursor);
+            try {
+                ids = persistenceAuditEventRepository.findPageIdsAfterOrderByDateAndId(
+                    LocalDateTime.parse(position[0]), Long.valueOf(position[1]), pageable);
+            } catch (DateTimeParseException | NumberFormatException ex) {
+                throw new CustomParameterizedException("Invalid audit event cursor", cursor);
+            }
+        }
+        // the page is limited on the ids, so that the data can be fetched in the same query
+        List<PersistentAuditEvent> events = ids.isEmpty() ? Collections.emptyList()
+            : persistenceAuditEventRepository.findAllWithDataByIdIn(ids);
+        String nextCursor = null;
+        if (events.size() == pageable.getPageSize()) {
+            PersistentAuditEvent last = events.get(events.size() - 1);
+            nextCursor = encodeCursor(last.getAuditEventDate(), last.getId());
+        }
+        return new CursorPage(events.stream()
+            .map(auditEventConverter::convertToAuditEvent)
+            .collect(Collectors.toList()), nextCursor);
+    }
+
+    /**
+     * Pass all events between the given dates to a consumer, in order of date and id. Event ids
+     * are read from a database cursor, and the events are loaded with their data in chunks of
+     * {@value #STREAM_CHUNK_SIZE}. Events are detached after they are consumed, so the memory use
+     * does not depend on the number of events.
+     *
+     * @param fromDate start of the period, inclusive
+     * @param toDate end of the period, inclusive
+     * @param consumer consumer of the events
+     */
+    @Transactional(readOnly = true)
+    public void streamByDates(LocalDateTime fromDate, LocalDateTime toDate,
+            Consumer<? super AuditEvent> consumer) {
+        try (Stream<Long> ids = persistenceAuditEventRepository
+                .streamIdsByAuditEventDateBetween(fromDate, toDate)) {
+            List<Long> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+            ids.forEach(id -> {
+                chunk.add(id);
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    streamChunk(chunk, consumer);
+                }
+            });
+            if (!chunk.isEmpty()) {
+                streamChunk(chunk, consumer);
+            }
+        }
+    }
+
+    private void streamChunk(List<Long> ids, Consumer<? super AuditEvent> consumer) {
+        List<PersistentAuditEvent> events = persistenceAuditEventRepository
+            .findAllWithDataByIdIn(ids);
+        events.forEach(event -> {
+            consumer.accept(auditEventConverter.convertToAuditEvent(event));
+            entityManager.detach(event);
+        });
+        ids.clear();
+    }
+
+    private static String encodeCursor(LocalDateTime date, Long id) {
+        String position = date + "/" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor),
+                StandardCharsets.UTF_8);
+            String[] parts = position.split("/", 2);
+            if (parts.length == 2) {
+                return parts;
+            }
+        } catch (IllegalArgumentException ex) {
+            // invalid base64, handled below
+        }
+        throw new CustomParameterizedException("Invalid audit event cursor", cursor);
+    }
+
+    /**
+     * Page of audit events retrieved with a cursor.
+     */
+    public static class CursorPage {
+        private final List<AuditEvent> events;
+
+        private final String nextCursor;
+
+        public CursorPage(List<AuditEvent> events, String nextCursor) {
+            this.events = events;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<AuditEvent> getEvents() {
+            return events;
+        }
+
+        /** Cursor of the next page, or {@code null} if this is the last page. */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
 }
@@ -0,0 +1,245 @@
+package org.radarcns.management.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ITopic;
+import org.radarcns.management.repository.ProjectRepository;
+import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.dto.SourceTypeDTO;
+import org.radarcns.management.service.mapper.SourceTypeMapper;
+import org.radarcns.management.service.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory snapshot of the source type catalog, for lookups that should not touch the database.
+ * <p>
+ * The snapshot holds all source types with their source data, indexed by id, by
+ * (producer, model, version) and by project. It is immutable: on a change, the whole snapshot is
+ * discarded and rebuilt by the next lookup, in its own read-only transaction, so readers never
+ * see a partially updated catalog. Changes are announced with {@link #invalidate()} on a
+ * Hazelcast topic, so that every member of the cluster discards its snapshot.
+ * </p>
+ * <p>
+ * A lookup that misses the snapshot falls back to the database. If the database does have the
+ * source type, the snapshot is considered outdated and discarded as well. The returned DTOs are
+ * shared between requests and must not be modified.
+ * </p>
+ */
+@Service
+public class CatalogSnapshotService {
+
+    private static final String INVALIDATION_TOPIC = "catalogSnapshotInvalidation";
+
+    private final Logger log = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    private final SourceTypeRepository sourceTypeRepository;
+
+    private final ProjectRepository projectRepository;
+
+    private final SourceTypeMapper sourceTypeMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ITopic<Long> invalidationTopic;
+
+    /** Incremented on every invalidation; a snapshot of an older generation is outdated. */
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    public CatalogSnapshotService(SourceTypeRepository sourceTypeRepository,
+            ProjectRepository projectRepository, SourceTypeMapper sourceTypeMapper,
+            PlatformTransactionManager transactionManager, HazelcastInstance hazelcastInstance) {
+        this.sourceTypeRepository = sourceTypeRepository;
+        this.projectRepository = projectRepository;
+        this.sourceTypeMapper = sourceTypeMapper;
+        // only build snapshots of committed data
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(
+                TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+        this.invalidationTopic = hazelcastInstance.getTopic(INVALIDATION_TOPIC);
+        // the publishing member has already discarded its snapshot when it published
+        this.invalidationTopic.addMessageListener(message -> {
+            if (message.getPublishingMember() == null
+                    || !message.getPublishingMember().localMember()) {
+                discard();
+            }
+        });
+    }
+
+    /**
+     * Find a source type by id.
+     * @param id source type id
+     * @return the source type, if it exists
+     */
+    public Optional<SourceTypeDTO> findSourceType(Long id) {
+        SourceTypeDTO sourceType = getSnapshot().byId.get(id);
+        if (sourceType != null) {
+            return Optional.of(sourceType);
+        }
+        return checkMiss(Optional.ofNullable(
+                sourceTypeRepository.findOneWithEagerRelationships(id))
+                .map(sourceTypeMapper::sourceTypeToSourceTypeDTO));
+    }
+
+    /**
+     * Find a source type by its producer, model and catalog version.
+     * @param producer source type producer
+     * @param model source type model
+     * @param version source type catalog version
+     * @return the source type, if it exists
+     */
+    public Optional<SourceTypeDTO> findSourceType(String producer, String model,
+            String version) {
+        SourceTypeDTO sourceType = getSnapshot().byKey.get(
+                new SourceTypeKey(producer, model, version));
+        if (sourceType != null) {
+            return Optional.of(sourceType);
+        }
+        return checkMiss(sourceTypeRepository
+                .findOneWithEagerRelationshipsByProducerAndModelAndVersion(producer, model, version)
+                .map(sourceTypeMapper::sourceTypeToSourceTypeDTO));
+    }
+
+    /**
+     * Find a source type that is available in a project.
+     * @param projectId project id
+     * @param sourceTypeId source type id
+     * @return the source type, if it exists and is part of the project
+     */
+    public Optional<SourceTypeDTO> findProjectSourceType(Long projectId, Long sourceTypeId) {
+        Snapshot current = getSnapshot();
+        if (current.byProject.getOrDefault(projectId, Collections.emptySet())
+                .contains(sourceTypeId)) {
+            SourceTypeDTO sourceType = current.byId.get(sourceTypeId);
+            if (sourceType != null) {
+                return Optional.of(sourceType);
+            }
+        }
+        return checkMiss(projectRepository
+                .findSourceTypeByProjectIdAndSourceTypeId(projectId, sourceTypeId)
+                .map(sourceTypeMapper::sourceTypeToSourceTypeDTO));
+    }
+
+    /**
+     * Discard the snapshot on all members of the cluster, after the current transaction commits.
+     * Call this whenever a source type, its source data or the source types of a project change.
+     * The local snapshot is discarded right away on commit, since topic messages are delivered
+     * asynchronously, also to the publishing member.
+     */
+    public void invalidate() {
+        TransactionUtil.afterCommit(() -> {
+            discard();
+            invalidationTopic.publish(System.currentTimeMillis());
+        });
+    }
+
+    private <T> Optional<T> checkMiss(Optional<T> fromDatabase) {
+        if (fromDatabase.isPresent()) {
+            log.debug("Catalog snapshot is outdated, discarding it");
+            discard();
+        }
+        return fromDatabase;
+    }
+
+    private void discard() {
+        generation.incrementAndGet();
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && current.generation == generation.get()) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            long currentGeneration = generation.get();
+            if (current == null || current.generation != currentGeneration) {
+                // an invalidation during the build makes the new snapshot outdated immediately
+                current = transactionTemplate.execute(status -> build(currentGeneration));
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private Snapshot build(long buildGeneration) {
+        log.debug("Building catalog snapshot");
+        Map<Long, SourceTypeDTO> byId = new HashMap<>();
+        Map<SourceTypeKey, SourceTypeDTO> byKey = new HashMap<>();
+        for (SourceTypeDTO sourceType : sourceTypeMapper.sourceTypesToSourceTypeDTOs(
+                sourceTypeRepository.findAllWithEagerRelationships())) {
+            byId.put(sourceType.getId(), sourceType);
+            byKey.put(new SourceTypeKey(sourceType.getProducer(), sourceType.getModel(),
+                    sourceType.getCatalogVersion()), sourceType);
+        }
+        Map<Long, Set<Long>> byProject = new HashMap<>();
+        for (Object[] row : projectRepository.findAllProjectSourceTypeIds()) {
+            byProject.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((Long) row[1]);
+        }
+        byProject.replaceAll((id, sourceTypeIds) -> Collections.unmodifiableSet(sourceTypeIds));
+        return new Snapshot(buildGeneration, byId, byKey, byProject);
+    }
+
+    /** Immutable catalog indexes. */
+    private static final class Snapshot {
+        private final long generation;
+        private final Map<Long, SourceTypeDTO> byId;
+        private final Map<SourceTypeKey, SourceTypeDTO> byKey;
+        private final Map<Long, Set<Long>> byProject;
+
+        Snapshot(long generation, Map<Long, SourceTypeDTO> byId,
+                Map<SourceTypeKey, SourceTypeDTO> byKey, Map<Long, Set<Long>> byProject) {
+            this.generation = generation;
+            this.byId = Collections.unmodifiableMap(byId);
+            this.byKey = Collections.unmodifiableMap(byKey);
+            this.byProject = Collections.unmodifiableMap(byProject);
+        }
+    }
+
+    /** Natural key of a source type. */
+    private static final class SourceTypeKey {
+        private final String producer;
+        private final String model;
+        private final String version;
+
+        SourceTypeKey(String producer, String model, String version) {
+            this.producer = producer;
+            this.model = model;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SourceTypeKey other = (SourceTypeKey) o;
+            return Objects.equals(producer, other.producer)
+                    && Objects.equals(model, other.model)
+                    && Objects.equals(version, other.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(producer, model, version);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.radarcns.management.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IAtomicLong;
+import org.radarcns.management.service.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Keeps a version number per kind of catalog resource, to serve conditional GET requests on
+ * them without touching the database.
+ * <p>
+ * The versions are Hazelcast atomic longs, so that all members of the cluster agree on them.
+ * A version starts at the time it was first created in the cluster, so that versions handed out
+ * before a full cluster restart are not reused. Services that change a catalog resource must
+ * call {@link #increment(Catalog...)}; the increment is delayed until the current transaction
+ * commits, so that a concurrent request can never tag the old data with the new version.
+ * </p>
+ */
+@Service
+public class CatalogVersionService {
+
+    /** Kinds of catalog resources that have a version. */
+    public enum Catalog {
+        SOURCE_TYPES, PROJECT_SOURCE_TYPES, SOURCE_DATA
+    }
+
+    private final Logger log = LoggerFactory.getLogger(CatalogVersionService.class);
+
+    private final Map<Catalog, IAtomicLong> versions = new EnumMap<>(Catalog.class);
+
+    public CatalogVersionService(HazelcastInstance hazelcastInstance) {
+        long epoch = System.currentTimeMillis();
+        for (Catalog catalog : Catalog.values()) {
+            IAtomicLong version = hazelcastInstance.getAtomicLong(
+                    "catalogVersion." + catalog.name());
+            version.compareAndSet(0L, epoch);
+            versions.put(catalog, version);
+        }
+    }
+
+    /**
+     * Get the current version of a catalog resource.
+     * @param catalog kind of catalog resource
+     * @return the version
+     */
+    public long getVersion(Catalog catalog) {
+        return versions.get(catalog).get();
+    }
+
+    /**
+     * Get a strong entity tag for the current version of a catalog resource. Read the tag
+     * before reading the resource itself, so that the tag is never newer than the data.
+     * @param catalog kind of catalog resource
+     * @return quoted entity tag
+     */
+    public String getETag(Catalog catalog) {
+        return "\"" + getVersion(catalog) + "\"";
+    }
+
+    /**
+     * Increment the versions of given catalog resources, after the current transaction commits.
+     * @param catalogs kinds of catalog resources that changed
+     */
+    public void increment(Catalog... catalogs) {
+        TransactionUtil.afterCommit(() -> {
+            for (Catalog catalog : catalogs) {
+                log.debug("Incrementing version of {}", catalog);
+                versions.get(catalog).incrementAndGet();
+            }
+        });
+    }
+}
@@ -4,6 +4,8 @@ package org.radarcns.management.service;
 import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.domain.Project;
 import org.radarcns.management.repository.ProjectRepository;
+import org.radarcns.management.security.TokenClaimsProvider;
+import org.radarcns.management.service.CatalogVersionService.Catalog;
 import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.mapper.SourceTypeMapper;
@@ -38,9 +40,18 @@ public class ProjectService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenClaimsProvider tokenClaimsProvider;
+
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
     /**
      * Save a project.
      *
@@ -50,7 +61,13 @@ public class ProjectService {
     public ProjectDTO save(ProjectDTO projectDTO) {
         log.debug("Request to save Project : {}", projectDTO);
         Project project = projectMapper.projectDTOToProject(projectDTO);
+        if (project.getId() != null) {
+            // the project name is part of the role claims
+            tokenClaimsProvider.evictAll();
+        }
         project = projectRepository.save(project);
+        catalogVersionService.increment(Catalog.PROJECT_SOURCE_TYPES);
+        catalogSnapshotService.invalidate();
         ProjectDTO result = projectMapper.projectToProjectDTO(project);
         return result;
     }
@@ -153,5 +170,8 @@ public class ProjectService {
     public void delete(Long id) {
         log.debug("Request to delete Project : {}", id);
         projectRepository.delete(id);
+        tokenClaimsProvider.evictAll();
+        catalogVersionService.increment(Catalog.PROJECT_SOURCE_TYPES);
+        catalogSnapshotService.invalidate();
     }
 }
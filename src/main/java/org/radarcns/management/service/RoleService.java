@@ -4,6 +4,7 @@ import org.radarcns.management.domain.Authority;
 import org.radarcns.management.domain.Role;
 import org.radarcns.management.domain.User;
 import org.radarcns.management.repository.RoleRepository;
+import org.radarcns.management.security.TokenClaimsProvider;
 import org.radarcns.auth.authorization.AuthoritiesConstants;
 import org.radarcns.management.service.dto.RoleDTO;
 import org.radarcns.management.service.mapper.RoleMapper;
@@ -36,6 +37,9 @@ public class RoleService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenClaimsProvider tokenClaimsProvider;
+
     /**
      * Save a role.
      *
@@ -46,6 +50,7 @@ public class RoleService {
         log.debug("Request to save Role : {}", roleDTO);
         Role role = roleMapper.roleDTOToRole(roleDTO);
         role = roleRepository.save(role);
+        tokenClaimsProvider.evictAll();
         RoleDTO result = roleMapper.roleToRoleDTO(role);
         return result;
     }
@@ -118,6 +123,7 @@ public class RoleService {
     public void delete(Long id) {
         log.debug("Request to delete Role : {}", id);
         roleRepository.delete(id);
+        tokenClaimsProvider.evictAll();
     }
 
     public List<RoleDTO> getRolesByProject(String projectName) {
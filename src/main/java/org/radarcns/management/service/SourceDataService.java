@@ -2,6 +2,7 @@ package org.radarcns.management.service;
 
 import org.radarcns.management.domain.SourceData;
 import org.radarcns.management.repository.SourceDataRepository;
+import org.radarcns.management.service.CatalogVersionService.Catalog;
 import org.radarcns.management.service.dto.SourceDataDTO;
 import org.radarcns.management.service.mapper.SourceDataMapper;
 import org.slf4j.Logger;
@@ -27,9 +28,17 @@ public class SourceDataService {
 
     private final SourceDataMapper sourceDataMapper;
 
-    public SourceDataService(SourceDataRepository sourceDataRepository, SourceDataMapper sourceDataMapper) {
+    private final CatalogVersionService catalogVersionService;
+
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    public SourceDataService(SourceDataRepository sourceDataRepository, SourceDataMapper sourceDataMapper,
+            CatalogVersionService catalogVersionService,
+            CatalogSnapshotService catalogSnapshotService) {
         this.sourceDataRepository = sourceDataRepository;
         this.sourceDataMapper = sourceDataMapper;
+        this.catalogVersionService = catalogVersionService;
+        this.catalogSnapshotService = catalogSnapshotService;
     }
 
     /**
@@ -42,6 +51,9 @@ public class SourceDataService {
         log.debug("Request to save SourceData : {}", sourceDataDTO);
         SourceData sourceData = sourceDataMapper.sourceDataDTOToSourceData(sourceDataDTO);
         sourceData = sourceDataRepository.save(sourceData);
+        // source data is also part of the source types
+        catalogVersionService.increment(Catalog.values());
+        catalogSnapshotService.invalidate();
         SourceDataDTO result = sourceDataMapper.sourceDataToSourceDataDTO(sourceData);
         return result;
     }
@@ -97,5 +109,7 @@ public class SourceDataService {
     public void delete(Long id) {
         log.debug("Request to delete SourceData : {}", id);
         sourceDataRepository.delete(id);
+        catalogVersionService.increment(Catalog.values());
+        catalogSnapshotService.invalidate();
     }
 }
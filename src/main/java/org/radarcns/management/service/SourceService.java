@@ -2,6 +2,7 @@ package org.radarcns.management.service;
 
 import org.radarcns.management.domain.Source;
 import org.radarcns.management.repository.SourceRepository;
+import org.radarcns.management.security.TokenClaimsProvider;
 import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
 import org.radarcns.management.service.dto.SourceDTO;
 import org.radarcns.management.service.mapper.SourceMapper;
@@ -11,10 +12,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service Implementation for managing Source.
@@ -31,6 +36,12 @@ public class SourceService {
     @Autowired
     private SourceMapper sourceMapper;
 
+    @Autowired
+    private TokenClaimsProvider tokenClaimsProvider;
+
+    @Autowired
+    private EntityManager entityManager;
+
     /**
      * Save a Source.
      *
@@ -40,6 +51,10 @@ public class SourceService {
     public SourceDTO save(SourceDTO sourceDTO) {
         log.debug("Request to save Source : {}", sourceDTO);
         Source source = sourceMapper.sourceDTOToSource(sourceDTO);
+        if (source.getId() != null) {
+            // the source ID is part of the source claims of its subject
+            tokenClaimsProvider.evictAll();
+        }
         source = sourceRepository.save(source);
         return sourceMapper.sourceToSourceDTO(source);
     }
@@ -57,6 +72,50 @@ public class SourceService {
             .collect(Collectors.toCollection(LinkedList::new));
     }
 
+    /**
+     * Pass all sources to a consumer, in order of id. Sources are read from a database cursor
+     * and detached after they are consumed, so the memory use does not depend on the number of
+     * sources.
+     *
+     * @param consumer consumer of the sources
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<? super SourceDTO> consumer) {
+        stream(sourceRepository.streamAll(), sourceMapper::sourceToSourceDTO, consumer);
+    }
+
+    /**
+     * Pass all sources of a project to a consumer, in order of id, like {@link #streamAll}.
+     *
+     * @param projectId id of the project
+     * @param assigned only pass sources with this assigned state, or all sources if null
+     * @param minimized whether to pass {@link MinimalSourceDetailsDTO} instead of
+     *                  {@link SourceDTO}
+     * @param consumer consumer of the sources
+     */
+    @Transactional(readOnly = true)
+    public void streamAllByProject(Long projectId, Boolean assigned, boolean minimized,
+            Consumer<Object> consumer) {
+        Stream<Source> sources = assigned == null
+            ? sourceRepository.streamAllByProjectId(projectId)
+            : sourceRepository.streamAllByProjectIdAndAssigned(projectId, assigned);
+        if (minimized) {
+            stream(sources, sourceMapper::sourceToMinimalSourceDetailsDTO, consumer);
+        } else {
+            stream(sources, sourceMapper::sourceToSourceDTO, consumer);
+        }
+    }
+
+    private <T> void stream(Stream<Source> sources, Function<Source, T> mapper,
+            Consumer<? super T> consumer) {
+        try (Stream<Source> closing = sources) {
+            closing.forEach(source -> {
+                consumer.accept(mapper.apply(source));
+                entityManager.detach(source);
+            });
+        }
+    }
+
     /**
      *  Get one source by name
      *
@@ -78,6 +137,7 @@ public class SourceService {
     public void delete(Long id) {
         log.debug("Request to delete Source : {}", id);
         sourceRepository.delete(id);
+        tokenClaimsProvider.evictAll();
     }
 
     /**
@@ -4,6 +4,7 @@ import org.radarcns.management.domain.SourceData;
 import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.repository.SourceDataRepository;
 import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.CatalogVersionService.Catalog;
 import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.mapper.SourceTypeMapper;
 import org.slf4j.Logger;
@@ -12,10 +13,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service Implementation for managing SourceType.
@@ -35,6 +39,15 @@ public class SourceTypeService {
     @Autowired
     private SourceDataRepository sourceDataRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
     /**
      * Save a sourceType.
      *
@@ -50,6 +63,8 @@ public class SourceTypeService {
         }
         sourceType = sourceTypeRepository.save(sourceType);
         sourceDataRepository.save(sourceType.getSourceData());
+        catalogVersionService.increment(Catalog.values());
+        catalogSnapshotService.invalidate();
         return sourceTypeMapper.sourceTypeToSourceTypeDTO(sourceType);
     }
 
@@ -68,6 +83,24 @@ public class SourceTypeService {
 
     }
 
+    /**
+     * Pass all sourceTypes to a consumer, in order of id. Source types are read from a database
+     * cursor and detached after they are consumed, so the memory use does not depend on the
+     * number of source types.
+     *
+     * @param consumer consumer of the sourceTypes
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<? super SourceTypeDTO> consumer) {
+        try (Stream<SourceType> sourceTypes = sourceTypeRepository
+                .streamAllWithEagerRelationships()) {
+            sourceTypes.forEach(sourceType -> {
+                consumer.accept(sourceTypeMapper.sourceTypeToSourceTypeDTO(sourceType));
+                entityManager.detach(sourceType);
+            });
+        }
+    }
+
     /**
      *  Get one sourceType by id.
      *
@@ -89,6 +122,8 @@ public class SourceTypeService {
     public void delete(Long id) {
         log.debug("Request to delete SourceType : {}", id);
         sourceTypeRepository.delete(id);
+        catalogVersionService.increment(Catalog.values());
+        catalogSnapshotService.invalidate();
     }
 
     /**
@@ -1,6 +1,7 @@
 package org.radarcns.management.service;
 
 import org.radarcns.auth.authorization.AuthoritiesConstants;
+import org.radarcns.management.config.Constants;
 import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.domain.Project;
 import org.radarcns.management.domain.Role;
@@ -11,9 +12,14 @@ import org.radarcns.management.repository.AuthorityRepository;
 import org.radarcns.management.repository.RoleRepository;
 import org.radarcns.management.repository.SourceRepository;
 import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.repository.UserRepository;
+import org.radarcns.management.security.TokenClaimsProvider;
 import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
+import org.radarcns.management.service.dto.MinimalSubjectDTO;
 import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.dto.SubjectDTO;
+import org.radarcns.management.service.dto.SubjectEnrollmentResultDTO;
 import org.radarcns.management.service.mapper.ProjectMapper;
 import org.radarcns.management.service.mapper.SourceMapper;
 import org.radarcns.management.service.mapper.SubjectMapper;
@@ -25,18 +31,30 @@ import org.radarcns.management.web.rest.errors.CustomParameterizedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Created by nivethika on 26-5-17.
@@ -78,10 +96,42 @@ public class SubjectService {
     private MailService mailService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private UserService userService;
 
     @Autowired
-    private UserService userService;
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** Number of subjects inserted per transaction, equal to the JDBC batch size. */
+    private static final int ENROLLMENT_BATCH_SIZE = 50;
+
+    /** Number of subjects that are loaded at once when streaming. */
+    private static final int STREAM_CHUNK_SIZE = 100;
+
+    /**
+     * Sort properties of a minimal subject, mapped to their paths in the minimal subject queries.
+     */
+    private static final Map<String, String> MINIMAL_SORT_PROPERTIES = new HashMap<>();
+
+    static {
+        MINIMAL_SORT_PROPERTIES.put("id", "id");
+        MINIMAL_SORT_PROPERTIES.put("login", "user.login");
+        MINIMAL_SORT_PROPERTIES.put("externalId", "externalId");
+        MINIMAL_SORT_PROPERTIES.put("externalLink", "externalLink");
+        MINIMAL_SORT_PROPERTIES.put("project.id", "project.id");
+        MINIMAL_SORT_PROPERTIES.put("project.projectName", "project.projectName");
+    }
+
+    /** Maximum number of logins in a single IN query. */
+    private static final int MAX_IN_QUERY_SIZE = 1000;
+
+    @Autowired
+    private TokenClaimsProvider tokenClaimsProvider;
 
 
     @Transactional
@@ -91,9 +141,8 @@ public class SubjectService {
         User user = subject.getUser();
         user.getRoles().add(getProjectParticipantRole(subjectDTO.getProject()));
 
-        // set password and reset keys
-        String encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword());
-        user.setPassword(encryptedPassword);
+        // the subject sets a password with the reset key
+        user.setPassword(Constants.NO_PASSWORD);
         user.setResetKey(RandomUtil.generateResetKey());
         user.setLangKey(
             "en"); // setting default language key to "en", required to set email context,
@@ -108,9 +157,120 @@ public class SubjectService {
             }
         }
         subject = subjectRepository.save(subject);
+        tokenClaimsProvider.evict(user.getLogin());
         return subjectMapper.subjectToSubjectDTO(subject);
     }
 
+    /**
+     * Create many subjects in a project at once. The participant role of the project is resolved
+     * once and subjects are inserted in JDBC batches of {@value #ENROLLMENT_BATCH_SIZE}, without
+     * a password; they set one with their reset key. Unless the caller already has a
+     * transaction, each batch is committed in its own transaction, so that a failing batch does
+     * not affect the others.
+     * Rows that have no valid login, or whose login or external ID is already in use, are not
+     * created. Sources are not assigned; use the source assignment endpoints for that.
+     *
+     * @param projectDTO project to enroll the subjects in
+     * @param subjectDTOs subjects to create, in row order
+     * @return one result per row, in the same order
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<SubjectEnrollmentResultDTO> createSubjects(ProjectDTO projectDTO,
+            List<SubjectDTO> subjectDTOs) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long roleId = transactionTemplate.execute(status ->
+                getProjectParticipantRole(projectDTO).getId());
+
+        List<SubjectEnrollmentResultDTO> results = new ArrayList<>(subjectDTOs.size());
+        List<Integer> validRows = validateEnrollment(projectDTO, subjectDTOs, results);
+
+        for (int start = 0; start < validRows.size(); start += ENROLLMENT_BATCH_SIZE) {
+            List<Integer> batch = validRows.subList(start,
+                    Math.min(start + ENROLLMENT_BATCH_SIZE, validRows.size()));
+            try {
+                List<Long> ids = transactionTemplate.execute(status ->
+                        insertSubjects(roleId, subjectDTOs, batch));
+                for (int i = 0; i < batch.size(); i++) {
+                    results.get(batch.get(i)).created(ids.get(i));
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Failed to enroll {} subjects in project {}", batch.size(),
+                        projectDTO.getProjectName(), ex);
+                // the exception message can contain SQL, so it is only logged
+                batch.forEach(row -> results.get(row).failed(
+                        "The subject could not be stored"));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Check the rows of a bulk enrollment for missing, invalid or duplicate logins and external
+     * IDs. A result is added for each row; failed rows are marked as such.
+     * @return indexes of the valid rows
+     */
+    private List<Integer> validateEnrollment(ProjectDTO projectDTO, List<SubjectDTO> subjectDTOs,
+            List<SubjectEnrollmentResultDTO> results) {
+        Set<String> logins = subjectDTOs.stream()
+                .map(SubjectDTO::getLogin)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> existingLogins = new HashSet<>();
+        List<String> loginList = new ArrayList<>(logins);
+        for (int start = 0; start < loginList.size(); start += MAX_IN_QUERY_SIZE) {
+            existingLogins.addAll(userRepository.findLoginsIn(loginList.subList(start,
+                    Math.min(start + MAX_IN_QUERY_SIZE, loginList.size()))));
+        }
+        Set<String> externalIds = new HashSet<>(
+                subjectRepository.findExternalIdsByProjectName(projectDTO.getProjectName()));
+
+        List<Integer> validRows = new ArrayList<>(subjectDTOs.size());
+        for (int row = 0; row < subjectDTOs.size(); row++) {
+            SubjectDTO subjectDTO = subjectDTOs.get(row);
+            String login = subjectDTO.getLogin();
+            String externalId = subjectDTO.getExternalId();
+            SubjectEnrollmentResultDTO result = new SubjectEnrollmentResultDTO(row, login,
+                    externalId);
+            results.add(result);
+            if (login == null || login.isEmpty()) {
+                result.failed("A subject login is required");
+            } else if (login.length() > 50 || !login.matches(Constants.LOGIN_REGEX)) {
+                result.failed("Invalid subject login");
+            } else if (!existingLogins.add(login)) {
+                result.failed("A user with this login already exists");
+            } else if (externalId != null && !externalId.isEmpty()
+                    && !externalIds.add(externalId)) {
+                result.failed("A subject with this external ID already exists in the project");
+            } else {
+                validRows.add(row);
+            }
+        }
+        return validRows;
+    }
+
+    private List<Long> insertSubjects(Long roleId, List<SubjectDTO> subjectDTOs,
+            List<Integer> rows) {
+        Role role = entityManager.getReference(Role.class, roleId);
+        List<Subject> subjects = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Subject subject = subjectMapper.subjectDTOToSubject(subjectDTOs.get(rows.get(i)));
+            subject.getSources().clear();
+            User user = subject.getUser();
+            user.getRoles().add(role);
+            user.setPassword(Constants.NO_PASSWORD);
+            user.setResetKey(RandomUtil.generateResetKey());
+            user.setLangKey("en");
+            user.setResetDate(ZonedDateTime.now());
+            user.setActivated(true);
+            entityManager.persist(subject);
+            subjects.add(subject);
+        }
+        // write the batch and keep the persistence context small for the next one
+        entityManager.flush();
+        entityManager.clear();
+        return subjects.stream().map(Subject::getId).collect(Collectors.toList());
+    }
+
     /**
      * fetch Participant role of the project if available, otherwise create a new Role and assign
      * @param projectDTO project subject is assigned to
@@ -141,32 +301,168 @@ public class SubjectService {
         }
         //  TODO : add security and owner check for the resource
         Subject subject = subjectRepository.findOne(subjectDTO.getId());
-        //reset all the sources assigned to a subject to unassigned
-        for(Source source : subject.getSources()) {
-            source.setAssigned(false);
-            sourceRepository.save(source);
-        }
-        //set only the devices assigned to a subject as assigned
+        Set<Long> previousSourceIds = subject.getSources().stream()
+            .map(Source::getId)
+            .collect(Collectors.toSet());
         subjectMapper.safeUpdateSubjectFromDTO(subjectDTO, subject);
-        for(Source source : subject.getSources()) {
-            source.setAssigned(true);
-        }
+
+        // only the sources in the DTO are assigned to the subject
+        Set<Source> sources = findSourcesBySourceId(subjectDTO.getSources());
+        Set<Long> sourcesToAssign = sources.stream()
+            .filter(source -> !Boolean.TRUE.equals(source.isAssigned()))
+            .map(Source::getId)
+            .collect(Collectors.toSet());
+        Set<Long> sourcesToUnassign = new HashSet<>(previousSourceIds);
+        sources.forEach(source -> sourcesToUnassign.remove(source.getId()));
+        subject.getSources().clear();
+        subject.getSources().addAll(sources);
+
         // update participant role
         Set<Role> managedRoles = subject.getUser().getRoles().stream()
             .filter(r -> !AuthoritiesConstants.PARTICIPANT.equals(r.getAuthority().getName()))
             .collect(Collectors.toSet());
         managedRoles.add(getProjectParticipantRole(subjectDTO.getProject()));
         subject.getUser().setRoles(managedRoles);
-        subject = subjectRepository.save(subject);
-
+        subject = subjectRepository.saveAndFlush(subject);
+        tokenClaimsProvider.evict(subject.getUser().getLogin());
+
+        if (!sourcesToAssign.isEmpty() || !sourcesToUnassign.isEmpty()) {
+            updateSourcesAssigned(sourcesToUnassign, false);
+            updateSourcesAssigned(sourcesToAssign, true);
+            // the bulk updates cleared the persistence context
+            subject = subjectRepository.findOne(subject.getId());
+        }
         return subjectMapper.subjectToSubjectDTO(subject);
     }
 
+    /**
+     * Load the sources in a single query.
+     * @param sourceDTOs sources, identified by their source ID
+     * @return the sources
+     * @throws IllegalArgumentException if one of the sources does not exist
+     */
+    private Set<Source> findSourcesBySourceId(Set<MinimalSourceDetailsDTO> sourceDTOs) {
+        if (sourceDTOs == null || sourceDTOs.isEmpty()) {
+            return new HashSet<>();
+        }
+        Set<UUID> sourceIds = sourceDTOs.stream()
+            .map(MinimalSourceDetailsDTO::getSourceId)
+            .collect(Collectors.toSet());
+        Set<Source> sources = new HashSet<>(sourceRepository.findAllBySourceIdIn(sourceIds));
+        if (sources.size() < sourceIds.size()) {
+            sources.forEach(source -> sourceIds.remove(source.getSourceId()));
+            throw new IllegalArgumentException("Source ID " + sourceIds.iterator().next()
+                + " not found");
+        }
+        return sources;
+    }
+
+    /**
+     * Set the assigned flag of sources with a bulk update, instead of updating them one by one.
+     * This clears the persistence context.
+     */
+    private void updateSourcesAssigned(Set<Long> sourceIds, boolean assigned) {
+        List<Long> ids = new ArrayList<>(sourceIds);
+        for (int start = 0; start < ids.size(); start += MAX_IN_QUERY_SIZE) {
+            sourceRepository.updateAssignedByIdIn(assigned,
+                ids.subList(start, Math.min(start + MAX_IN_QUERY_SIZE, ids.size())));
+        }
+    }
+
 
     public List<SubjectDTO> findAll() {
         return subjectMapper.subjectsToSubjectDTOs(subjectRepository.findAllWithEagerRelationships());
     }
 
+    /**
+     * Pass all subjects to a consumer, in order of id. Subject ids are read from a database
+     * cursor, and the subjects are loaded in chunks of {@value #STREAM_CHUNK_SIZE}, with the
+     * sources and attributes of a chunk loaded at once. Subjects are detached after they are
+     * consumed, so the memory use does not depend on the number of subjects.
+     *
+     * @param projectName only pass the subjects of this project, or all subjects if null
+     * @param consumer consumer of the subjects
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(String projectName, Consumer<? super SubjectDTO> consumer) {
+        try (Stream<Long> ids = projectName == null
+                ? subjectRepository.streamAllIds()
+                : subjectRepository.streamIdsByProjectName(projectName)) {
+            List<Long> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+            ids.forEach(id -> {
+                chunk.add(id);
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    streamChunk(chunk, consumer);
+                }
+            });
+            if (!chunk.isEmpty()) {
+                streamChunk(chunk, consumer);
+            }
+        }
+    }
+
+    private void streamChunk(List<Long> ids, Consumer<? super SubjectDTO> consumer) {
+        List<Subject> subjects = subjectRepository.findAllWithUserByIdIn(ids);
+        subjectMapper.subjectsToSubjectDTOs(subjects).forEach(consumer);
+        subjects.forEach(entityManager::detach);
+        ids.clear();
+    }
+
+    /**
+     * Get a page of subjects, with only their scalar fields and project. Without a sort order,
+     * subjects are ordered by id.
+     * @param pageable the pagination information
+     * @return the page of subjects
+     * @throws CustomParameterizedException if a sort property is not supported
+     */
+    @Transactional(readOnly = true)
+    public Page<MinimalSubjectDTO> findAllMinimal(Pageable pageable) {
+        return subjectRepository.findAllMinimalByAuthority(AuthoritiesConstants.PARTICIPANT,
+                minimalSubjectPage(pageable));
+    }
+
+    /**
+     * Get a page of the subjects in a project, with only their scalar fields and project.
+     * Without a sort order, subjects are ordered by id.
+     * @param projectName name of the project
+     * @param pageable the pagination information
+     * @return the page of subjects
+     * @throws CustomParameterizedException if a sort property is not supported
+     */
+    @Transactional(readOnly = true)
+    public Page<MinimalSubjectDTO> findAllMinimalByProject(String projectName,
+            Pageable pageable) {
+        return subjectRepository.findAllMinimalByProjectNameAndAuthority(projectName,
+                AuthoritiesConstants.PARTICIPANT, minimalSubjectPage(pageable));
+    }
+
+    /**
+     * Map the sort properties of a page of minimal subjects to the query paths. Unsorted pages are
+     * ordered by id, so that paging through them is stable.
+     */
+    private static Pageable minimalSubjectPage(Pageable pageable) {
+        if (pageable == null) {
+            return null;
+        }
+        if (pageable.getSort() == null) {
+            return new PageRequest(pageable.getPageNumber(), pageable.getPageSize(),
+                    new Sort("id"));
+        }
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : pageable.getSort()) {
+            String path = MINIMAL_SORT_PROPERTIES.get(order.getProperty());
+            if (path == null) {
+                throw new CustomParameterizedException("Unsupported subject sort property",
+                        order.getProperty());
+            }
+            Sort.Order mapped = new Sort.Order(order.getDirection(), path,
+                    order.getNullHandling());
+            orders.add(order.isIgnoreCase() ? mapped.ignoreCase() : mapped);
+        }
+        return new PageRequest(pageable.getPageNumber(), pageable.getPageSize(),
+                new Sort(orders));
+    }
+
     public SubjectDTO discontinueSubject(SubjectDTO subjectDTO) {
         Subject subject = subjectRepository.findOne(subjectDTO.getId());
         // reset all the sources assigned to a subject to unassigned
@@ -176,19 +472,18 @@ public class SubjectService {
         // access token
         subject.setRemoved(true);
         subject.getUser().setActivated(false);
+        tokenClaimsProvider.evict(subject.getUser().getLogin());
         return subjectMapper.subjectToSubjectDTO(subjectRepository.save(subject));
     }
 
     /**
-     * Unassign all sources from a subject. This method saves the unassigned sources, but does
-     * NOT save the subject in question. This is the responsibility of the caller.
-     * @param subject The subject for which to unassign all sources
+     * Unassign all sources from a subject. The unassigned sources are written on flush, but the
+     * subject in question is NOT saved. This is the responsibility of the caller.
+     * @param subject The subject for which to unassign all sources, managed by the current
+     *                persistence context
      */
     private void unassignAllSources(Subject subject) {
-        subject.getSources().forEach(source -> {
-            source.setAssigned(false);
-            sourceRepository.save(source);
-        });
+        subject.getSources().forEach(source -> source.setAssigned(false));
         subject.getSources().clear();
     }
 
@@ -199,7 +494,7 @@ public class SubjectService {
      * Otherwise finds the matching source and updates meta-data
      */
     @Transactional
-    public MinimalSourceDetailsDTO assignOrUpdateSource(Subject subject, SourceType sourceType, Project project,
+    public MinimalSourceDetailsDTO assignOrUpdateSource(Subject subject, SourceTypeDTO sourceType, Project project,
         MinimalSourceDetailsDTO sourceRegistrationDTO) {
         Source assignedSource = null;
 
@@ -238,7 +533,8 @@ public class SubjectService {
                 Source source1 = new Source()
                         .project(project)
                         .assigned(true)
-                        .sourceType(sourceType);
+                        .sourceType(entityManager.getReference(SourceType.class,
+                            sourceType.getId()));
                 source1.getAttributes().putAll(sourceRegistrationDTO.getAttributes());
                 // if source name is provided update source name
                 if (Objects.nonNull(sourceRegistrationDTO.getSourceName())) {
@@ -278,6 +574,7 @@ public class SubjectService {
             throw new CustomParameterizedException("InvalidRequest" , errorParams);
         }
         subjectRepository.save(subject);
+        tokenClaimsProvider.evict(subject.getUser().getLogin());
         return sourceMapper.sourceToMinimalSourceDetailsDTO(assignedSource);
     }
 
@@ -296,6 +593,7 @@ public class SubjectService {
         subjectRepository.findOneWithEagerBySubjectLogin(login).ifPresent(subject -> {
             unassignAllSources(subject);
             subjectRepository.delete(subject);
+            tokenClaimsProvider.evict(login);
                 log.debug("Deleted Subject: {}", subject);
             });
     }
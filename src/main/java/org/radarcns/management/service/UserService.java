@@ -9,7 +9,9 @@ import org.radarcns.management.repository.AuthorityRepository;
 import org.radarcns.management.repository.ProjectRepository;
 import org.radarcns.management.repository.RoleRepository;
 import org.radarcns.management.repository.UserRepository;
+import org.radarcns.management.security.CredentialHasher;
 import org.radarcns.management.security.SecurityUtils;
+import org.radarcns.management.security.TokenClaimsProvider;
 import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.dto.RoleDTO;
 import org.radarcns.management.service.dto.UserDTO;
@@ -23,7 +25,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -51,7 +52,7 @@ public class UserService {
     private ProjectRepository projectRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private CredentialHasher credentialHasher;
 
     @Autowired
     private RoleRepository roleRepository;
@@ -68,6 +69,9 @@ public class UserService {
     @Autowired
     private RoleMapper roleMapper;
 
+    @Autowired
+    private TokenClaimsProvider tokenClaimsProvider;
+
     public Optional<User> activateRegistration(String key) {
         log.debug("Activating user for activation key {}", key);
         return userRepository.findOneByActivationKey(key)
@@ -89,7 +93,7 @@ public class UserService {
                 return user.getResetDate().isAfter(oneDayAgo);
             })
             .map(user -> {
-                user.setPassword(passwordEncoder.encode(newPassword));
+                user.setPassword(credentialHasher.hash(newPassword));
                 user.setResetKey(null);
                 user.setResetDate(null);
                 user.setActivated(true);
@@ -118,14 +122,15 @@ public class UserService {
         } else {
             user.setLangKey(userDTO.getLangKey());
         }
-        String encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword());
-        user.setPassword(encryptedPassword);
+        // the user sets a password with the reset key
+        user.setPassword(Constants.NO_PASSWORD);
         user.setResetKey(RandomUtil.generateResetKey());
         user.setResetDate(ZonedDateTime.now());
         user.setActivated(false);
 
         user.setRoles(getUserRoles(userDTO));
         userRepository.save(user);
+        tokenClaimsProvider.evict(user.getLogin());
         log.debug("Created Information for User: {}", user);
         return user;
     }
@@ -182,6 +187,7 @@ public class UserService {
         return Optional.of(userRepository
             .findOne(userDTO.getId()))
             .map(user -> {
+                tokenClaimsProvider.evict(user.getLogin());
                 user.setLogin(userDTO.getLogin());
                 user.setFirstName(userDTO.getFirstName());
                 user.setLastName(userDTO.getLastName());
@@ -191,6 +197,7 @@ public class UserService {
                 Set<Role> managedRoles = user.getRoles();
                 managedRoles.clear();
                 managedRoles.addAll(getUserRoles(userDTO));
+                tokenClaimsProvider.evict(user.getLogin());
 
                 log.debug("Changed Information for User: {}", user);
                 return user;
@@ -201,13 +208,14 @@ public class UserService {
     public void deleteUser(String login) {
         userRepository.findOneByLogin(login).ifPresent(user -> {
             userRepository.delete(user);
+            tokenClaimsProvider.evict(login);
             log.debug("Deleted User: {}", user);
         });
     }
 
     public void changePassword(String password) {
         userRepository.findOneByLogin(SecurityUtils.getCurrentUserLogin()).ifPresent(user -> {
-            String encryptedPassword = passwordEncoder.encode(password);
+            String encryptedPassword = credentialHasher.hash(password);
             user.setPassword(encryptedPassword);
             log.debug("Changed password for User: {}", user);
         });
@@ -0,0 +1,121 @@
+package org.radarcns.management.service.dto;
+
+import org.radarcns.management.service.dto.SubjectDTO.SubjectStatus;
+
+import java.io.Serializable;
+
+/**
+ * Subject with only its scalar fields and the project it participates in. It is built directly
+ * by a query, without loading the subject, user, roles, sources or attributes as entities.
+ */
+public class MinimalSubjectDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private String login;
+
+    private String externalLink;
+
+    private String externalId;
+
+    private SubjectStatus status;
+
+    private MinimalProjectDetailsDTO project;
+
+    public MinimalSubjectDTO() {
+        // for deserialization
+    }
+
+    /**
+     * Constructor used by query projections.
+     * @param id subject id
+     * @param login login of the subject user
+     * @param externalLink external link
+     * @param externalId external id
+     * @param activated whether the subject user is activated
+     * @param removed whether the subject is removed
+     * @param projectId id of the project of the subject
+     * @param projectName name of the project of the subject
+     */
+    public MinimalSubjectDTO(Long id, String login, String externalLink, String externalId,
+            Boolean activated, Boolean removed, Long projectId, String projectName) {
+        this.id = id;
+        this.login = login;
+        this.externalLink = externalLink;
+        this.externalId = externalId;
+        this.status = toStatus(Boolean.TRUE.equals(activated), Boolean.TRUE.equals(removed));
+        if (projectId != null) {
+            this.project = new MinimalProjectDetailsDTO();
+            this.project.setId(projectId);
+            this.project.setProjectName(projectName);
+        }
+    }
+
+    private static SubjectStatus toStatus(boolean activated, boolean removed) {
+        if (removed) {
+            return activated ? SubjectStatus.INVALID : SubjectStatus.DISCONTINUED;
+        } else {
+            return activated ? SubjectStatus.ACTIVATED : SubjectStatus.DEACTIVATED;
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    public String getExternalLink() {
+        return externalLink;
+    }
+
+    public void setExternalLink(String externalLink) {
+        this.externalLink = externalLink;
+    }
+
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public void setExternalId(String externalId) {
+        this.externalId = externalId;
+    }
+
+    public SubjectStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(SubjectStatus status) {
+        this.status = status;
+    }
+
+    public MinimalProjectDetailsDTO getProject() {
+        return project;
+    }
+
+    public void setProject(MinimalProjectDetailsDTO project) {
+        this.project = project;
+    }
+
+    @Override
+    public String toString() {
+        return "MinimalSubjectDTO{"
+            + "id=" + id
+            + ", login='" + login + '\''
+            + ", externalId='" + externalId + '\''
+            + ", status=" + status
+            + '}';
+    }
+}
@@ -0,0 +1,121 @@
+package org.radarcns.management.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * Result of enrolling a single row of a bulk subject enrollment.
+ */
+public class SubjectEnrollmentResultDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        CREATED, FAILED
+    }
+
+    private int row;
+
+    private String login;
+
+    private String externalId;
+
+    private Status status;
+
+    private Long id;
+
+    private String message;
+
+    public SubjectEnrollmentResultDTO() {
+        // for deserialization
+    }
+
+    public SubjectEnrollmentResultDTO(int row, String login, String externalId) {
+        this.row = row;
+        this.login = login;
+        this.externalId = externalId;
+    }
+
+    /**
+     * Mark the row as created.
+     * @param id id of the created subject
+     * @return this result
+     */
+    public SubjectEnrollmentResultDTO created(Long id) {
+        this.status = Status.CREATED;
+        this.id = id;
+        this.message = null;
+        return this;
+    }
+
+    /**
+     * Mark the row as failed.
+     * @param message reason of the failure
+     * @return this result
+     */
+    public SubjectEnrollmentResultDTO failed(String message) {
+        this.status = Status.FAILED;
+        this.id = null;
+        this.message = message;
+        return this;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public void setRow(int row) {
+        this.row = row;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public void setExternalId(String externalId) {
+        this.externalId = externalId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "SubjectEnrollmentResultDTO{"
+            + "row=" + row
+            + ", login='" + login + '\''
+            + ", externalId='" + externalId + '\''
+            + ", status=" + status
+            + ", id=" + id
+            + ", message='" + message + '\''
+            + '}';
+    }
+}
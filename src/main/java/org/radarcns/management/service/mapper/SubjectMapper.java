@@ -42,6 +42,7 @@ public interface SubjectMapper {
     @Mapping(target = "user", ignore = true)
     @Mapping(target = "attributes" , ignore = true)
     @Mapping(target = "removed" , ignore = true)
+    @Mapping(target = "sources" , ignore = true)
     Subject safeUpdateSubjectFromDTO(SubjectDTO subjectDTO, @MappingTarget Subject subject);
 
     List<Subject> subjectDTOsToSubjects(List<SubjectDTO> subjectDTOS);
@@ -2,8 +2,10 @@ package org.radarcns.management.service.mapper.decorator;
 
 import org.mapstruct.MappingTarget;
 import org.radarcns.auth.authorization.AuthoritiesConstants;
+import org.radarcns.management.domain.Project;
 import org.radarcns.management.domain.Role;
 import org.radarcns.management.domain.Subject;
+import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.dto.SubjectDTO;
 import org.radarcns.management.service.dto.SubjectDTO.SubjectStatus;
 import org.radarcns.management.service.mapper.ProjectMapper;
@@ -12,8 +14,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Created by nivethika on 30-8-17.
@@ -28,6 +33,11 @@ public abstract class SubjectMapperDecorator implements SubjectMapper {
 
     @Override
     public SubjectDTO subjectToSubjectDTO(Subject subject){
+        return subjectToSubjectDTO(subject, projectMapper::projectToProjectDTO);
+    }
+
+    private SubjectDTO subjectToSubjectDTO(Subject subject,
+            Function<Project, ProjectDTO> projectToDto) {
         if ( subject == null ) {
             return null;
         }
@@ -38,7 +48,7 @@ public abstract class SubjectMapperDecorator implements SubjectMapper {
                 .filter(r -> r.getAuthority().getName().equals(AuthoritiesConstants.PARTICIPANT))
                 .findFirst();
 
-        role.ifPresent(role1 -> dto.setProject(projectMapper.projectToProjectDTO(role1.getProject())));
+        role.ifPresent(role1 -> dto.setProject(projectToDto.apply(role1.getProject())));
 
         return dto;
     }
@@ -56,15 +66,26 @@ public abstract class SubjectMapperDecorator implements SubjectMapper {
         return subject;
     }
 
+    /**
+     * Map a list of subjects. Subjects of the same project share a single ProjectDTO, so each
+     * distinct project, with its source types and attributes, is only mapped once per list.
+     * Users, roles and attributes of the subjects should already be loaded in bulk by the
+     * repository query; see {@link org.radarcns.management.repository.SubjectRepository}.
+     */
     @Override
     public List<SubjectDTO> subjectsToSubjectDTOs(List<Subject> subjects){
         if ( subjects == null ) {
             return null;
         }
 
-        List<SubjectDTO> list = new ArrayList<>();
+        Map<Long, ProjectDTO> projects = new HashMap<>();
+        Function<Project, ProjectDTO> projectToDto = project -> project == null ? null
+                : projects.computeIfAbsent(project.getId(),
+                    id -> projectMapper.projectToProjectDTO(project));
+
+        List<SubjectDTO> list = new ArrayList<>(subjects.size());
         for ( Subject subject: subjects ) {
-            list.add( this.subjectToSubjectDTO( subject) );
+            list.add( this.subjectToSubjectDTO( subject, projectToDto ) );
         }
 
         return list;
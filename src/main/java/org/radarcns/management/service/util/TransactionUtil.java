@@ -0,0 +1,33 @@
+package org.radarcns.management.service.util;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utility class for running code around transactions.
+ */
+public final class TransactionUtil {
+
+    private TransactionUtil() {
+    }
+
+    /**
+     * Run a task after the current transaction commits, or immediately if there is no current
+     * transaction. The task is not run if the transaction is rolled back.
+     *
+     * @param runnable the task to run
+     */
+    public static void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCommit() {
+                            runnable.run();
+                        }
+                    });
+        } else {
+            runnable.run();
+        }
+    }
+}
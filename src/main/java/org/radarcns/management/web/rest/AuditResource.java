@@ -1,8 +1,11 @@
 package org.radarcns.management.web.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jhipster.web.util.ResponseUtil;
 import io.swagger.annotations.ApiParam;
 import org.radarcns.management.service.AuditEventService;
+import org.radarcns.management.service.AuditEventService.CursorPage;
+import org.radarcns.management.web.rest.util.NdjsonUtil;
 import org.radarcns.management.web.rest.util.PaginationUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.audit.AuditEvent;
@@ -18,12 +21,14 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 
 import static org.radarcns.auth.authorization.Permission.AUDIT_READ;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
-import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.security.SecurityUtils.getAuthorizationContext;
 
 /**
  * REST controller for getting the audit events.
@@ -32,12 +37,17 @@ import static org.radarcns.management.security.SecurityUtils.getJWT;
 @RequestMapping("/management/audits")
 public class AuditResource {
 
+    public static final String APPLICATION_NDJSON_VALUE = NdjsonUtil.APPLICATION_NDJSON_VALUE;
+
     @Autowired
     HttpServletRequest servletRequest;
 
     @Autowired
     private AuditEventService auditEventService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * GET  /audits : get a page of AuditEvents.
      *
@@ -46,7 +56,7 @@ public class AuditResource {
      */
     @GetMapping
     public ResponseEntity<List<AuditEvent>> getAll(@ApiParam Pageable pageable) {
-        checkPermission(getJWT(servletRequest), AUDIT_READ);
+        checkPermission(getAuthorizationContext(servletRequest), AUDIT_READ);
         Page<AuditEvent> page = auditEventService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/management/audits");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
@@ -66,12 +76,52 @@ public class AuditResource {
         @RequestParam(value = "fromDate") LocalDate fromDate,
         @RequestParam(value = "toDate") LocalDate toDate,
         @ApiParam Pageable pageable) {
-        checkPermission(getJWT(servletRequest), AUDIT_READ);
+        checkPermission(getAuthorizationContext(servletRequest), AUDIT_READ);
         Page<AuditEvent> page = auditEventService.findByDates(fromDate.atTime(0, 0), toDate.atTime(23, 59), pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/management/audits");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /audits?cursor=:cursor : get a page of AuditEvents after the given cursor, ordered by
+     * date. Use an empty cursor to get the first page. The cursor of the next page is returned in
+     * the X-Next-Cursor header and as the next link; it is absent on the last page.
+     *
+     * @param cursor the cursor returned with the previous page
+     * @param size the maximum number of AuditEvents to return
+     * @return the ResponseEntity with status 200 (OK) and the list of AuditEvents in body
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<List<AuditEvent>> getAfterCursor(
+        @RequestParam(value = "cursor") String cursor,
+        @RequestParam(value = "size", defaultValue = "100") int size) {
+        checkPermission(getAuthorizationContext(servletRequest), AUDIT_READ);
+        CursorPage page = auditEventService.findAfterCursor(cursor, size);
+        HttpHeaders headers = PaginationUtil.generateCursorPaginationHttpHeaders(
+            page.getNextCursor(), size, "/management/audits");
+        return new ResponseEntity<>(page.getEvents(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /audits/export : export all AuditEvents between the fromDate and toDate as
+     * newline delimited JSON, one AuditEvent per line. The events are streamed from the database,
+     * so an export of any size can be requested.
+     *
+     * @param fromDate the start of the time period of AuditEvents to export
+     * @param toDate the end of the time period of AuditEvents to export
+     * @param response the response to write the AuditEvents to
+     * @throws IOException if the response can not be written
+     */
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+    public void export(
+        @RequestParam(value = "fromDate") LocalDate fromDate,
+        @RequestParam(value = "toDate") LocalDate toDate,
+        HttpServletResponse response) throws IOException {
+        checkPermission(getAuthorizationContext(servletRequest), AUDIT_READ);
+        NdjsonUtil.write(response, objectMapper, consumer -> auditEventService.streamByDates(
+            fromDate.atTime(0, 0), toDate.atTime(23, 59), consumer));
+    }
+
     /**
      * GET  /audits/:id : get an AuditEvent by id.
      *
@@ -80,7 +130,7 @@ public class AuditResource {
      */
     @GetMapping("/{id:.+}")
     public ResponseEntity<AuditEvent> get(@PathVariable Long id) {
-        checkPermission(getJWT(servletRequest), AUDIT_READ);
+        checkPermission(getAuthorizationContext(servletRequest), AUDIT_READ);
         return ResponseUtil.wrapOrNotFound(auditEventService.find(id));
     }
 }
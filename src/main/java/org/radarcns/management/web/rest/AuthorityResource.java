@@ -16,7 +16,7 @@ import java.util.List;
 
 import static org.radarcns.auth.authorization.Permission.AUTHORITY_READ;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
-import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.security.SecurityUtils.getAuthorizationContext;
 
 /**
  * REST controller for managing Authority.
@@ -42,7 +42,7 @@ public class AuthorityResource {
     @Timed
     public List<String> getAllAuthorities() {
         log.debug("REST request to get all Authorities");
-        checkPermission(getJWT(servletRequest), AUTHORITY_READ);
+        checkPermission(getAuthorizationContext(servletRequest), AUTHORITY_READ);
         return Arrays.asList(AuthoritiesConstants.PROJECT_ADMIN, AuthoritiesConstants.PROJECT_OWNER,
                 AuthoritiesConstants.PROJECT_AFFILIATE, AuthoritiesConstants.PROJECT_ANALYST);
     }
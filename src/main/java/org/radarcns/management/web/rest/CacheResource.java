@@ -0,0 +1,48 @@
+package org.radarcns.management.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import org.radarcns.auth.authorization.AuthoritiesConstants;
+import org.radarcns.management.config.CacheEvictionCounter;
+import org.radarcns.management.web.rest.vm.CacheStatisticsVM;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Controller for viewing the statistics of the Hazelcast caches, including the Hibernate second
+ * level cache regions. Statistics are those of this member of the cluster.
+ */
+@RestController
+@RequestMapping("/management")
+public class CacheResource {
+
+    private final HazelcastInstance hazelcastInstance;
+
+    private final CacheEvictionCounter cacheEvictionCounter;
+
+    public CacheResource(HazelcastInstance hazelcastInstance,
+            CacheEvictionCounter cacheEvictionCounter) {
+        this.hazelcastInstance = hazelcastInstance;
+        this.cacheEvictionCounter = cacheEvictionCounter;
+    }
+
+    @GetMapping("/caches")
+    @Timed
+    @Secured({AuthoritiesConstants.SYS_ADMIN})
+    public List<CacheStatisticsVM> getCacheStatistics() {
+        return hazelcastInstance.getDistributedObjects().stream()
+            .filter(IMap.class::isInstance)
+            .map(object -> (IMap<?, ?>) object)
+            .sorted(Comparator.comparing(IMap::getName))
+            .map(map -> new CacheStatisticsVM(map.getName(), map.getLocalMapStats(),
+                cacheEvictionCounter.getEvictions(map.getName())))
+            .collect(Collectors.toList());
+    }
+}
@@ -4,6 +4,7 @@ import com.codahale.metrics.annotation.Timed;
 import org.radarcns.management.domain.Subject;
 import org.radarcns.management.domain.User;
 import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.security.CachingClientDetailsService;
 import org.radarcns.management.service.UserService;
 import org.radarcns.management.service.dto.ClientDetailsDTO;
 import org.radarcns.management.service.dto.ClientPairInfoDTO;
@@ -63,7 +64,7 @@ import static org.radarcns.auth.authorization.Permission.OAUTHCLIENTS_UPDATE;
 import static org.radarcns.auth.authorization.Permission.SUBJECT_UPDATE;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermissionOnSubject;
-import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.security.SecurityUtils.getAuthorizationContext;
 /**
  * Created by dverbeec on 5/09/2017.
  */
@@ -79,6 +80,9 @@ public class OAuthClientsResource {
     @Autowired
     private JdbcClientDetailsService clientDetailsService;
 
+    @Autowired
+    private CachingClientDetailsService cachingClientDetailsService;
+
     @Autowired
     private ClientDetailsMapper clientDetailsMapper;
 
@@ -110,7 +114,7 @@ public class OAuthClientsResource {
     @GetMapping("/oauth-clients")
     @Timed
     public ResponseEntity<List<ClientDetailsDTO>> getOAuthClients() {
-        checkPermission(getJWT(servletRequest), OAUTHCLIENTS_READ);
+        checkPermission(getAuthorizationContext(servletRequest), OAUTHCLIENTS_READ);
         return ResponseEntity.ok().body(clientDetailsMapper
                 .clientDetailsToClientDetailsDTO(clientDetailsService.listClientDetails()));
     }
@@ -126,7 +130,7 @@ public class OAuthClientsResource {
     @GetMapping("/oauth-clients/{id}")
     @Timed
     public ResponseEntity<ClientDetailsDTO> getOAuthClientById(@PathVariable("id") String id) {
-        checkPermission(getJWT(servletRequest), OAUTHCLIENTS_READ);
+        checkPermission(getAuthorizationContext(servletRequest), OAUTHCLIENTS_READ);
         // getOAuthClient checks if the id exists
         return ResponseEntity.ok().body(clientDetailsMapper
                 .clientDetailsToClientDetailsDTO(getOAuthClient(id)));
@@ -144,7 +148,7 @@ public class OAuthClientsResource {
     @Timed
     public ResponseEntity<ClientDetailsDTO> updateOAuthClient(@RequestBody ClientDetailsDTO
             clientDetailsDTO) {
-        checkPermission(getJWT(servletRequest), OAUTHCLIENTS_UPDATE);
+        checkPermission(getAuthorizationContext(servletRequest), OAUTHCLIENTS_UPDATE);
         // check if we have an ID field supplied
         checkClientFields(clientDetailsDTO);
         // getOAuthClient checks if the id exists
@@ -159,6 +163,7 @@ public class OAuthClientsResource {
             clientDetailsService.updateClientSecret(clientDetailsDTO.getClientId(),
                     clientDetailsDTO.getClientSecret());
         }
+        cachingClientDetailsService.evict(clientDetailsDTO.getClientId());
         updated = getOAuthClient(clientDetailsDTO.getClientId());
         return ResponseEntity.ok()
                 .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME,
@@ -177,10 +182,11 @@ public class OAuthClientsResource {
     @DeleteMapping("/oauth-clients/{id}")
     @Timed
     public ResponseEntity<Void> deleteOAuthClient(@PathVariable String id) {
-        checkPermission(getJWT(servletRequest), OAUTHCLIENTS_DELETE);
+        checkPermission(getAuthorizationContext(servletRequest), OAUTHCLIENTS_DELETE);
         // getOAuthClient checks if the id exists
         checkProtected(getOAuthClient(id));
         clientDetailsService.removeClientDetails(id);
+        cachingClientDetailsService.evict(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id))
                 .build();
     }
@@ -198,7 +204,7 @@ public class OAuthClientsResource {
     @Timed
     public ResponseEntity<ClientDetailsDTO> createOAuthClient(@RequestBody ClientDetailsDTO
             clientDetailsDTO) throws URISyntaxException {
-        checkPermission(getJWT(servletRequest), OAUTHCLIENTS_CREATE);
+        checkPermission(getAuthorizationContext(servletRequest), OAUTHCLIENTS_CREATE);
         // check if we have an ID field supplied
         checkClientFields(clientDetailsDTO);
         // check if the client id exists
@@ -213,6 +219,7 @@ public class OAuthClientsResource {
         ClientDetails details = clientDetailsMapper
                 .clientDetailsDTOToClientDetails(clientDetailsDTO);
         clientDetailsService.addClientDetails(details);
+        cachingClientDetailsService.evict(details.getClientId());
         ClientDetails created = getOAuthClient(clientDetailsDTO.getClientId());
         return ResponseEntity.created(new URI("/api/oauth-clients/" + created.getClientId()))
                 .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, created.getClientId()))
@@ -245,7 +252,7 @@ public class OAuthClientsResource {
         SubjectDTO subjectDTO = subjectMapper.subjectToSubjectDTO(subject);
 
         // Users who can update a subject can also generate a refresh token for that subject
-        checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_UPDATE,
+        checkPermissionOnSubject(getAuthorizationContext(servletRequest), SUBJECT_UPDATE,
             subjectDTO.getProject().getProjectName(), subjectDTO.getLogin());
 
         // lookup the OAuth client
@@ -1,18 +1,23 @@
 package org.radarcns.management.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jhipster.web.util.ResponseUtil;
+import io.swagger.annotations.ApiParam;
 import org.radarcns.auth.authorization.AuthoritiesConstants;
 import org.radarcns.auth.authorization.Permission;
 import org.radarcns.management.domain.Source;
 import org.radarcns.management.domain.Subject;
 import org.radarcns.management.repository.SubjectRepository;
-import org.radarcns.management.security.SecurityUtils;
+import org.radarcns.management.service.CatalogVersionService;
+import org.radarcns.management.service.CatalogVersionService.Catalog;
 import org.radarcns.management.service.ProjectService;
 import org.radarcns.management.service.RoleService;
 import org.radarcns.management.service.SourceService;
+import org.radarcns.management.service.SubjectService;
 import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
+import org.radarcns.management.service.dto.MinimalSubjectDTO;
 import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.dto.RoleDTO;
 import org.radarcns.management.service.dto.SourceDTO;
@@ -20,9 +25,15 @@ import org.radarcns.management.service.dto.SubjectDTO;
 import org.radarcns.management.service.mapper.SourceMapper;
 import org.radarcns.management.service.mapper.SubjectMapper;
 import org.radarcns.management.web.rest.util.HeaderUtil;
+import org.radarcns.management.web.rest.util.NdjsonUtil;
+import org.radarcns.management.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -34,8 +45,12 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -52,7 +67,7 @@ import static org.radarcns.auth.authorization.Permission.ROLE_READ;
 import static org.radarcns.auth.authorization.Permission.SOURCE_READ;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermissionOnProject;
-import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.security.SecurityUtils.getAuthorizationContext;
 
 /**
  * REST controller for managing Project.
@@ -86,6 +101,15 @@ public class ProjectResource {
     @Autowired
     private SourceMapper sourceMapper;
 
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     /**
      * POST  /projects : Create a new project.
      *
@@ -97,7 +121,7 @@ public class ProjectResource {
     @Timed
     public ResponseEntity<ProjectDTO> createProject(@Valid @RequestBody ProjectDTO projectDTO) throws URISyntaxException {
         log.debug("REST request to save Project : {}", projectDTO);
-        checkPermission(getJWT(servletRequest), PROJECT_CREATE);
+        checkPermission(getAuthorizationContext(servletRequest), PROJECT_CREATE);
         if (projectDTO.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "idexists", "A new project cannot already have an ID")).body(null);
         }
@@ -123,7 +147,7 @@ public class ProjectResource {
         if (projectDTO.getId() == null) {
             return createProject(projectDTO);
         }
-        checkPermissionOnProject(getJWT(servletRequest), PROJECT_UPDATE, projectDTO.getProjectName());
+        checkPermissionOnProject(getAuthorizationContext(servletRequest), PROJECT_UPDATE, projectDTO.getProjectName());
         ProjectDTO result = projectService.save(projectDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, projectDTO.getId().toString()))
@@ -141,7 +165,7 @@ public class ProjectResource {
             @RequestParam(name = "minimized", required = false, defaultValue = "false") Boolean
                 minimized) {
         log.debug("REST request to get Projects");
-        checkPermission(getJWT(servletRequest), PROJECT_READ);
+        checkPermission(getAuthorizationContext(servletRequest), PROJECT_READ);
         return projectService.findAll(minimized);
     }
 
@@ -157,26 +181,38 @@ public class ProjectResource {
         log.debug("REST request to get Project : {}", projectName);
         ProjectDTO projectDTO = projectService.findOneByName(projectName);
         if (projectDTO != null) {
-            checkPermissionOnProject(getJWT(servletRequest), PROJECT_READ, projectDTO.getProjectName());
+            checkPermissionOnProject(getAuthorizationContext(servletRequest), PROJECT_READ, projectDTO.getProjectName());
         }
         return ResponseUtil.wrapOrNotFound(Optional.ofNullable(projectDTO));
     }
 
     /**
-     * GET  /projects/:projectName : get the "projectName" project.
+     * GET  /projects/:projectName/source-types : get the source types of the "projectName"
+     * project.
+     *
+     * <p>The list is returned with an ETag; if it matches the If-None-Match header, status
+     * 304 (Not Modified) is returned without reading the project.</p>
      *
      * @param projectName the projectName of the projectDTO to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the projectDTO, or with status 404 (Not Found)
+     * @param webRequest the request, to check the If-None-Match header
+     * @return the ResponseEntity with status 200 (OK) and with body the source types, or null
+     *         if not modified
      */
     @GetMapping("/projects/{projectName}/source-types")
     @Timed
-    public List<SourceTypeDTO> getSourceTypesOfProject(@PathVariable String projectName) {
+    public ResponseEntity<List<SourceTypeDTO>> getSourceTypesOfProject(
+            @PathVariable String projectName, WebRequest webRequest) {
         log.debug("REST request to get Project : {}", projectName);
-        ProjectDTO projectDTO = projectService.findOneByName(projectName);
-        if (projectDTO != null) {
-            checkPermissionOnProject(getJWT(servletRequest), PROJECT_READ, projectDTO.getProjectName());
+        // the permission check needs only the project name, so it is done before the database
+        // is accessed
+        checkPermissionOnProject(getAuthorizationContext(servletRequest), PROJECT_READ,
+            projectName);
+        if (webRequest.checkNotModified(
+                catalogVersionService.getETag(Catalog.PROJECT_SOURCE_TYPES))) {
+            return null;
         }
-        return projectService.findSourceTypesById(projectDTO.getId());
+        ProjectDTO projectDTO = projectService.findOneByName(projectName);
+        return ResponseEntity.ok(projectService.findSourceTypesById(projectDTO.getId()));
     }
 
 
@@ -192,7 +228,7 @@ public class ProjectResource {
         log.debug("REST request to delete Project : {}", projectName);
         ProjectDTO projectDTO = projectService.findOneByName(projectName);
         if (projectDTO != null) {
-            checkPermissionOnProject(getJWT(servletRequest), PROJECT_DELETE, projectDTO.getProjectName());
+            checkPermissionOnProject(getAuthorizationContext(servletRequest), PROJECT_DELETE, projectDTO.getProjectName());
         }
         projectService.delete(projectDTO.getId());
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, projectName)).build();
@@ -209,7 +245,7 @@ public class ProjectResource {
         log.debug("REST request to get all Roles for project {}", projectName);
         ProjectDTO projectDTO = projectService.findOneByName(projectName);
         if (projectDTO != null) {
-            checkPermissionOnProject(getJWT(servletRequest), ROLE_READ, projectDTO.getProjectName());
+            checkPermissionOnProject(getAuthorizationContext(servletRequest), ROLE_READ, projectDTO.getProjectName());
         }
         return roleService.getRolesByProject(projectName);
     }
@@ -217,18 +253,31 @@ public class ProjectResource {
     /**
      * GET  /projects/{projectName}/sources : get all the sources by project
      *
-     * @return the ResponseEntity with status 200 (OK) and the list of sources in body
+     * <p>With {@code stream=true} or an {@code application/x-ndjson} Accept header, the sources
+     * are streamed as newline delimited JSON instead.</p>
+     *
+     * @return the ResponseEntity with status 200 (OK) and the list of sources in body, or null
+     *         if the sources were streamed
+     * @throws IOException if the sources can not be streamed
      */
     @GetMapping("/projects/{projectName}/sources")
     @Timed
     public ResponseEntity getAllSourcesForProject(@PathVariable String projectName,
             @RequestParam(value = "assigned", required = false) Boolean assigned,
             @RequestParam(name = "minimized", required = false, defaultValue = "false") Boolean
-            minimized) {
+            minimized,
+            @RequestParam(name = "stream", required = false) Boolean stream,
+            HttpServletResponse response) throws IOException {
         log.debug("REST request to get all Sources");
         ProjectDTO projectDTO = projectService.findOneByName(projectName);
         if (projectDTO != null) {
-            checkPermissionOnProject(getJWT(servletRequest), SOURCE_READ, projectDTO.getProjectName());
+            checkPermissionOnProject(getAuthorizationContext(servletRequest), SOURCE_READ, projectDTO.getProjectName());
+        }
+
+        if (NdjsonUtil.isStreamRequested(servletRequest, stream)) {
+            NdjsonUtil.write(response, objectMapper, consumer -> sourceService
+                .streamAllByProject(projectDTO.getId(), assigned, minimized, consumer));
+            return null;
         }
 
         if(Objects.nonNull(assigned)) {
@@ -252,12 +301,49 @@ public class ProjectResource {
         }
     }
 
+    /**
+     * GET  /projects/:projectName/subjects : get all subjects of a project.
+     *
+     * <p>With {@code minimized=true}, a page of subjects with only their scalar fields and
+     * project is returned instead, with pagination link headers.</p>
+     *
+     * <p>Otherwise, with {@code stream=true} or an {@code application/x-ndjson} Accept header,
+     * the subjects are streamed as newline delimited JSON.</p>
+     *
+     * @param projectName the name of the project
+     * @param minimized whether to get a page of minimal subjects
+     * @param pageable the pagination information, used only if minimized is true
+     * @param stream whether to stream the subjects as newline delimited JSON
+     * @param response the response to stream the subjects to
+     * @return the ResponseEntity with status 200 (OK) and the list of subjects in body, with
+     *         status 400 (Bad Request) if minimal subjects are sorted by an unsupported property,
+     *         or null if the subjects were streamed
+     * @throws IOException if the subjects can not be streamed
+     */
     @GetMapping("/projects/{projectName}/subjects")
     @Timed
-    public ResponseEntity<List<SubjectDTO>> getAllSubjects(@PathVariable String projectName) {
-        checkPermissionOnProject(SecurityUtils.getJWT(servletRequest), Permission.SUBJECT_READ,
+    public ResponseEntity<?> getAllSubjects(@PathVariable String projectName,
+            @RequestParam(name = "minimized", required = false, defaultValue = "false") Boolean
+                minimized,
+            @ApiParam Pageable pageable,
+            @RequestParam(name = "stream", required = false) Boolean stream,
+            HttpServletResponse response) throws IOException {
+        checkPermissionOnProject(getAuthorizationContext(servletRequest), Permission.SUBJECT_READ,
             projectName);
         log.debug("REST request to get all subjects for project {}", projectName);
+        if (minimized) {
+            Page<MinimalSubjectDTO> page = subjectService.findAllMinimalByProject(projectName,
+                pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page,
+                UriComponentsBuilder.fromPath("/api/projects").pathSegment(projectName, "subjects")
+                    .queryParam("minimized", true));
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        }
+        if (NdjsonUtil.isStreamRequested(servletRequest, stream)) {
+            NdjsonUtil.write(response, objectMapper,
+                consumer -> subjectService.streamAll(projectName, consumer));
+            return null;
+        }
         List<Subject> subjects = subjectRepository.findAllByProjectName(projectName);
         return ResponseUtil
             .wrapOrNotFound(Optional.of(subjectMapper.subjectsToSubjectDTOs(subjects)));
@@ -30,7 +30,7 @@ import static org.radarcns.auth.authorization.Permission.ROLE_CREATE;
 import static org.radarcns.auth.authorization.Permission.ROLE_READ;
 import static org.radarcns.auth.authorization.Permission.ROLE_UPDATE;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermissionOnProject;
-import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.security.SecurityUtils.getAuthorizationContext;
 
 /**
  * REST controller for managing Role.
@@ -60,7 +60,7 @@ public class RoleResource {
     @Timed
     public ResponseEntity<RoleDTO> createRole(@Valid @RequestBody RoleDTO roleDTO) throws URISyntaxException {
         log.debug("REST request to save Role : {}", roleDTO);
-        checkPermissionOnProject(getJWT(servletRequest), ROLE_CREATE, roleDTO.getProjectName());
+        checkPermissionOnProject(getAuthorizationContext(servletRequest), ROLE_CREATE, roleDTO.getProjectName());
         if (roleDTO.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "idexists", "A new role cannot already have an ID")).body(null);
         }
@@ -86,7 +86,7 @@ public class RoleResource {
         if (roleDTO.getId() == null) {
             return createRole(roleDTO);
         }
-        checkPermissionOnProject(getJWT(servletRequest), ROLE_UPDATE, roleDTO.getProjectName());
+        checkPermissionOnProject(getAuthorizationContext(servletRequest), ROLE_UPDATE, roleDTO.getProjectName());
         RoleDTO result = roleService.save(roleDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, roleDTO.getId().toString()))
@@ -129,7 +129,7 @@ public class RoleResource {
     @Timed
     public ResponseEntity<RoleDTO> getRole(@PathVariable String projectName,
         @PathVariable String authorityName) {
-        checkPermissionOnProject(getJWT(servletRequest), ROLE_READ, projectName);
+        checkPermissionOnProject(getAuthorizationContext(servletRequest), ROLE_READ, projectName);
         return ResponseUtil.wrapOrNotFound(roleService
             .findOneByProjectNameAndAuthorityName(projectName, authorityName));
     }
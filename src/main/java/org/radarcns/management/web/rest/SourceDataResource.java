@@ -5,7 +5,7 @@ import static org.radarcns.auth.authorization.Permission.SOURCEDATA_DELETE;
 import static org.radarcns.auth.authorization.Permission.SOURCEDATA_READ;
 import static org.radarcns.auth.authorization.Permission.SOURCEDATA_UPDATE;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
-import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.security.SecurityUtils.getAuthorizationContext;
 
 import com.codahale.metrics.annotation.Timed;
 import io.github.jhipster.web.util.ResponseUtil;
@@ -15,6 +15,8 @@ import java.util.List;
 import java.util.Optional;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import org.radarcns.management.service.CatalogVersionService;
+import org.radarcns.management.service.CatalogVersionService.Catalog;
 import org.radarcns.management.service.SourceDataService;
 import org.radarcns.management.service.dto.SourceDataDTO;
 import org.radarcns.management.web.rest.util.HeaderUtil;
@@ -30,6 +32,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * REST controller for managing SourceData.
@@ -48,6 +51,9 @@ public class SourceDataResource {
     @Autowired
     private HttpServletRequest servletRequest;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     /**
      * POST  /source-data : Create a new sourceData.
      *
@@ -59,7 +65,7 @@ public class SourceDataResource {
     @Timed
     public ResponseEntity<SourceDataDTO> createSourceData(@Valid @RequestBody SourceDataDTO sourceDataDTO) throws URISyntaxException {
         log.debug("REST request to save SourceData : {}", sourceDataDTO);
-        checkPermission(getJWT(servletRequest), SOURCEDATA_CREATE);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCEDATA_CREATE);
         if (sourceDataDTO.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "idexists", "A new sourceData cannot already have an ID")).body(null);
         }
@@ -90,7 +96,7 @@ public class SourceDataResource {
         if (sourceDataDTO.getId() == null) {
             return createSourceData(sourceDataDTO);
         }
-        checkPermission(getJWT(servletRequest), SOURCEDATA_UPDATE);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCEDATA_UPDATE);
         SourceDataDTO result = sourceDataService.save(sourceDataDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, sourceDataDTO.getId().toString()))
@@ -100,14 +106,22 @@ public class SourceDataResource {
     /**
      * GET  /source-data : get all the sourceData.
      *
-     * @return the ResponseEntity with status 200 (OK) and the list of sourceData in body
+     * <p>The list is returned with an ETag; if it matches the If-None-Match header, status
+     * 304 (Not Modified) is returned without reading the sourceData.</p>
+     *
+     * @param webRequest the request, to check the If-None-Match header
+     * @return the ResponseEntity with status 200 (OK) and the list of sourceData in body, or
+     *         null if not modified
      */
     @GetMapping("/source-data")
     @Timed
-    public List<SourceDataDTO> getAllSourceData() {
+    public ResponseEntity<List<SourceDataDTO>> getAllSourceData(WebRequest webRequest) {
         log.debug("REST request to get all SourceData");
-        checkPermission(getJWT(servletRequest), SOURCEDATA_READ);
-        return sourceDataService.findAll();
+        checkPermission(getAuthorizationContext(servletRequest), SOURCEDATA_READ);
+        if (webRequest.checkNotModified(catalogVersionService.getETag(Catalog.SOURCE_DATA))) {
+            return null;
+        }
+        return ResponseEntity.ok(sourceDataService.findAll());
     }
 
     /**
@@ -119,7 +133,7 @@ public class SourceDataResource {
     @GetMapping("/source-data/{sourceDataName}")
     @Timed
     public ResponseEntity<SourceDataDTO> getSourceData(@PathVariable String sourceDataName) {
-        checkPermission(getJWT(servletRequest), SOURCEDATA_READ);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCEDATA_READ);
         return ResponseUtil.wrapOrNotFound(sourceDataService.findOneBySourceDataName(sourceDataName));
     }
 
@@ -132,7 +146,7 @@ public class SourceDataResource {
     @DeleteMapping("/source-data/{sourceDataName}")
     @Timed
     public ResponseEntity<Void> deleteSourceData(@PathVariable String sourceDataName) {
-        checkPermission(getJWT(servletRequest), SOURCEDATA_DELETE);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCEDATA_DELETE);
         Optional<SourceDataDTO> sourceDataDTO = sourceDataService.findOneBySourceDataName(sourceDataName);
         if (!sourceDataDTO.isPresent()) {
             return ResponseEntity.notFound().build();
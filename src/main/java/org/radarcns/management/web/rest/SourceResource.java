@@ -1,6 +1,7 @@
 package org.radarcns.management.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.radarcns.auth.authorization.AuthoritiesConstants;
 import org.radarcns.management.repository.SourceRepository;
@@ -11,6 +12,7 @@ import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
 import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.dto.SourceDTO;
 import org.radarcns.management.web.rest.util.HeaderUtil;
+import org.radarcns.management.web.rest.util.NdjsonUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +30,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -40,7 +44,7 @@ import static org.radarcns.auth.authorization.Permission.SOURCE_READ;
 import static org.radarcns.auth.authorization.Permission.SOURCE_UPDATE;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermissionOnProject;
-import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.security.SecurityUtils.getAuthorizationContext;
 
 /**
  * REST controller for managing Source.
@@ -68,6 +72,9 @@ public class SourceResource {
     @Autowired
     private ProjectService projectService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * POST  /sources : Create a new source.
      *
@@ -79,7 +86,7 @@ public class SourceResource {
     @Timed
     public ResponseEntity<SourceDTO> createSource(@Valid @RequestBody SourceDTO sourceDTO) throws URISyntaxException {
         log.debug("REST request to save Source : {}", sourceDTO);
-        checkPermission(getJWT(servletRequest), SOURCE_CREATE);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCE_CREATE);
         if (sourceDTO.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "idexists", "A new source cannot already have an ID")).body(null);
         } else if (sourceDTO.getSourceId() != null) {
@@ -119,7 +126,7 @@ public class SourceResource {
         if (sourceDTO.getId() == null) {
             return createSource(sourceDTO);
         }
-        checkPermission(getJWT(servletRequest), SOURCE_UPDATE);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCE_UPDATE);
         SourceDTO result = sourceService.save(sourceDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, sourceDTO.getId().toString()))
@@ -129,13 +136,26 @@ public class SourceResource {
     /**
      * GET  /sources : get all the sources.
      *
-     * @return the ResponseEntity with status 200 (OK) and the list of sources in body
+     * <p>With {@code stream=true} or an {@code application/x-ndjson} Accept header, the sources
+     * are streamed as newline delimited JSON instead.</p>
+     *
+     * @param stream whether to stream the sources as newline delimited JSON
+     * @param response the response to stream the sources to
+     * @return the ResponseEntity with status 200 (OK) and the list of sources in body, or null
+     *         if the sources were streamed
+     * @throws IOException if the sources can not be streamed
      */
     @GetMapping("/sources")
     @Timed
-    public ResponseEntity<List<SourceDTO>> getAllSources() {
+    public ResponseEntity<List<SourceDTO>> getAllSources(
+            @RequestParam(name = "stream", required = false) Boolean stream,
+            HttpServletResponse response) throws IOException {
         log.debug("REST request to get all Sources");
-        checkPermission(getJWT(servletRequest), SOURCE_READ);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCE_READ);
+        if (NdjsonUtil.isStreamRequested(servletRequest, stream)) {
+            NdjsonUtil.write(response, objectMapper, sourceService::streamAll);
+            return null;
+        }
         return ResponseUtil.wrapOrNotFound(Optional.of(sourceService.findAll()));
     }
 
@@ -149,7 +169,7 @@ public class SourceResource {
     @Timed
     public ResponseEntity<SourceDTO> getSource(@PathVariable String sourceName) {
         log.debug("REST request to get Source : {}", sourceName);
-        checkPermission(getJWT(servletRequest), SOURCE_READ);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCE_READ);
         return ResponseUtil.wrapOrNotFound(sourceService.findOneByName(sourceName));
     }
 
@@ -163,7 +183,7 @@ public class SourceResource {
     @Timed
     public ResponseEntity<Void> deleteSource(@PathVariable String sourceName) {
         log.debug("REST request to delete Source : {}", sourceName);
-        checkPermission(getJWT(servletRequest), SOURCE_DELETE);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCE_DELETE);
         Optional<SourceDTO> sourceDTO = sourceService.findOneByName(sourceName);
         if (!sourceDTO.isPresent()) {
             return ResponseEntity.notFound().build();
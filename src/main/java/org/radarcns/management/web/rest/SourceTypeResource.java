@@ -1,13 +1,17 @@
 package org.radarcns.management.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jhipster.web.util.ResponseUtil;
 import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.CatalogVersionService;
+import org.radarcns.management.service.CatalogVersionService.Catalog;
 import org.radarcns.management.service.SourceTypeService;
 import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.web.rest.errors.CustomConflictException;
 import org.radarcns.management.web.rest.util.HeaderUtil;
+import org.radarcns.management.web.rest.util.NdjsonUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,9 +23,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -36,7 +44,7 @@ import static org.radarcns.auth.authorization.Permission.SOURCETYPE_DELETE;
 import static org.radarcns.auth.authorization.Permission.SOURCETYPE_READ;
 import static org.radarcns.auth.authorization.Permission.SOURCETYPE_UPDATE;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
-import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.security.SecurityUtils.getAuthorizationContext;
 
 /**
  * REST controller for managing SourceType.
@@ -58,6 +66,12 @@ public class SourceTypeResource {
     @Autowired
     private HttpServletRequest servletRequest;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     /**
      * POST  /source-types : Create a new sourceType.
      *
@@ -69,7 +83,7 @@ public class SourceTypeResource {
     @Timed
     public ResponseEntity<SourceTypeDTO> createSourceType(@Valid @RequestBody SourceTypeDTO sourceTypeDTO) throws URISyntaxException {
         log.debug("REST request to save SourceType : {}", sourceTypeDTO);
-        checkPermission(getJWT(servletRequest), SOURCETYPE_CREATE);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCETYPE_CREATE);
         if (sourceTypeDTO.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "idexists", "A new sourceType cannot already have an ID")).body(null);
         }
@@ -105,7 +119,7 @@ public class SourceTypeResource {
         if (sourceTypeDTO.getId() == null) {
             return createSourceType(sourceTypeDTO);
         }
-        checkPermission(getJWT(servletRequest), SOURCETYPE_UPDATE);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCETYPE_UPDATE);
         SourceTypeDTO result = sourceTypeService.save(sourceTypeDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, sourceTypeDTO.getId().toString()))
@@ -115,12 +129,32 @@ public class SourceTypeResource {
     /**
      * GET  /source-types : get all the sourceTypes.
      *
-     * @return the ResponseEntity with status 200 (OK) and the list of sourceTypes in body
+     * <p>With {@code stream=true} or an {@code application/x-ndjson} Accept header, the
+     * sourceTypes are streamed as newline delimited JSON instead.</p>
+     *
+     * <p>The list is returned with an ETag; if it matches the If-None-Match header, status
+     * 304 (Not Modified) is returned without reading the sourceTypes.</p>
+     *
+     * @param stream whether to stream the sourceTypes as newline delimited JSON
+     * @param webRequest the request, to check the If-None-Match header
+     * @param response the response to stream the sourceTypes to
+     * @return the ResponseEntity with status 200 (OK) and the list of sourceTypes in body, or
+     *         null if the sourceTypes were streamed or not modified
+     * @throws IOException if the sourceTypes can not be streamed
      */
     @GetMapping("/source-types")
     @Timed
-    public ResponseEntity<List<SourceTypeDTO>> getAllSourceTypes() {
-        checkPermission(getJWT(servletRequest), SOURCETYPE_READ);
+    public ResponseEntity<List<SourceTypeDTO>> getAllSourceTypes(
+            @RequestParam(name = "stream", required = false) Boolean stream,
+            WebRequest webRequest, HttpServletResponse response) throws IOException {
+        checkPermission(getAuthorizationContext(servletRequest), SOURCETYPE_READ);
+        if (NdjsonUtil.isStreamRequested(servletRequest, stream)) {
+            NdjsonUtil.write(response, objectMapper, sourceTypeService::streamAll);
+            return null;
+        }
+        if (webRequest.checkNotModified(catalogVersionService.getETag(Catalog.SOURCE_TYPES))) {
+            return null;
+        }
         return ResponseEntity.ok(sourceTypeService.findAll());
     }
 
@@ -132,7 +166,7 @@ public class SourceTypeResource {
     @GetMapping("/source-types/{producer}")
     @Timed
     public ResponseEntity<List<SourceTypeDTO>> getSourceTypes(@PathVariable String producer) {
-        checkPermission(getJWT(servletRequest), SOURCETYPE_READ);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCETYPE_READ);
         return ResponseEntity.ok(sourceTypeService.findByProducer(producer));
     }
 
@@ -148,7 +182,7 @@ public class SourceTypeResource {
     @Timed
     public ResponseEntity<List<SourceTypeDTO>> getSourceTypes(@PathVariable String producer,
             @PathVariable String model) {
-        checkPermission(getJWT(servletRequest), SOURCETYPE_READ);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCETYPE_READ);
         return ResponseEntity.ok(sourceTypeService.findByProducerAndModel(producer, model));
     }
 
@@ -164,7 +198,7 @@ public class SourceTypeResource {
     @Timed
     public ResponseEntity<SourceTypeDTO> getSourceTypes(@PathVariable String producer,
         @PathVariable String model, @PathVariable String version) {
-        checkPermission(getJWT(servletRequest), SOURCETYPE_READ);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCETYPE_READ);
         return ResponseUtil.wrapOrNotFound(Optional.ofNullable(
             sourceTypeService.findByProducerAndModelAndVersion(producer, model, version)));
     }
@@ -182,7 +216,7 @@ public class SourceTypeResource {
     @Timed
     public ResponseEntity<Void> deleteSourceType(@PathVariable String producer,
         @PathVariable String model, @PathVariable String version) {
-        checkPermission(getJWT(servletRequest), SOURCETYPE_DELETE);
+        checkPermission(getAuthorizationContext(servletRequest), SOURCETYPE_DELETE);
         SourceTypeDTO sourceTypeDTO = sourceTypeService
             .findByProducerAndModelAndVersion(producer, model, version);
         if (Objects.isNull(sourceTypeDTO)) {
@@ -1,31 +1,44 @@
 package org.radarcns.management.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import io.github.jhipster.web.util.ResponseUtil;
+import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.radarcns.auth.authorization.AuthoritiesConstants;
 import org.radarcns.auth.authorization.Permission;
-import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.domain.Role;
 import org.radarcns.management.domain.Subject;
-import org.radarcns.management.repository.ProjectRepository;
 import org.radarcns.management.repository.SubjectRepository;
 import org.radarcns.management.security.SecurityUtils;
-import org.radarcns.management.service.SourceTypeService;
+import org.radarcns.management.service.CatalogSnapshotService;
+import org.radarcns.management.service.ProjectService;
 import org.radarcns.management.service.SubjectService;
 import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
+import org.radarcns.management.service.dto.MinimalSubjectDTO;
+import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.dto.SubjectDTO;
+import org.radarcns.management.service.dto.SubjectEnrollmentResultDTO;
 import org.radarcns.management.service.mapper.SubjectMapper;
 import org.radarcns.management.web.rest.errors.CustomParameterizedException;
 import org.radarcns.management.web.rest.util.HeaderUtil;
+import org.radarcns.management.web.rest.util.NdjsonUtil;
+import org.radarcns.management.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -36,14 +49,21 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static org.radarcns.auth.authorization.Permission.SUBJECT_CREATE;
@@ -53,7 +73,7 @@ import static org.radarcns.auth.authorization.Permission.SUBJECT_UPDATE;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermissionOnProject;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermissionOnSubject;
-import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.security.SecurityUtils.getAuthorizationContext;
 
 /**
  * REST controller for managing Subject.
@@ -66,6 +86,11 @@ public class SubjectResource {
 
     private static final String ENTITY_NAME = "subject";
 
+    /** Maximum number of subjects in a single bulk enrollment. */
+    public static final int MAX_BULK_ENROLLMENT_SIZE = 10000;
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
     @Autowired
     private SubjectService subjectService;
 
@@ -76,10 +101,7 @@ public class SubjectResource {
     private SubjectMapper subjectMapper;
 
     @Autowired
-    private ProjectRepository projectRepository;
-
-    @Autowired
-    private SourceTypeService sourceTypeService;
+    private ProjectService projectService;
 
     @Autowired
     private HttpServletRequest servletRequest;
@@ -87,6 +109,12 @@ public class SubjectResource {
     @Autowired
     private AuditEventRepository eventRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
     /**
      * POST  /subjects : Create a new subject.
      *
@@ -105,7 +133,7 @@ public class SubjectResource {
                     .createFailureAlert(ENTITY_NAME, "projectrequired",
                             "A subject should be assigned to a project")).body(null);
         }
-        checkPermissionOnProject(getJWT(servletRequest), SUBJECT_CREATE,
+        checkPermissionOnProject(getAuthorizationContext(servletRequest), SUBJECT_CREATE,
                 subjectDTO.getProject().getProjectName());
 
         if (subjectDTO.getId() != null) {
@@ -132,6 +160,117 @@ public class SubjectResource {
             .body(result);
     }
 
+    /**
+     * POST  /projects/:projectName/subjects/bulk : Enroll many subjects in a project at once.
+     * The body is a JSON array of subjects, which is read one subject at a time so that an
+     * enrollment over the limit is rejected without binding the whole array.
+     *
+     * @param projectName the project to enroll the subjects in
+     * @param json the JSON body with the subjects to create; project, id and sources are ignored
+     * @return the ResponseEntity with status 200 (OK) and with body a result per subject, in
+     * request order, or with status 404 (Not Found) if the project does not exist
+     * @throws IOException if the JSON can not be read
+     */
+    @PostMapping(value = "/projects/{projectName}/subjects/bulk",
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SubjectEnrollmentResultDTO>> createSubjects(
+            @PathVariable String projectName, InputStream json) throws IOException {
+        checkPermissionOnProject(getAuthorizationContext(servletRequest), SUBJECT_CREATE,
+                projectName);
+        MappingIterator<SubjectDTO> subjects = objectMapper.readerFor(SubjectDTO.class)
+                .readValues(json);
+        return enrollSubjects(projectName, readSubjects(subjects, Function.identity()));
+    }
+
+    /**
+     * POST  /projects/:projectName/subjects/bulk : Enroll many subjects in a project at once
+     * from CSV. The first line must be a header; the columns login, externalId and externalLink
+     * are mapped to the corresponding subject fields and all other non-empty columns are stored
+     * as subject attributes.
+     *
+     * @param projectName the project to enroll the subjects in
+     * @param csv the CSV body
+     * @return the ResponseEntity with status 200 (OK) and with body a result per row, in
+     * request order, or with status 404 (Not Found) if the project does not exist
+     * @throws IOException if the CSV can not be read
+     */
+    @PostMapping(value = "/projects/{projectName}/subjects/bulk", consumes = TEXT_CSV_VALUE)
+    @Timed
+    public ResponseEntity<List<SubjectEnrollmentResultDTO>> createSubjectsFromCsv(
+            @PathVariable String projectName, InputStream csv) throws IOException {
+        checkPermissionOnProject(getAuthorizationContext(servletRequest), SUBJECT_CREATE,
+                projectName);
+        MappingIterator<Map<String, String>> rows = new CsvMapper()
+                .readerFor(Map.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(csv);
+        return enrollSubjects(projectName,
+                readSubjects(rows, SubjectResource::subjectFromCsvRow));
+    }
+
+    /**
+     * Enroll subjects that were read from a bulk request. The caller must have checked the
+     * permission to create subjects in the project.
+     */
+    private ResponseEntity<List<SubjectEnrollmentResultDTO>> enrollSubjects(String projectName,
+            List<SubjectDTO> subjectDTOs) {
+        log.debug("REST request to enroll {} subjects in project {}", subjectDTOs.size(),
+                projectName);
+        ProjectDTO projectDTO = projectService.findOneByName(projectName);
+        if (projectDTO == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(subjectService.createSubjects(projectDTO, subjectDTOs));
+    }
+
+    /**
+     * Read the subjects of a bulk request, failing as soon as there are more than
+     * {@link #MAX_BULK_ENROLLMENT_SIZE}.
+     */
+    private static <T> List<SubjectDTO> readSubjects(MappingIterator<T> values,
+            Function<T, SubjectDTO> toSubject) throws IOException {
+        List<SubjectDTO> subjectDTOs = new ArrayList<>();
+        try (MappingIterator<T> iterator = values) {
+            while (iterator.hasNextValue()) {
+                if (subjectDTOs.size() >= MAX_BULK_ENROLLMENT_SIZE) {
+                    throw tooManySubjects();
+                }
+                subjectDTOs.add(toSubject.apply(iterator.nextValue()));
+            }
+        }
+        return subjectDTOs;
+    }
+
+    private static SubjectDTO subjectFromCsvRow(Map<String, String> row) {
+        SubjectDTO subjectDTO = new SubjectDTO();
+        row.forEach((column, value) -> {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            switch (column) {
+                case "login":
+                    subjectDTO.setLogin(value);
+                    break;
+                case "externalId":
+                    subjectDTO.setExternalId(value);
+                    break;
+                case "externalLink":
+                    subjectDTO.setExternalLink(value);
+                    break;
+                default:
+                    subjectDTO.getAttributes().put(column, value);
+                    break;
+            }
+        });
+        return subjectDTO;
+    }
+
+    private static CustomParameterizedException tooManySubjects() {
+        return new CustomParameterizedException("Too many subjects in a single enrollment",
+                Integer.toString(MAX_BULK_ENROLLMENT_SIZE));
+    }
+
     /**
      * PUT  /subjects : Updates an existing subject.
      *
@@ -152,11 +291,11 @@ public class SubjectResource {
                             "A subject should be assigned to a project")).body(null);
         }
         if (subjectDTO.getId() == null) {
-            checkPermissionOnProject(getJWT(servletRequest), SUBJECT_CREATE,
+            checkPermissionOnProject(getAuthorizationContext(servletRequest), SUBJECT_CREATE,
                     subjectDTO.getProject().getProjectName());
             return createSubject(subjectDTO);
         }
-        checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_UPDATE,
+        checkPermissionOnSubject(getAuthorizationContext(servletRequest), SUBJECT_UPDATE,
                 subjectDTO.getProject().getProjectName(), subjectDTO.getLogin());
         SubjectDTO result = subjectService.updateSubject(subjectDTO);
         return ResponseEntity.ok()
@@ -190,7 +329,7 @@ public class SubjectResource {
                 .createFailureAlert(ENTITY_NAME, "projectrequired",
                     "A subject should be assigned to a project")).body(null);
         }
-        checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_UPDATE,
+        checkPermissionOnSubject(getAuthorizationContext(servletRequest), SUBJECT_UPDATE,
                 subjectDTO.getProject().getProjectName(), subjectDTO.getLogin());
 
         // In principle this is already captured by the PostUpdate event listener, adding this
@@ -207,15 +346,54 @@ public class SubjectResource {
     /**
      * GET  /subjects : get all the subjects.
      *
-     * @return the ResponseEntity with status 200 (OK) and the list of subjects in body
+     * <p>With {@code minimized=true}, a page of subjects with only their scalar fields and
+     * project is returned instead, with pagination link headers. Sources and attributes are then
+     * not included.</p>
+     *
+     * <p>Otherwise, if no externalId is given, with {@code stream=true} or an
+     * {@code application/x-ndjson} Accept header, the subjects are streamed as newline delimited
+     * JSON.</p>
+     *
+     * @param projectName only get the subjects of this project
+     * @param externalId only get the subjects with this external id
+     * @param minimized whether to get a page of minimal subjects
+     * @param pageable the pagination information, used only if minimized is true
+     * @param stream whether to stream the subjects as newline delimited JSON
+     * @param response the response to stream the subjects to
+     * @return the ResponseEntity with status 200 (OK) and the list of subjects in body, with
+     *         status 400 (Bad Request) if minimal subjects are sorted by an unsupported property,
+     *         or null if the subjects were streamed
+     * @throws IOException if the subjects can not be streamed
      */
     @GetMapping("/subjects")
     @Timed
-    public ResponseEntity<List<SubjectDTO>> getAllSubjects(
+    public ResponseEntity<?> getAllSubjects(
             @RequestParam(value = "projectName", required = false) String projectName,
-            @RequestParam(value = "externalId", required = false) String externalId) {
-        checkPermission(SecurityUtils.getJWT(servletRequest), Permission.SUBJECT_READ);
+            @RequestParam(value = "externalId", required = false) String externalId,
+            @RequestParam(name = "minimized", required = false, defaultValue = "false") Boolean
+                minimized,
+            @ApiParam Pageable pageable,
+            @RequestParam(name = "stream", required = false) Boolean stream,
+            HttpServletResponse response) throws IOException {
+        checkPermission(getAuthorizationContext(servletRequest), Permission.SUBJECT_READ);
         log.debug("ProjectName {} and external {}", projectName, externalId);
+        if (minimized && externalId == null) {
+            Page<MinimalSubjectDTO> page = projectName == null
+                    ? subjectService.findAllMinimal(pageable)
+                    : subjectService.findAllMinimalByProject(projectName, pageable);
+            UriComponentsBuilder baseUrl = UriComponentsBuilder.fromPath("/api/subjects")
+                    .queryParam("minimized", true);
+            if (projectName != null) {
+                baseUrl.queryParam("projectName", projectName);
+            }
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, baseUrl);
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        }
+        if (externalId == null && NdjsonUtil.isStreamRequested(servletRequest, stream)) {
+            NdjsonUtil.write(response, objectMapper,
+                consumer -> subjectService.streamAll(projectName, consumer));
+            return null;
+        }
         if (projectName != null && externalId != null) {
             Subject subject = subjectRepository
                 .findOneByProjectNameAndExternalId(projectName, externalId).get();
@@ -250,7 +428,7 @@ public class SubjectResource {
             return ResponseEntity.notFound().build();
         }
         SubjectDTO subjectDTO = subjectMapper.subjectToSubjectDTO(subject.get());
-        checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_READ, subjectDTO.getProject()
+        checkPermissionOnSubject(getAuthorizationContext(servletRequest), SUBJECT_READ, subjectDTO.getProject()
             .getProjectName(), subjectDTO.getLogin());
         return ResponseUtil.wrapOrNotFound(Optional.ofNullable(subjectDTO));
     }
@@ -270,7 +448,7 @@ public class SubjectResource {
             return ResponseEntity.notFound().build();
         }
         SubjectDTO subjectDTO = subjectMapper.subjectToSubjectDTO(subject.get());
-        checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_DELETE, subjectDTO.getProject()
+        checkPermissionOnSubject(getAuthorizationContext(servletRequest), SUBJECT_DELETE, subjectDTO.getProject()
             .getProjectName(), subjectDTO.getLogin());
         subjectService.deleteSubject(login);
         return ResponseEntity.ok()
@@ -336,20 +514,19 @@ public class SubjectResource {
                 String model = Objects.requireNonNull(sourceDTO.getSourceTypeModel(), msg);
                 String version = Objects.requireNonNull(sourceDTO.getSourceTypeCatalogVersion(),
                         msg);
-                SourceTypeDTO sourceTypeDTO = sourceTypeService
-                        .findByProducerAndModelAndVersion(producer, model, version);
-                if (Objects.isNull(sourceTypeDTO)) {
+                Optional<SourceTypeDTO> sourceTypeDTO = catalogSnapshotService
+                        .findSourceType(producer, model, version);
+                if (!sourceTypeDTO.isPresent()) {
                     return ResponseEntity.notFound().build();
                 }
-                sourceTypeId = sourceTypeDTO.getId();
+                sourceTypeId = sourceTypeDTO.get().getId();
             } catch (NullPointerException ex) {
                 log.error(ex.getMessage() + ", supplied sourceDTO: " + sourceDTO.toString());
                 throw new CustomParameterizedException(ex.getMessage());
             }
         }
         // find whether the relevant source-type is available in the subject's project
-        Optional<SourceType> sourceType;
-        sourceType = projectRepository.findSourceTypeByProjectIdAndSourceTypeId(
+        Optional<SourceTypeDTO> sourceType = catalogSnapshotService.findProjectSourceType(
                 role.getProject().getId(), sourceTypeId);
 
         if (!sourceType.isPresent()) {
@@ -360,7 +537,7 @@ public class SubjectResource {
                         + " in relevant project")).body(null);
         }
 
-        checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_UPDATE, role.getProject()
+        checkPermissionOnSubject(getAuthorizationContext(servletRequest), SUBJECT_UPDATE, role.getProject()
                 .getProjectName(), sub.getUser().getLogin());
 
         // check if any of id, sourceID, sourceName were non-null
@@ -399,7 +576,7 @@ public class SubjectResource {
         }
 
         SubjectDTO subjectDTO = subjectMapper.subjectToSubjectDTO(subject.get());
-        checkPermissionOnSubject(getJWT(servletRequest), SUBJECT_READ, subjectDTO.getProject()
+        checkPermissionOnSubject(getAuthorizationContext(servletRequest), SUBJECT_READ, subjectDTO.getProject()
                 .getProjectName(), subjectDTO.getLogin());
 
         // handle the source registration
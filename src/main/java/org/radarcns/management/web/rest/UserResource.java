@@ -46,7 +46,7 @@ import static org.radarcns.auth.authorization.Permission.USER_DELETE;
 import static org.radarcns.auth.authorization.Permission.USER_READ;
 import static org.radarcns.auth.authorization.Permission.USER_UPDATE;
 import static org.radarcns.auth.authorization.RadarAuthorization.checkPermission;
-import static org.radarcns.management.security.SecurityUtils.getJWT;
+import static org.radarcns.management.security.SecurityUtils.getAuthorizationContext;
 /**
  * REST controller for managing users.
  *
@@ -110,7 +110,7 @@ public class UserResource {
     @Timed
     public ResponseEntity createUser(@RequestBody ManagedUserVM managedUserVM) throws URISyntaxException {
         log.debug("REST request to save User : {}", managedUserVM);
-        checkPermission(getJWT(servletRequest), USER_CREATE);
+        checkPermission(getAuthorizationContext(servletRequest), USER_CREATE);
         if (managedUserVM.getId() != null) {
             return ResponseEntity.badRequest()
                 .headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "idexists", "A new user cannot already have an ID"))
@@ -149,7 +149,7 @@ public class UserResource {
     @Timed
     public ResponseEntity<UserDTO> updateUser(@RequestBody ManagedUserVM managedUserVM) {
         log.debug("REST request to update User : {}", managedUserVM);
-        checkPermission(getJWT(servletRequest), USER_UPDATE);
+        checkPermission(getAuthorizationContext(servletRequest), USER_UPDATE);
         Optional<User> existingUser = userRepository.findOneByEmail(managedUserVM.getEmail());
         if (existingUser.isPresent() && (!existingUser.get().getId().equals(managedUserVM.getId()))) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "emailexists", "Email already in use")).body(null);
@@ -191,7 +191,7 @@ public class UserResource {
     public ResponseEntity<List<UserDTO>> getAllUsers(@ApiParam Pageable pageable,
         @RequestParam(value = "projectName" , required = false) String projectName,
         @RequestParam(value = "authority" , required = false) String authority) {
-        checkPermission(getJWT(servletRequest), USER_READ);
+        checkPermission(getAuthorizationContext(servletRequest), USER_READ);
         Page<UserDTO> page;
         if (projectName != null && authority != null) {
             page = userService.findAllByProjectNameAndAuthority(pageable, projectName, authority);
@@ -216,7 +216,7 @@ public class UserResource {
     @Timed
     public ResponseEntity<UserDTO> getUser(@PathVariable String login) {
         log.debug("REST request to get User : {}", login);
-        checkPermission(getJWT(servletRequest), USER_READ);
+        checkPermission(getAuthorizationContext(servletRequest), USER_READ);
         return ResponseUtil.wrapOrNotFound(
             userService.getUserWithAuthoritiesByLogin(login));
     }
@@ -230,7 +230,7 @@ public class UserResource {
     @Timed
     public List<ProjectDTO> getUserProjects(@PathVariable String login) {
         log.debug("REST request to get User's project : {}", login);
-        checkPermission(getJWT(servletRequest), PROJECT_READ);
+        checkPermission(getAuthorizationContext(servletRequest), PROJECT_READ);
         return userService.getProjectsAssignedToUser(login);
     }
 
@@ -244,7 +244,7 @@ public class UserResource {
     @Timed
     public ResponseEntity<Void> deleteUser(@PathVariable String login) {
         log.debug("REST request to delete User: {}", login);
-        checkPermission(getJWT(servletRequest), USER_DELETE);
+        checkPermission(getAuthorizationContext(servletRequest), USER_DELETE);
         userService.deleteUser(login);
         return ResponseEntity.ok().headers(HeaderUtil.createAlert( "userManagement.deleted", login)).build();
     }
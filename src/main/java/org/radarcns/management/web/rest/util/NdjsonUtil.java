@@ -0,0 +1,101 @@
+package org.radarcns.management.web.rest.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Utility class for streaming list responses as newline delimited JSON.
+ *
+ * <p>
+ * List endpoints that support streaming write one JSON object per line while the entities are
+ * read from the database, instead of collecting the full list in memory first. A client opts in
+ * with an {@code Accept: application/x-ndjson} header or a {@code stream=true} request parameter.
+ */
+public final class NdjsonUtil {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+    /** Number of written values after which the response is flushed to the client. */
+    private static final int FLUSH_INTERVAL = 500;
+
+    private NdjsonUtil() {
+    }
+
+    /**
+     * Whether the client requested a streaming response, either with the stream parameter or by
+     * explicitly accepting newline delimited JSON. Wildcard accept headers do not count.
+     *
+     * @param request the current request
+     * @param stream value of the stream request parameter, may be null
+     * @return true if the response should be streamed
+     */
+    public static boolean isStreamRequested(HttpServletRequest request, Boolean stream) {
+        if (Boolean.TRUE.equals(stream)) {
+            return true;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(type -> APPLICATION_NDJSON.getType().equals(type.getType())
+                    && APPLICATION_NDJSON.getSubtype().equals(type.getSubtype()));
+        } catch (InvalidMediaTypeException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Write all values that a producer passes to its consumer to the response, one JSON value per
+     * line. The response is flushed every {@value #FLUSH_INTERVAL} values. The producer
+     * typically reads from a database cursor within a transaction, for example
+     * {@code sourceService::streamAll}.
+     *
+     * @param response the response to write to
+     * @param objectMapper mapper to serialize values with
+     * @param producer passes each value to write to the given consumer
+     * @param <T> type of value to write
+     * @throws IOException if the response can not be written
+     */
+    public static <T> void write(HttpServletResponse response, ObjectMapper objectMapper,
+            Consumer<Consumer<T>> producer) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        // flush in intervals instead of after every value
+        ObjectWriter writer = objectMapper.writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            int[] count = {0};
+            producer.accept(value -> {
+                try {
+                    writer.writeValue(generator, value);
+                    generator.writeRaw('\n');
+                    if (++count[0] % FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+}
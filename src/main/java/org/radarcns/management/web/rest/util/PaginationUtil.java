@@ -17,6 +17,19 @@ public final class PaginationUtil {
     }
 
     public static HttpHeaders generatePaginationHttpHeaders(Page page, String baseUrl) {
+        return generatePaginationHttpHeaders(page, UriComponentsBuilder.fromUriString(baseUrl));
+    }
+
+    /**
+     * Generate the pagination headers for a resource with query parameters. The parameter values
+     * of the builder are encoded in the links, so they may contain any character.
+     *
+     * @param page the page
+     * @param baseUrl builder of the url of the resource, which is not modified
+     * @return the headers
+     */
+    public static HttpHeaders generatePaginationHttpHeaders(Page page,
+            UriComponentsBuilder baseUrl) {
 
         HttpHeaders headers = new HttpHeaders();
         headers.add("X-Total-Count", "" + Long.toString(page.getTotalElements()));
@@ -39,7 +52,26 @@ public final class PaginationUtil {
         return headers;
     }
 
-    private static String generateUri(String baseUrl, int page, int size) {
-        return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
+    /**
+     * Generate the headers of a page retrieved with a cursor. Such a page has no total count, only
+     * a link to the next page, if there is one.
+     *
+     * @param nextCursor cursor of the next page, or {@code null} if this is the last page
+     * @param size page size
+     * @param baseUrl url of the resource
+     * @return the headers
+     */
+    public static HttpHeaders generateCursorPaginationHttpHeaders(String nextCursor, int size, String baseUrl) {
+        HttpHeaders headers = new HttpHeaders();
+        if (nextCursor != null) {
+            headers.add("X-Next-Cursor", nextCursor);
+            headers.add(HttpHeaders.LINK, "<" + UriComponentsBuilder.fromUriString(baseUrl)
+                .queryParam("cursor", nextCursor).queryParam("size", size).toUriString() + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+
+    private static String generateUri(UriComponentsBuilder baseUrl, int page, int size) {
+        return baseUrl.cloneBuilder().queryParam("page", page).queryParam("size", size).toUriString();
     }
 }
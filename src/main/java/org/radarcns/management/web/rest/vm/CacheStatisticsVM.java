@@ -0,0 +1,147 @@
+package org.radarcns.management.web.rest.vm;
+
+import com.hazelcast.monitor.LocalMapStats;
+import com.hazelcast.monitor.NearCacheStats;
+
+/**
+ * View Model object for the statistics of a cache region on this member.
+ */
+public class CacheStatisticsVM {
+
+    private String name;
+
+    private long entries;
+
+    private long hits;
+
+    private long gets;
+
+    private double hitRatio;
+
+    private long evictions;
+
+    private Long nearCacheEntries;
+
+    private Long nearCacheHits;
+
+    private Long nearCacheMisses;
+
+    private Double nearCacheHitRatio;
+
+    /**
+     * Statistics of a Hazelcast map.
+     * @param name name of the map
+     * @param stats statistics of the map on this member
+     * @param evictions number of entries evicted from the map on this member
+     */
+    public CacheStatisticsVM(String name, LocalMapStats stats, long evictions) {
+        this.name = name;
+        this.entries = stats.getOwnedEntryCount();
+        this.hits = stats.getHits();
+        this.gets = stats.getGetOperationCount();
+        this.hitRatio = gets == 0 ? 0.0 : Math.min(1.0, (double) hits / gets);
+        this.evictions = evictions;
+        NearCacheStats nearCacheStats = stats.getNearCacheStats();
+        if (nearCacheStats != null) {
+            this.nearCacheEntries = nearCacheStats.getOwnedEntryCount();
+            this.nearCacheHits = nearCacheStats.getHits();
+            this.nearCacheMisses = nearCacheStats.getMisses();
+            long total = nearCacheHits + nearCacheMisses;
+            this.nearCacheHitRatio = total == 0 ? 0.0 : (double) nearCacheHits / total;
+        }
+    }
+
+    public CacheStatisticsVM() {
+        // Empty public constructor used by Jackson.
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    public void setEntries(long entries) {
+        this.entries = entries;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getGets() {
+        return gets;
+    }
+
+    public void setGets(long gets) {
+        this.gets = gets;
+    }
+
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    public void setHitRatio(double hitRatio) {
+        this.hitRatio = hitRatio;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    public Long getNearCacheEntries() {
+        return nearCacheEntries;
+    }
+
+    public void setNearCacheEntries(Long nearCacheEntries) {
+        this.nearCacheEntries = nearCacheEntries;
+    }
+
+    public Long getNearCacheHits() {
+        return nearCacheHits;
+    }
+
+    public void setNearCacheHits(Long nearCacheHits) {
+        this.nearCacheHits = nearCacheHits;
+    }
+
+    public Long getNearCacheMisses() {
+        return nearCacheMisses;
+    }
+
+    public void setNearCacheMisses(Long nearCacheMisses) {
+        this.nearCacheMisses = nearCacheMisses;
+    }
+
+    public Double getNearCacheHitRatio() {
+        return nearCacheHitRatio;
+    }
+
+    public void setNearCacheHitRatio(Double nearCacheHitRatio) {
+        this.nearCacheHitRatio = nearCacheHitRatio;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatisticsVM{"
+            + "name='" + name + '\''
+            + ", entries=" + entries
+            + ", hitRatio=" + hitRatio
+            + ", evictions=" + evictions
+            + '}';
+    }
+}
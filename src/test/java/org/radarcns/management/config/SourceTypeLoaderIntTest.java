@@ -0,0 +1,89 @@
+package org.radarcns.management.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.SourceData;
+import org.radarcns.management.domain.SourceType;
+import org.radarcns.management.repository.SourceDataRepository;
+import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.catalog.CatalogSourceType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for the SourceTypeLoader.
+ *
+ * @see SourceTypeLoader
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+@Transactional
+public class SourceTypeLoaderIntTest {
+
+    private static final String CATALOG = "{\"passive-source-types\": [{"
+        + "\"vendor\": \"IMPORT_PRODUCER\", \"model\": \"IMPORT_MODEL\", \"version\": \"v1\","
+        + "\"name\": \"Import test\", \"scope\": \"PASSIVE\", \"data\": ["
+        + "{\"type\": \"ACCELEROMETER\", \"unit\": \"G\", \"topic\": \"import_acc\"},"
+        + "{\"type\": \"BATTERY\", \"unit\": \"%UNIT%\", \"topic\": \"import_battery\"}"
+        + "]}]}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private SourceTypeLoader sourceTypeLoader;
+
+    @Autowired
+    private SourceTypeRepository sourceTypeRepository;
+
+    @Autowired
+    private SourceDataRepository sourceDataRepository;
+
+    @Test
+    public void assertThatOnlyChangesAreImported() throws IOException {
+        Path catalogDir = folder.newFolder().toPath();
+        writeCatalog(catalogDir.resolve("catalog.json"), "PERCENTAGE");
+
+        List<CatalogSourceType> catalog = sourceTypeLoader.readCatalog(catalogDir);
+        assertThat(sourceTypeLoader.importSourceTypes(catalog)).isEqualTo(3);
+
+        SourceType sourceType = sourceTypeRepository
+            .findOneWithEagerRelationshipsByProducerAndModelAndVersion(
+                "IMPORT_PRODUCER", "IMPORT_MODEL", "v1")
+            .orElse(null);
+        assertThat(sourceType).isNotNull();
+        assertThat(sourceType.getSourceData()).extracting(SourceData::getSourceDataName)
+            .containsExactlyInAnyOrder("IMPORT_PRODUCER_IMPORT_MODEL_v1_ACCELEROMETER",
+                "IMPORT_PRODUCER_IMPORT_MODEL_v1_BATTERY");
+
+        // importing the same catalog again changes nothing
+        assertThat(sourceTypeLoader.importSourceTypes(catalog)).isEqualTo(0);
+
+        // a changed file only updates the changed source data
+        Path catalogFile = folder.newFile("changed.json").toPath();
+        writeCatalog(catalogFile, "RATIO");
+        assertThat(sourceTypeLoader.importSourceTypes(sourceTypeLoader.readCatalog(catalogFile)))
+            .isEqualTo(1);
+        assertThat(sourceDataRepository
+            .findOneBySourceDataName("IMPORT_PRODUCER_IMPORT_MODEL_v1_BATTERY")
+            .map(SourceData::getUnit))
+            .hasValue("RATIO");
+    }
+
+    private static void writeCatalog(Path path, String batteryUnit) throws IOException {
+        Files.write(path, CATALOG.replace("%UNIT%", batteryUnit)
+            .getBytes(StandardCharsets.UTF_8));
+    }
+}
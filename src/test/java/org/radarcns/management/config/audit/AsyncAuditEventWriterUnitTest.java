@@ -0,0 +1,270 @@
+package org.radarcns.management.config.audit;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.radarcns.management.config.ManagementPortalProperties;
+import org.radarcns.management.config.ManagementPortalProperties.Audit.Async;
+import org.radarcns.management.config.ManagementPortalProperties.Audit.Async.OverflowPolicy;
+import org.radarcns.management.domain.PersistentAuditEvent;
+import org.radarcns.management.repository.PersistenceAuditEventRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test class for the AsyncAuditEventWriter.
+ *
+ * @see AsyncAuditEventWriter
+ */
+public class AsyncAuditEventWriterUnitTest {
+
+    private final List<Saved> saved = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger saveCalls = new AtomicInteger();
+
+    private final CountDownLatch firstSaveStarted = new CountDownLatch(1);
+
+    private final CountDownLatch releaseFirstSave = new CountDownLatch(1);
+
+    private PersistenceAuditEventRepository repository;
+
+    private ManagementPortalProperties properties;
+
+    private Async config;
+
+    private MetricRegistry metricRegistry;
+
+    private AsyncAuditEventWriter writer;
+
+    private volatile boolean blockFirstSave;
+
+    private volatile boolean failFirstSave;
+
+    @Before
+    public void setUp() {
+        repository = mock(PersistenceAuditEventRepository.class);
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            List<PersistentAuditEvent> batch =
+                    (List<PersistentAuditEvent>) invocation.getArguments()[0];
+            if (saveCalls.getAndIncrement() == 0) {
+                firstSaveStarted.countDown();
+                if (blockFirstSave) {
+                    releaseFirstSave.await(10, TimeUnit.SECONDS);
+                }
+                if (failFirstSave) {
+                    throw new IllegalStateException("database unavailable");
+                }
+            }
+            saved.add(new Saved(batch));
+            return batch;
+        }).when(repository).save(anyListOf(PersistentAuditEvent.class));
+
+        properties = new ManagementPortalProperties();
+        config = properties.getAudit().getAsync();
+        config.setBatchSize(1);
+        config.setQueueCapacity(1);
+        config.setFlushIntervalMillis(50);
+        config.setOfferTimeoutMillis(50);
+        config.setShutdownTimeoutSeconds(1);
+        metricRegistry = new MetricRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        releaseFirstSave.countDown();
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    public void fullBatchIsWrittenAtOnce() throws Exception {
+        config.setBatchSize(3);
+        config.setQueueCapacity(10);
+        config.setFlushIntervalMillis(10_000);
+        startWriter();
+
+        writer.write(event("a"));
+        writer.write(event("b"));
+        writer.write(event("c"));
+
+        awaitSavedEvents(3);
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).principals).containsExactly("a", "b", "c");
+        assertThat(metricRegistry.counter("audit.async.written").getCount()).isEqualTo(3L);
+    }
+
+    @Test
+    public void partialBatchIsWrittenAfterFlushInterval() throws Exception {
+        config.setBatchSize(100);
+        config.setQueueCapacity(10);
+        startWriter();
+
+        writer.write(event("a"));
+
+        awaitSavedEvents(1);
+        assertThat(saved.get(0).principals).containsExactly("a");
+    }
+
+    @Test
+    public void dropPolicyDropsEventOnFullQueue() throws Exception {
+        config.setOverflowPolicy(OverflowPolicy.DROP);
+        fillQueue();
+
+        writer.write(event("c"));
+
+        assertThat(metricRegistry.counter("audit.async.dropped").getCount()).isEqualTo(1L);
+        releaseFirstSave.countDown();
+        awaitSavedEvents(2);
+        writer.stop();
+        assertThat(savedPrincipals()).containsExactly("a", "b");
+    }
+
+    @Test
+    public void blockPolicyDropsEventAfterOfferTimeout() throws Exception {
+        config.setOverflowPolicy(OverflowPolicy.BLOCK);
+        fillQueue();
+
+        long start = System.nanoTime();
+        writer.write(event("c"));
+
+        assertThat(System.nanoTime() - start)
+                .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(metricRegistry.counter("audit.async.dropped").getCount()).isEqualTo(1L);
+        releaseFirstSave.countDown();
+        awaitSavedEvents(2);
+        writer.stop();
+        assertThat(savedPrincipals()).containsExactly("a", "b");
+    }
+
+    @Test
+    public void callerRunsPolicyWritesEventOnCallerThread() throws Exception {
+        config.setOverflowPolicy(OverflowPolicy.CALLER_RUNS);
+        fillQueue();
+
+        writer.write(event("c"));
+
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).principals).containsExactly("c");
+        assertThat(saved.get(0).thread).isEqualTo(Thread.currentThread().getName());
+        assertThat(metricRegistry.counter("audit.async.dropped").getCount()).isEqualTo(0L);
+        releaseFirstSave.countDown();
+        awaitSavedEvents(3);
+    }
+
+    @Test
+    public void stopDrainsQueue() throws Exception {
+        config.setQueueCapacity(10);
+        fillQueue();
+        writer.write(event("c"));
+
+        // the flusher is still busy, so stop() writes the queued events itself
+        writer.stop();
+
+        assertThat(saved).hasSize(2);
+        assertThat(savedPrincipals()).containsExactly("b", "c");
+        assertThat(saved).extracting(s -> s.thread)
+                .containsOnly(Thread.currentThread().getName());
+        releaseFirstSave.countDown();
+        awaitSavedEvents(3);
+    }
+
+    @Test
+    public void failedBatchIsCountedAsDropped() throws Exception {
+        failFirstSave = true;
+        config.setQueueCapacity(10);
+        startWriter();
+
+        writer.write(event("a"));
+        assertThat(firstSaveStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        writer.write(event("b"));
+
+        awaitSavedEvents(1);
+        assertThat(savedPrincipals()).containsExactly("b");
+        assertThat(metricRegistry.counter("audit.async.dropped").getCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void interruptedFlusherFallsBackToSynchronousWrites() throws Exception {
+        config.setQueueCapacity(10);
+        startWriter();
+        Thread flusher = (Thread) ReflectionTestUtils.getField(writer, "flusher");
+
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(flusher.isAlive()).isFalse();
+
+        writer.write(event("a"));
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).thread).isEqualTo(Thread.currentThread().getName());
+    }
+
+    /**
+     * Start the writer and let the flusher block on saving event {@code a}, with event {@code b}
+     * in the queue.
+     */
+    private void fillQueue() throws InterruptedException {
+        blockFirstSave = true;
+        startWriter();
+        writer.write(event("a"));
+        assertThat(firstSaveStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        writer.write(event("b"));
+    }
+
+    private void startWriter() {
+        writer = new AsyncAuditEventWriter(repository, mock(PlatformTransactionManager.class),
+                properties, metricRegistry);
+        writer.start();
+    }
+
+    private void awaitSavedEvents(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (savedPrincipals().size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(savedPrincipals()).hasSize(count);
+    }
+
+    private List<String> savedPrincipals() {
+        List<String> principals = new ArrayList<>();
+        for (Saved batch : saved) {
+            principals.addAll(batch.principals);
+        }
+        return principals;
+    }
+
+    private static PersistentAuditEvent event(String principal) {
+        PersistentAuditEvent event = new PersistentAuditEvent();
+        event.setPrincipal(principal);
+        event.setAuditEventType("TEST_EVENT");
+        return event;
+    }
+
+    /** Principals of a saved batch and the thread that saved it. */
+    private static final class Saved {
+
+        private final List<String> principals = new ArrayList<>();
+
+        private final String thread = Thread.currentThread().getName();
+
+        private Saved(List<PersistentAuditEvent> batch) {
+            for (PersistentAuditEvent event : batch) {
+                principals.add(event.getPrincipal());
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.radarcns.management.config.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.config.ManagementPortalProperties;
+import org.radarcns.management.domain.PersistentAuditEvent;
+import org.radarcns.management.repository.PersistenceAuditEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for the AuditEventRetentionJob.
+ *
+ * @see AuditEventRetentionJob
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+@Transactional
+public class AuditEventRetentionJobIntTest {
+
+    private static final LocalDateTime SAMPLE_TIMESTAMP = LocalDateTime.parse("2015-08-04T10:11:30");
+
+    @Autowired
+    private PersistenceAuditEventRepository auditEventRepository;
+
+    @Autowired
+    private AuditEventRetentionJob retentionJob;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Rule
+    public TemporaryFolder archiveFolder = new TemporaryFolder();
+
+    @Before
+    public void initTest() {
+        auditEventRepository.deleteAll();
+    }
+
+    @Test
+    public void assertThatOldAuditEventsAreRemoved() {
+        auditEventRepository.save(createEvent(SAMPLE_TIMESTAMP.minusDays(2)));
+        auditEventRepository.save(createEvent(SAMPLE_TIMESTAMP.minusDays(1)));
+        PersistentAuditEvent recent = auditEventRepository.save(createEvent(SAMPLE_TIMESTAMP));
+        auditEventRepository.flush();
+
+        long removed = retentionJob.removeEventsBefore(SAMPLE_TIMESTAMP.minusHours(1));
+
+        assertThat(removed).isEqualTo(2);
+        assertThat(auditEventRepository.findAll())
+            .extracting(PersistentAuditEvent::getId)
+            .containsExactly(recent.getId());
+    }
+
+    @Test
+    public void assertThatRemovedEventsAreArchived() throws Exception {
+        PersistentAuditEvent oldest = auditEventRepository.save(
+            createEvent(SAMPLE_TIMESTAMP.minusDays(2)));
+        PersistentAuditEvent old = auditEventRepository.save(
+            createEvent(SAMPLE_TIMESTAMP.minusDays(1)));
+        old.getData().put("message", "second");
+        auditEventRepository.save(createEvent(SAMPLE_TIMESTAMP));
+        auditEventRepository.flush();
+
+        ManagementPortalProperties properties = new ManagementPortalProperties();
+        properties.getAudit().getRetention().setArchiveEnabled(true);
+        properties.getAudit().getRetention().setArchiveDirectory(
+            archiveFolder.getRoot().getAbsolutePath());
+        // one event per chunk, so the archive is appended to
+        properties.getAudit().getRetention().setChunkSize(1);
+
+        long removed = createJob(properties).removeEventsBefore(SAMPLE_TIMESTAMP.minusHours(1));
+
+        assertThat(removed).isEqualTo(2);
+        File[] archives = archiveFolder.getRoot().listFiles();
+        assertThat(archives).hasSize(1);
+        assertThat(archives[0].getName()).startsWith("audit-events-before-2015-08-04-")
+            .endsWith(".ndjson.gz");
+
+        List<JsonNode> archived = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(archives[0])), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                archived.add(objectMapper.readTree(line));
+            }
+        }
+        assertThat(archived).hasSize(2);
+        assertThat(archived.get(0).get("id").asLong()).isEqualTo(oldest.getId());
+        assertThat(archived.get(0).get("principal").asText()).isEqualTo("SAMPLE_PRINCIPAL");
+        assertThat(archived.get(0).get("type").asText()).isEqualTo("SAMPLE_TYPE");
+        assertThat(archived.get(0).get("timestamp").asText())
+            .isEqualTo(SAMPLE_TIMESTAMP.minusDays(2).toString());
+        assertThat(archived.get(0).get("data").get("remoteAddress").asText())
+            .isEqualTo("127.0.0.1");
+        assertThat(archived.get(1).get("id").asLong()).isEqualTo(old.getId());
+        assertThat(archived.get(1).get("data").get("message").asText()).isEqualTo("second");
+    }
+
+    @Test
+    public void assertThatNonPositiveChunkSizeRemovesInChunksOfOne() {
+        auditEventRepository.save(createEvent(SAMPLE_TIMESTAMP.minusDays(2)));
+        auditEventRepository.save(createEvent(SAMPLE_TIMESTAMP.minusDays(1)));
+        auditEventRepository.flush();
+
+        ManagementPortalProperties properties = new ManagementPortalProperties();
+        properties.getAudit().getRetention().setChunkSize(0);
+
+        long removed = createJob(properties).removeEventsBefore(SAMPLE_TIMESTAMP);
+
+        assertThat(removed).isEqualTo(2);
+        assertThat(auditEventRepository.findAll()).isEmpty();
+    }
+
+    private AuditEventRetentionJob createJob(ManagementPortalProperties properties) {
+        return new AuditEventRetentionJob(auditEventRepository, transactionManager, properties,
+            objectMapper, new MetricRegistry());
+    }
+
+    private static PersistentAuditEvent createEvent(LocalDateTime date) {
+        PersistentAuditEvent event = new PersistentAuditEvent();
+        event.setPrincipal("SAMPLE_PRINCIPAL");
+        event.setAuditEventType("SAMPLE_TYPE");
+        event.setAuditEventDate(date);
+        event.getData().put("remoteAddress", "127.0.0.1");
+        return event;
+    }
+}
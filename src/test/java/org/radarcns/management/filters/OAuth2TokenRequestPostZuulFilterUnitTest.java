@@ -0,0 +1,125 @@
+package org.radarcns.management.filters;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.zuul.context.RequestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.radarcns.management.config.ManagementPortalProperties;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.Cookie;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.radarcns.management.filters.OAuth2TokenRequestPreZuulFilter.REFRESH_TOKEN_COOKIE;
+
+/**
+ * Test class for the OAuth2TokenRequestPostZuulFilter.
+ *
+ * @see OAuth2TokenRequestPostZuulFilter
+ */
+public class OAuth2TokenRequestPostZuulFilterUnitTest {
+
+    private static final String TOKEN_URI = "/oauthserver/oauth/token";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private OAuth2TokenRequestPostZuulFilter filter;
+
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() {
+        filter = new OAuth2TokenRequestPostZuulFilter();
+        ReflectionTestUtils.setField(filter, "managementPortalProperties",
+                new ManagementPortalProperties());
+        ReflectionTestUtils.setField(filter, "env", new MockEnvironment());
+        response = new MockHttpServletResponse();
+    }
+
+    @After
+    public void tearDown() {
+        RequestContext.getCurrentContext().unset();
+    }
+
+    @Test
+    public void refreshTokenIsMovedToCookie() throws IOException {
+        RequestContext ctx = tokenResponse("POST", TOKEN_URI, "{\"access_token\":\"access\","
+                + "\"token_type\":\"bearer\",\"refresh_token\":\"refresh\",\"expires_in\":1799,"
+                + "\"scope\":\"read write\",\"roles\":[\"radar:ROLE_PARTICIPANT\"],"
+                + "\"meta\":{\"refresh_token\":\"nested\"}}");
+
+        assertThat(filter.shouldFilter()).isTrue();
+        filter.run();
+
+        JsonNode body = objectMapper.readTree(responseBody(ctx));
+        assertThat(body.has("refresh_token")).isFalse();
+        assertThat(body.get("access_token").asText()).isEqualTo("access");
+        assertThat(body.get("token_type").asText()).isEqualTo("bearer");
+        assertThat(body.get("expires_in").asInt()).isEqualTo(1799);
+        assertThat(body.get("scope").asText()).isEqualTo("read write");
+        assertThat(body.get("roles").get(0).asText()).isEqualTo("radar:ROLE_PARTICIPANT");
+        // only the top-level refresh token is removed
+        assertThat(body.get("meta").get("refresh_token").asText()).isEqualTo("nested");
+
+        Cookie cookie = response.getCookie(REFRESH_TOKEN_COOKIE);
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getValue()).isEqualTo("refresh");
+        assertThat(cookie.isHttpOnly()).isTrue();
+        assertThat(cookie.getPath()).isEqualTo(TOKEN_URI);
+        assertThat(cookie.getMaxAge()).isEqualTo(
+                new ManagementPortalProperties().getFrontend().getSessionTimeout());
+    }
+
+    @Test
+    public void invalidResponseIsPassedOnUnchanged() throws IOException {
+        String invalid = "{\"access_token\":\"access\",\"refresh_token\":";
+        RequestContext ctx = tokenResponse("POST", TOKEN_URI, invalid);
+
+        filter.run();
+
+        assertThat(responseBody(ctx)).isEqualTo(invalid);
+        assertThat(response.getCookie(REFRESH_TOKEN_COOKIE)).isNull();
+    }
+
+    @Test
+    public void deletedTokenRemovesCookie() {
+        tokenResponse("DELETE", TOKEN_URI, "");
+
+        filter.run();
+
+        Cookie cookie = response.getCookie(REFRESH_TOKEN_COOKIE);
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getValue()).isEmpty();
+        assertThat(cookie.getMaxAge()).isEqualTo(0);
+    }
+
+    @Test
+    public void otherRoutesAreNotFiltered() {
+        tokenResponse("GET", "/api/projects", "[{\"refresh_token\":\"refresh\"}]");
+
+        assertThat(filter.shouldFilter()).isFalse();
+    }
+
+    private RequestContext tokenResponse(String method, String uri, String body) {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        ctx.setRequest(new MockHttpServletRequest(method, uri));
+        ctx.setResponse(response);
+        ctx.setResponseStatusCode(200);
+        ctx.setResponseDataStream(new ByteArrayInputStream(
+                body.getBytes(StandardCharsets.UTF_8)));
+        return ctx;
+    }
+
+    private static String responseBody(RequestContext ctx) throws IOException {
+        return StreamUtils.copyToString(ctx.getResponseDataStream(), StandardCharsets.UTF_8);
+    }
+}
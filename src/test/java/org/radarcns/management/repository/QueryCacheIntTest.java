@@ -0,0 +1,173 @@
+package org.radarcns.management.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.auth.authorization.AuthoritiesConstants;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.Authority;
+import org.radarcns.management.domain.Project;
+import org.radarcns.management.domain.Role;
+import org.radarcns.management.web.rest.ProjectResourceIntTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test that the repository queries that use the Hibernate query cache are cached, and still
+ * return fresh data after the tables they read are written to. Writes are committed, since the
+ * query cache is only invalidated on commit, and every lookup runs in its own transaction, so
+ * that it is not answered from the persistence context. Tests remove the rows they create.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class, properties = {
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+    "spring.jpa.properties.hibernate.cache.region.factory_class="
+        + "com.hazelcast.hibernate.HazelcastCacheRegionFactory",
+    "spring.jpa.properties.hibernate.cache.hazelcast.instance_name=ManagementPortal"})
+public class QueryCacheIntTest {
+
+    private static final String TEST_AUTHORITY = "ROLE_QUERY_CACHE_TEST";
+
+    private static final String UPDATED_PROJECT_NAME = "QUERY_CACHE_PROJECT";
+
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager em;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    public void authorityQueryIsCached() {
+        assertThat(authorityRepository.findByAuthorityName(AuthoritiesConstants.SYS_ADMIN))
+            .isNotNull();
+        long hits = statistics.getQueryCacheHitCount();
+
+        assertThat(authorityRepository.findByAuthorityName(AuthoritiesConstants.SYS_ADMIN))
+            .isNotNull();
+
+        assertThat(statistics.getQueryCacheHitCount()).isGreaterThan(hits);
+    }
+
+    @Test
+    public void authorityQueryIsFreshAfterInsert() {
+        assertThat(authorityRepository.findByAuthorityName(TEST_AUTHORITY)).isNull();
+        assertCachedLookup(() -> authorityRepository.findByAuthorityName(TEST_AUTHORITY));
+
+        try {
+            transactionTemplate.execute(status ->
+                authorityRepository.save(new Authority(TEST_AUTHORITY)));
+
+            assertThat(authorityRepository.findByAuthorityName(TEST_AUTHORITY)).isNotNull();
+        } finally {
+            transactionTemplate.execute(status -> {
+                authorityRepository.delete(TEST_AUTHORITY);
+                return null;
+            });
+        }
+    }
+
+    @Test
+    public void roleQueryIsFreshAfterInsertAndDelete() {
+        Project project = createProject();
+        try {
+            assertThat(roleRepository.findOneByProjectIdAndAuthorityName(project.getId(),
+                AuthoritiesConstants.PARTICIPANT)).isNull();
+            assertCachedLookup(() -> roleRepository.findOneByProjectIdAndAuthorityName(
+                project.getId(), AuthoritiesConstants.PARTICIPANT));
+
+            Role role = transactionTemplate.execute(status -> roleRepository.save(new Role(
+                authorityRepository.findByAuthorityName(AuthoritiesConstants.PARTICIPANT),
+                projectRepository.findOne(project.getId()))));
+
+            assertThat(roleRepository.findOneByProjectIdAndAuthorityName(project.getId(),
+                AuthoritiesConstants.PARTICIPANT).getId()).isEqualTo(role.getId());
+            assertCachedLookup(() -> roleRepository.findOneByProjectIdAndAuthorityName(
+                project.getId(), AuthoritiesConstants.PARTICIPANT));
+
+            transactionTemplate.execute(status -> {
+                roleRepository.delete(role.getId());
+                return null;
+            });
+
+            assertThat(roleRepository.findOneByProjectIdAndAuthorityName(project.getId(),
+                AuthoritiesConstants.PARTICIPANT)).isNull();
+        } finally {
+            deleteProject(project);
+        }
+    }
+
+    @Test
+    public void projectQueryIsFreshAfterUpdate() {
+        Project project = createProject();
+        String originalName = project.getProjectName();
+        try {
+            assertThat(projectRepository.findOneWithEagerRelationshipsByName(originalName)
+                .getId()).isEqualTo(project.getId());
+            assertCachedLookup(() ->
+                projectRepository.findOneWithEagerRelationshipsByName(originalName));
+            assertThat(projectRepository.findOneWithEagerRelationshipsByName(
+                UPDATED_PROJECT_NAME)).isNull();
+
+            transactionTemplate.execute(status -> {
+                Project managed = projectRepository.findOne(project.getId());
+                managed.setProjectName(UPDATED_PROJECT_NAME);
+                return projectRepository.save(managed);
+            });
+
+            assertThat(projectRepository.findOneWithEagerRelationshipsByName(originalName))
+                .isNull();
+            assertThat(projectRepository.findOneWithEagerRelationshipsByName(
+                UPDATED_PROJECT_NAME).getId()).isEqualTo(project.getId());
+        } finally {
+            deleteProject(project);
+        }
+    }
+
+    /** Check that repeating a lookup is answered from the query cache. */
+    private void assertCachedLookup(Runnable lookup) {
+        long hits = statistics.getQueryCacheHitCount();
+        lookup.run();
+        assertThat(statistics.getQueryCacheHitCount()).isGreaterThan(hits);
+    }
+
+    private Project createProject() {
+        return transactionTemplate.execute(status ->
+            projectRepository.save(ProjectResourceIntTest.createEntity(em)));
+    }
+
+    private void deleteProject(Project project) {
+        transactionTemplate.execute(status -> {
+            projectRepository.delete(project.getId());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package org.radarcns.management.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the CachingClientDetailsService.
+ *
+ * @see CachingClientDetailsService
+ */
+public class CachingClientDetailsServiceUnitTest {
+
+    private final Map<String, ClientDetails> clients = new HashMap<>();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CachingClientDetailsService service;
+
+    @Before
+    public void setUp() {
+        service = new CachingClientDetailsService(clientId -> {
+            loads.incrementAndGet();
+            ClientDetails details = clients.get(clientId);
+            if (details == null) {
+                throw new NoSuchClientException("No client with requested id: " + clientId);
+            }
+            return details;
+        }, new ConcurrentMapCacheManager(CachingClientDetailsService.CACHE_NAME));
+        clients.put("client", new BaseClientDetails("client", null, "read", "password", null));
+    }
+
+    @Test
+    public void clientIsCachedUntilEvicted() {
+        assertThat(service.loadClientByClientId("client").getScope()).containsExactly("read");
+        assertThat(service.loadClientByClientId("client").getScope()).containsExactly("read");
+        assertThat(loads.get()).isEqualTo(1);
+
+        clients.put("client", new BaseClientDetails("client", null, "write", "password", null));
+        service.evict("client");
+        assertThat(service.loadClientByClientId("client").getScope()).containsExactly("write");
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void unknownClientIsNotCached() {
+        assertThatThrownBy(() -> service.loadClientByClientId("new"))
+                .isInstanceOf(NoSuchClientException.class);
+
+        clients.put("new", new BaseClientDetails("new", null, "read", "password", null));
+        assertThat(service.loadClientByClientId("new").getClientId()).isEqualTo("new");
+    }
+}
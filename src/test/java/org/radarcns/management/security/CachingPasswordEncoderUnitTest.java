@@ -0,0 +1,81 @@
+package org.radarcns.management.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the CachingPasswordEncoder.
+ *
+ * @see CachingPasswordEncoder
+ */
+public class CachingPasswordEncoderUnitTest {
+
+    private final AtomicInteger checks = new AtomicInteger();
+
+    private PasswordEncoder delegate;
+
+    @Before
+    public void setUp() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        delegate = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return bcrypt.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                checks.incrementAndGet();
+                return bcrypt.matches(rawPassword, encodedPassword);
+            }
+        };
+    }
+
+    @Test
+    public void verifiedSecretIsRemembered() {
+        CachingPasswordEncoder encoder = new CachingPasswordEncoder(delegate, 60, 10);
+        String hash = encoder.encode("secret");
+
+        assertThat(encoder.matches("secret", hash)).isTrue();
+        assertThat(encoder.matches("secret", hash)).isTrue();
+        assertThat(checks.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void wrongSecretIsAlwaysChecked() {
+        CachingPasswordEncoder encoder = new CachingPasswordEncoder(delegate, 60, 10);
+        String hash = encoder.encode("secret");
+
+        assertThat(encoder.matches("wrong", hash)).isFalse();
+        assertThat(encoder.matches("wrong", hash)).isFalse();
+        assertThat(checks.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void changedSecretIsNotRemembered() {
+        CachingPasswordEncoder encoder = new CachingPasswordEncoder(delegate, 60, 10);
+        String oldHash = encoder.encode("secret");
+        assertThat(encoder.matches("secret", oldHash)).isTrue();
+
+        String newHash = encoder.encode("other");
+        assertThat(encoder.matches("secret", newHash)).isFalse();
+        assertThat(encoder.matches("other", newHash)).isTrue();
+        assertThat(checks.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void disabledCacheAlwaysChecks() {
+        CachingPasswordEncoder encoder = new CachingPasswordEncoder(delegate, 0, 10);
+        String hash = encoder.encode("secret");
+
+        assertThat(encoder.matches("secret", hash)).isTrue();
+        assertThat(encoder.matches("secret", hash)).isTrue();
+        assertThat(checks.get()).isEqualTo(2);
+    }
+}
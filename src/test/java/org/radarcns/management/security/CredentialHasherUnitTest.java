@@ -0,0 +1,90 @@
+package org.radarcns.management.security;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.radarcns.management.config.ManagementPortalProperties;
+import org.radarcns.management.security.CredentialHasher.HashingUnavailableException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the CredentialHasher.
+ *
+ * @see CredentialHasher
+ */
+public class CredentialHasherUnitTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private CredentialHasher hasher;
+
+    private MetricRegistry metricRegistry;
+
+    private ExecutorService callers;
+
+    @Before
+    public void setUp() {
+        ManagementPortalProperties properties = new ManagementPortalProperties();
+        properties.getCredentialHashing().setThreads(1);
+        properties.getCredentialHashing().setQueueCapacity(1);
+        metricRegistry = new MetricRegistry();
+        hasher = new CredentialHasher(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed-" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals(encode(rawPassword));
+            }
+        }, properties, metricRegistry);
+        callers = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        hasher.shutdown();
+    }
+
+    @Test
+    public void hashingIsBounded() throws Exception {
+        Future<String> running = callers.submit(() -> hasher.hash("first"));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        Future<String> queued = callers.submit(() -> hasher.hash("second"));
+        while (metricRegistry.getGauges().get("credential-hashing.queued").getValue()
+                .equals(0)) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> hasher.hash("third"))
+                .isInstanceOf(HashingUnavailableException.class);
+        assertThat(metricRegistry.counter("credential-hashing.rejected").getCount())
+                .isEqualTo(1L);
+
+        release.countDown();
+        assertThat(running.get(10, TimeUnit.SECONDS)).isEqualTo("hashed-first");
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isEqualTo("hashed-second");
+        assertThat(hasher.hash("fourth")).isEqualTo("hashed-fourth");
+    }
+}
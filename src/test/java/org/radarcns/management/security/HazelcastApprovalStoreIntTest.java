@@ -0,0 +1,86 @@
+package org.radarcns.management.security;
+
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.oauth2.provider.approval.Approval;
+import org.springframework.security.oauth2.provider.approval.Approval.ApprovalStatus;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Test class for the HazelcastApprovalStore.
+ *
+ * @see HazelcastApprovalStore
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+public class HazelcastApprovalStoreIntTest {
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    private HazelcastApprovalStore approvalStore;
+
+    private Date expiresAt;
+
+    @Before
+    public void setUp() {
+        approvalStore = new HazelcastApprovalStore(hazelcastInstance);
+        expiresAt = new Date(System.currentTimeMillis() + 60_000L);
+    }
+
+    @After
+    public void tearDown() {
+        hazelcastInstance.getMap(HazelcastApprovalStore.MAP_NAME).clear();
+    }
+
+    @Test
+    public void approvalsAreAddedAndReplaced() {
+        approvalStore.addApprovals(Arrays.asList(
+                new Approval("user", "client", "read", expiresAt, ApprovalStatus.APPROVED),
+                new Approval("user", "client", "write", expiresAt, ApprovalStatus.APPROVED),
+                new Approval("user", "other", "read", expiresAt, ApprovalStatus.APPROVED)));
+        approvalStore.addApprovals(Collections.singletonList(
+                new Approval("user", "client", "write", expiresAt, ApprovalStatus.DENIED)));
+
+        assertThat(approvalStore.getApprovals("user", "client"))
+                .extracting(Approval::getScope, Approval::getStatus)
+                .containsExactlyInAnyOrder(
+                        tuple("read", ApprovalStatus.APPROVED),
+                        tuple("write", ApprovalStatus.DENIED));
+        assertThat(approvalStore.getApprovals("user", "other")).hasSize(1);
+        assertThat(approvalStore.getApprovals("other", "client")).isEmpty();
+    }
+
+    @Test
+    public void approvalsAreRevoked() {
+        Approval read = new Approval("user", "client", "read", expiresAt,
+                ApprovalStatus.APPROVED);
+        Approval write = new Approval("user", "client", "write", expiresAt,
+                ApprovalStatus.APPROVED);
+        approvalStore.addApprovals(Arrays.asList(read, write));
+
+        assertThat(approvalStore.revokeApprovals(Collections.singletonList(read))).isTrue();
+        assertThat(approvalStore.getApprovals("user", "client")).extracting(Approval::getScope)
+                .containsExactly("write");
+        assertThat(approvalStore.revokeApprovals(Collections.singletonList(read))).isFalse();
+
+        approvalStore.setHandleRevocationsAsExpiry(true);
+        assertThat(approvalStore.revokeApprovals(Collections.singletonList(write))).isTrue();
+        assertThat(approvalStore.getApprovals("user", "client"))
+                .extracting(Approval::isCurrentlyActive)
+                .containsExactly(false);
+    }
+}
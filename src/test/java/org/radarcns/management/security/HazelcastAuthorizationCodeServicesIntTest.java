@@ -0,0 +1,52 @@
+package org.radarcns.management.security;
+
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.exceptions.InvalidGrantException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the HazelcastAuthorizationCodeServices.
+ *
+ * @see HazelcastAuthorizationCodeServices
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+public class HazelcastAuthorizationCodeServicesIntTest {
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Test
+    public void codeCanBeConsumedOnce() {
+        HazelcastAuthorizationCodeServices codeServices =
+                new HazelcastAuthorizationCodeServices(hazelcastInstance);
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "client",
+                AuthorityUtils.NO_AUTHORITIES, true, Collections.singleton("read"), null,
+                "https://example.com/callback", null, null);
+        OAuth2Authentication authentication = new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken("user", null,
+                        AuthorityUtils.createAuthorityList("ROLE_USER")));
+
+        String code = codeServices.createAuthorizationCode(authentication);
+        OAuth2Authentication consumed = codeServices.consumeAuthorizationCode(code);
+        assertThat(consumed.getName()).isEqualTo("user");
+        assertThat(consumed.getOAuth2Request().getClientId()).isEqualTo("client");
+
+        assertThatThrownBy(() -> codeServices.consumeAuthorizationCode(code))
+                .isInstanceOf(InvalidGrantException.class);
+    }
+}
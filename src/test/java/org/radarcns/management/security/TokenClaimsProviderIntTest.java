@@ -0,0 +1,285 @@
+package org.radarcns.management.security;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.Source;
+import org.radarcns.management.domain.Subject;
+import org.radarcns.management.domain.User;
+import org.radarcns.management.repository.ProjectRepository;
+import org.radarcns.management.repository.SourceRepository;
+import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.repository.UserRepository;
+import org.radarcns.management.security.TokenClaimsProvider.TokenClaims;
+import org.radarcns.management.service.ProjectService;
+import org.radarcns.management.service.RoleService;
+import org.radarcns.management.service.SourceService;
+import org.radarcns.management.service.SubjectService;
+import org.radarcns.management.service.UserService;
+import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.RoleDTO;
+import org.radarcns.management.service.dto.UserDTO;
+import org.radarcns.management.service.mapper.SourceMapper;
+import org.radarcns.management.service.mapper.SourceTypeMapper;
+import org.radarcns.management.service.mapper.UserMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the TokenClaimsProvider. Changes are committed, so that the evictions that
+ * services register for after the commit are run; the tests undo their changes afterwards.
+ *
+ * @see TokenClaimsProvider
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+public class TokenClaimsProviderIntTest {
+
+    private static final String SUBJECT_LOGIN = "sub-1";
+
+    private static final String ADMIN_LOGIN = "padmin";
+
+    @Autowired
+    private TokenClaimsProvider tokenClaimsProvider;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private SourceRepository sourceRepository;
+
+    @Autowired
+    private SourceTypeRepository sourceTypeRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private SourceService sourceService;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private SourceMapper sourceMapper;
+
+    @Autowired
+    private SourceTypeMapper sourceTypeMapper;
+
+    private Cache cache;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        cache = cacheManager.getCache(TokenClaimsProvider.CACHE_NAME);
+        cache.clear();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    public void claimsAreCached() {
+        statistics.clear();
+        TokenClaims claims = tokenClaimsProvider.getClaims(SUBJECT_LOGIN);
+        long statements = statistics.getPrepareStatementCount();
+        assertThat(statements).isGreaterThan(0L);
+
+        TokenClaims cachedClaims = tokenClaimsProvider.getClaims(SUBJECT_LOGIN);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+        assertThat(cachedClaims.getRoles()).isEqualTo(claims.getRoles());
+        assertThat(cachedClaims.getSources()).isEqualTo(claims.getSources());
+    }
+
+    @Test
+    public void committedRoleChangeChangesClaims() {
+        assertClaimsMatchEntities(ADMIN_LOGIN);
+        assertThat(tokenClaimsProvider.getClaims(ADMIN_LOGIN).getRoles())
+                .doesNotContain("Radar-Pilot-01:ROLE_PROJECT_ADMIN");
+
+        try {
+            assertEvictedOnCommit(ADMIN_LOGIN, () -> updateAdminRoles(true));
+
+            assertThat(tokenClaimsProvider.getClaims(ADMIN_LOGIN).getRoles())
+                    .contains("Radar-Pilot-01:ROLE_PROJECT_ADMIN");
+            assertClaimsMatchEntities(ADMIN_LOGIN);
+        } finally {
+            transactionTemplate.execute(status -> updateAdminRoles(false));
+        }
+    }
+
+    @Test
+    public void committedSourceChangeChangesClaims() {
+        assertClaimsMatchEntities(SUBJECT_LOGIN);
+        assertThat(tokenClaimsProvider.getClaims(SUBJECT_LOGIN).getSources()).isEmpty();
+
+        Long sourceId = null;
+        try {
+            assertEvictedOnCommit(SUBJECT_LOGIN, () -> {
+                Subject subject = subjectRepository.findOneWithEagerBySubjectLogin(SUBJECT_LOGIN)
+                        .get();
+                subjectService.assignOrUpdateSource(subject,
+                        sourceTypeMapper.sourceTypeToSourceTypeDTO(
+                                sourceTypeRepository.findOne(2L)),
+                        projectRepository.findOne(1L), new MinimalSourceDetailsDTO());
+            });
+
+            Source source = subjectRepository.findSourcesBySubjectLogin(SUBJECT_LOGIN).get(0);
+            sourceId = source.getId();
+            assertThat(tokenClaimsProvider.getClaims(SUBJECT_LOGIN).getSources())
+                    .containsExactly(source.getSourceId().toString());
+            assertClaimsMatchEntities(SUBJECT_LOGIN);
+
+            Long updatedId = sourceId;
+            assertEvictedOnCommit(SUBJECT_LOGIN, () -> sourceService.save(
+                    sourceMapper.sourceToSourceDTO(sourceRepository.findOne(updatedId))));
+        } finally {
+            Long removedId = sourceId;
+            transactionTemplate.execute(status -> {
+                Subject subject = subjectRepository.findOneWithEagerBySubjectLogin(SUBJECT_LOGIN)
+                        .get();
+                subject.getSources().clear();
+                subjectRepository.save(subject);
+                return null;
+            });
+            if (removedId != null) {
+                assertEvictedOnCommit(SUBJECT_LOGIN, () -> sourceService.delete(removedId));
+            }
+        }
+    }
+
+    @Test
+    public void roleServiceEvictsClaimsOnCommit() {
+        RoleDTO roleDTO = new RoleDTO();
+        roleDTO.setProjectId(2L);
+        roleDTO.setAuthorityName("ROLE_PROJECT_ANALYST");
+        Long[] roleId = new Long[1];
+
+        assertEvictedOnCommit(SUBJECT_LOGIN, () -> roleId[0] = roleService.save(roleDTO).getId());
+        assertEvictedOnCommit(SUBJECT_LOGIN, () -> roleService.delete(roleId[0]));
+    }
+
+    @Test
+    public void projectServiceEvictsClaimsOnCommit() {
+        ProjectDTO projectDTO = new ProjectDTO();
+        projectDTO.setProjectName("token-claims-project");
+        projectDTO.setDescription("Token claims project");
+        projectDTO.setLocation("London");
+        ProjectDTO created = transactionTemplate.execute(
+                status -> projectService.save(projectDTO));
+
+        assertEvictedOnCommit(SUBJECT_LOGIN, () -> {
+            created.setDescription("Renamed token claims project");
+            projectService.save(created);
+        });
+        assertEvictedOnCommit(SUBJECT_LOGIN, () -> projectService.delete(created.getId()));
+    }
+
+    /**
+     * Cache the claims of a user, make a change in a transaction and check that the claims are
+     * still cached until the transaction commits.
+     */
+    private void assertEvictedOnCommit(String login, Runnable change) {
+        tokenClaimsProvider.getClaims(login);
+        assertThat(cache.get(login)).isNotNull();
+
+        transactionTemplate.execute(status -> {
+            change.run();
+            assertThat(cache.get(login)).isNotNull();
+            return null;
+        });
+
+        assertThat(cache.get(login)).isNull();
+    }
+
+    /**
+     * Check the cached claims against the roles and sources that were previously put in the
+     * token from the user and subject entities.
+     */
+    private void assertClaimsMatchEntities(String login) {
+        TokenClaims claims = tokenClaimsProvider.getClaims(login);
+        transactionTemplate.execute(status -> {
+            User user = userRepository.findOneByLogin(login).get();
+            List<String> roles = user.getRoles().stream()
+                    .filter(role -> Objects.nonNull(role.getProject()))
+                    .map(role -> role.getProject().getProjectName() + ":"
+                            + role.getAuthority().getName())
+                    .collect(Collectors.toList());
+            List<String> sources = subjectRepository.findSourcesBySubjectLogin(login).stream()
+                    .map(s -> s.getSourceId().toString())
+                    .collect(Collectors.toList());
+
+            assertThat(claims.getRoles()).containsExactlyInAnyOrder(
+                    roles.toArray(new String[0]));
+            assertThat(claims.getSources()).containsExactlyInAnyOrder(
+                    sources.toArray(new String[0]));
+            return null;
+        });
+    }
+
+    private Object updateAdminRoles(boolean addPilotProject) {
+        UserDTO userDTO = userMapper.userToUserDTO(userRepository.findOneByLogin(ADMIN_LOGIN)
+                .get());
+        Set<RoleDTO> roles = new HashSet<>();
+        for (RoleDTO role : userDTO.getRoles()) {
+            if (!Long.valueOf(2L).equals(role.getProjectId())) {
+                roles.add(role);
+            }
+        }
+        if (addPilotProject) {
+            RoleDTO pilotAdmin = new RoleDTO();
+            pilotAdmin.setProjectId(2L);
+            pilotAdmin.setAuthorityName("ROLE_PROJECT_ADMIN");
+            roles.add(pilotAdmin);
+        }
+        userDTO.setRoles(roles);
+        return userService.updateUser(userDTO);
+    }
+}
@@ -0,0 +1,68 @@
+package org.radarcns.management.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.repository.UserRepository;
+import org.radarcns.management.security.TokenClaimsProvider.TokenClaims;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the caching of the TokenClaimsProvider, without a database.
+ *
+ * @see TokenClaimsProvider
+ */
+public class TokenClaimsProviderUnitTest {
+
+    private static final String LOGIN = "sub-1";
+
+    private UserRepository userRepository;
+
+    private Cache cache;
+
+    private TokenClaimsProvider tokenClaimsProvider;
+
+    @Before
+    public void setUp() {
+        userRepository = mock(UserRepository.class);
+        SubjectRepository subjectRepository = mock(SubjectRepository.class);
+        when(subjectRepository.findSourceIdsBySubjectLogin(LOGIN))
+                .thenReturn(Collections.emptyList());
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(
+                TokenClaimsProvider.CACHE_NAME);
+        cache = cacheManager.getCache(TokenClaimsProvider.CACHE_NAME);
+        tokenClaimsProvider = new TokenClaimsProvider(userRepository, subjectRepository,
+                cacheManager);
+    }
+
+    @Test
+    public void claimsAreCached() {
+        when(userRepository.findRoleNamesByLogin(LOGIN))
+                .thenReturn(Collections.singletonList("radar:ROLE_PARTICIPANT"));
+
+        TokenClaims claims = tokenClaimsProvider.getClaims(LOGIN);
+
+        assertThat(cache.get(LOGIN, TokenClaims.class)).isSameAs(claims);
+    }
+
+    @Test
+    public void claimsReadDuringEvictionAreNotCached() {
+        // outside a transaction, the eviction runs while the old roles are being read
+        when(userRepository.findRoleNamesByLogin(LOGIN)).thenAnswer(invocation -> {
+            tokenClaimsProvider.evict(LOGIN);
+            return Collections.singletonList("radar:ROLE_PARTICIPANT");
+        });
+
+        TokenClaims claims = tokenClaimsProvider.getClaims(LOGIN);
+
+        assertThat(claims.getRoles()).containsExactly("radar:ROLE_PARTICIPANT");
+        assertThat(cache.get(LOGIN)).isNull();
+    }
+}
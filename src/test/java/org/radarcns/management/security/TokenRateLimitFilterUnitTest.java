@@ -0,0 +1,76 @@
+package org.radarcns.management.security;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.radarcns.management.config.ManagementPortalProperties.Oauth.TokenRateLimit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the TokenRateLimitFilter.
+ *
+ * @see TokenRateLimitFilter
+ */
+public class TokenRateLimitFilterUnitTest {
+
+    private TokenRateLimitFilter filter;
+
+    @Before
+    public void setUp() {
+        TokenRateLimit config = new TokenRateLimit();
+        config.setClientRequestsPerMinute(60);
+        config.setClientBurst(2);
+        config.setPrincipalRequestsPerMinute(1);
+        config.setPrincipalBurst(1);
+        long now = System.currentTimeMillis();
+        filter = new TokenRateLimitFilter(
+                new TokenRateLimiter(config, null, new MetricRegistry(), () -> now));
+    }
+
+    @Test
+    public void clientIsLimitedByBasicCredentials() throws Exception {
+        String credentials = Base64.getEncoder().encodeToString(
+                "client:secret".getBytes(StandardCharsets.UTF_8));
+        assertThat(doFilter(HttpHeaders.AUTHORIZATION, "Basic " + credentials, null)
+                .getStatus()).isEqualTo(200);
+        assertThat(doFilter(HttpHeaders.AUTHORIZATION, "Basic " + credentials, null)
+                .getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse response = doFilter(HttpHeaders.AUTHORIZATION,
+                "Basic " + credentials, null);
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getContentAsString()).contains("too_many_requests");
+    }
+
+    @Test
+    public void principalIsLimitedByUsername() throws Exception {
+        assertThat(doFilter(null, null, "user").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse response = doFilter(null, null, "user");
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("60");
+    }
+
+    private MockHttpServletResponse doFilter(String header, String value, String username)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/oauth/token");
+        if (header != null) {
+            request.addHeader(header, value);
+        }
+        if (username != null) {
+            request.addParameter("username", username);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
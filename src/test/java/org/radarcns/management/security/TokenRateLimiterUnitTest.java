@@ -0,0 +1,105 @@
+package org.radarcns.management.security;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.radarcns.management.config.ManagementPortalProperties.Oauth.TokenRateLimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the TokenRateLimiter.
+ *
+ * @see TokenRateLimiter
+ */
+public class TokenRateLimiterUnitTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    private TokenRateLimit config;
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setUp() {
+        config = new TokenRateLimit();
+        config.setClientRequestsPerMinute(60);
+        config.setClientBurst(3);
+        config.setPrincipalRequestsPerMinute(6);
+        config.setPrincipalBurst(1);
+        metricRegistry = new MetricRegistry();
+    }
+
+    @Test
+    public void burstIsAdmittedAndThenRefilled() {
+        TokenRateLimiter limiter = createLimiter();
+
+        assertThat(limiter.acquireClient("client")).isZero();
+        assertThat(limiter.acquireClient("client")).isZero();
+        assertThat(limiter.acquireClient("client")).isZero();
+        assertThat(limiter.acquireClient("client")).isEqualTo(1000L);
+        // other clients have their own bucket
+        assertThat(limiter.acquireClient("other")).isZero();
+
+        clock.addAndGet(400L);
+        assertThat(limiter.acquireClient("client")).isEqualTo(600L);
+        clock.addAndGet(600L);
+        assertThat(limiter.acquireClient("client")).isZero();
+        assertThat(limiter.acquireClient("client")).isEqualTo(1000L);
+
+        assertThat(metricRegistry.counter("oauth.token.rate-limit.rejected.client").getCount())
+                .isEqualTo(3L);
+    }
+
+    @Test
+    public void principalsHaveTheirOwnLimit() {
+        TokenRateLimiter limiter = createLimiter();
+
+        assertThat(limiter.acquirePrincipal("user")).isZero();
+        assertThat(limiter.acquirePrincipal("user")).isEqualTo(10_000L);
+        assertThat(limiter.acquireClient("user")).isZero();
+    }
+
+    @Test
+    public void disabledLimitAdmitsEverything() {
+        config.setPrincipalRequestsPerMinute(0);
+        TokenRateLimiter limiter = createLimiter();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.acquirePrincipal("user")).isZero();
+        }
+    }
+
+    @Test
+    public void concurrentRequestsAreBounded() {
+        config.setMaxConcurrentRequests(2);
+        TokenRateLimiter limiter = createLimiter();
+
+        assertThat(limiter.tryEnter()).isTrue();
+        assertThat(limiter.tryEnter()).isTrue();
+        assertThat(limiter.tryEnter()).isFalse();
+        limiter.exit();
+        assertThat(limiter.tryEnter()).isTrue();
+        assertThat(metricRegistry.counter("oauth.token.rate-limit.rejected.concurrency")
+                .getCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void fullBucketsArePruned() {
+        config.setMaxTrackedKeys(2);
+        TokenRateLimiter limiter = createLimiter();
+
+        limiter.acquireClient("a");
+        limiter.acquireClient("b");
+        clock.addAndGet(5_000L);
+        limiter.acquireClient("c");
+        assertThat(metricRegistry.getGauges().get("oauth.token.rate-limit.local-buckets")
+                .getValue()).isEqualTo(1);
+    }
+
+    private TokenRateLimiter createLimiter() {
+        return new TokenRateLimiter(config, null, metricRegistry, clock::get);
+    }
+}
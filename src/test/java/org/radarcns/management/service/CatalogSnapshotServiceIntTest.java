@@ -0,0 +1,169 @@
+package org.radarcns.management.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.SourceType;
+import org.radarcns.management.domain.enumeration.SourceTypeScope;
+import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.service.dto.SourceTypeDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the CatalogSnapshotService. Source types are created in committed transactions,
+ * since the snapshot is only built from committed data, and removed afterwards.
+ *
+ * @see CatalogSnapshotService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+public class CatalogSnapshotServiceIntTest {
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Autowired
+    private SourceTypeRepository sourceTypeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    private final List<Long> createdSourceTypes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        if (!createdSourceTypes.isEmpty()) {
+            transactionTemplate.execute(status -> {
+                createdSourceTypes.forEach(sourceTypeRepository::delete);
+                catalogSnapshotService.invalidate();
+                return null;
+            });
+        }
+    }
+
+    @Test
+    public void lookupsAreServedFromSnapshot() {
+        // build the snapshot
+        catalogSnapshotService.findSourceType(1L);
+        statistics.clear();
+
+        Optional<SourceTypeDTO> byId = catalogSnapshotService.findSourceType(1L);
+        Optional<SourceTypeDTO> byKey = catalogSnapshotService.findSourceType("Empatica", "E4",
+                "v1");
+        Optional<SourceTypeDTO> byProject = catalogSnapshotService.findProjectSourceType(1L, 2L);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(0L);
+        assertThat(byId).isPresent();
+        assertThat(byId.get().getProducer()).isEqualTo("Empatica");
+        assertThat(byId.get().getModel()).isEqualTo("E4");
+        assertThat(byKey).isPresent();
+        assertThat(byKey.get().getId()).isEqualTo(1L);
+        assertThat(byProject).isPresent();
+        assertThat(byProject.get().getId()).isEqualTo(2L);
+    }
+
+    @Test
+    public void unknownSourceTypesAreNotFound() {
+        assertThat(catalogSnapshotService.findSourceType(Long.MAX_VALUE)).isEmpty();
+        assertThat(catalogSnapshotService.findSourceType("Empatica", "E4", "no-such-version"))
+                .isEmpty();
+        // project 2 has no source types
+        assertThat(catalogSnapshotService.findProjectSourceType(2L, 1L)).isEmpty();
+    }
+
+    @Test
+    public void snapshotIsRebuiltAfterCommittedInvalidation() {
+        catalogSnapshotService.findSourceType(1L);
+        long generation = generation();
+
+        SourceType sourceType = transactionTemplate.execute(status -> {
+            SourceType saved = sourceTypeRepository.save(createSourceType("v-invalidated"));
+            catalogSnapshotService.invalidate();
+            // the snapshot is only discarded once the new source type is committed
+            assertThat(generation()).isEqualTo(generation);
+            return saved;
+        });
+        createdSourceTypes.add(sourceType.getId());
+        // the local snapshot is discarded on commit, without waiting for the topic
+        assertThat(generation()).isEqualTo(generation + 1);
+
+        // the first lookup rebuilds the snapshot, the second one uses it
+        assertThat(catalogSnapshotService.findSourceType(sourceType.getId())).isPresent();
+        statistics.clear();
+        Optional<SourceTypeDTO> byKey = catalogSnapshotService.findSourceType("snapshot-test",
+                "model", "v-invalidated");
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(0L);
+        assertThat(byKey).isPresent();
+        assertThat(byKey.get().getId()).isEqualTo(sourceType.getId());
+        assertThat(generation()).isEqualTo(generation + 1);
+    }
+
+    @Test
+    public void missFallsBackToDatabaseAndDiscardsSnapshot() {
+        catalogSnapshotService.findSourceType(1L);
+        long generation = generation();
+
+        // not announced with invalidate(), so the snapshot does not have it
+        SourceType sourceType = transactionTemplate.execute(status ->
+                sourceTypeRepository.save(createSourceType("v-not-invalidated")));
+        createdSourceTypes.add(sourceType.getId());
+
+        Optional<SourceTypeDTO> fromDatabase = catalogSnapshotService.findSourceType(
+                "snapshot-test", "model", "v-not-invalidated");
+
+        assertThat(fromDatabase).isPresent();
+        assertThat(fromDatabase.get().getId()).isEqualTo(sourceType.getId());
+        assertThat(generation()).isEqualTo(generation + 1);
+
+        // the rebuilt snapshot has the source type
+        catalogSnapshotService.findSourceType(1L);
+        statistics.clear();
+        assertThat(catalogSnapshotService.findSourceType(sourceType.getId())).isPresent();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(0L);
+    }
+
+    private static SourceType createSourceType(String version) {
+        return new SourceType()
+                .producer("snapshot-test")
+                .model("model")
+                .catalogVersion(version)
+                .sourceTypeScope(SourceTypeScope.PASSIVE);
+    }
+
+    private long generation() {
+        return ((AtomicLong) ReflectionTestUtils.getField(catalogSnapshotService, "generation"))
+                .get();
+    }
+}
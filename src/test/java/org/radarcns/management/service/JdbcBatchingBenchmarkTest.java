@@ -0,0 +1,182 @@
+package org.radarcns.management.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.Source;
+import org.radarcns.management.domain.SourceType;
+import org.radarcns.management.domain.Subject;
+import org.radarcns.management.domain.enumeration.ProjectStatus;
+import org.radarcns.management.repository.SourceTypeRepository;
+import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.SubjectDTO;
+import org.radarcns.management.service.dto.SubjectEnrollmentResultDTO;
+import org.radarcns.management.service.mapper.SubjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Counts the JDBC statements that the bulk write paths prepare. Without JDBC batching, every
+ * inserted or updated row takes its own statement and round-trip; with batching, rows of the
+ * same table are sent together, up to {@code hibernate.jdbc.batch_size} at a time.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+@Transactional
+public class JdbcBatchingBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcBatchingBenchmarkTest.class);
+
+    private static final int SUBJECT_COUNT = 60;
+
+    private static final int SOURCE_COUNT = 60;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private SourceTypeRepository sourceTypeRepository;
+
+    @Autowired
+    private SubjectMapper subjectMapper;
+
+    @Autowired
+    private EntityManager em;
+
+    private Statistics statistics;
+
+    private ProjectDTO project;
+
+    @Before
+    public void setUp() {
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        ProjectDTO projectDTO = new ProjectDTO();
+        projectDTO.setDescription("Batching benchmark project");
+        projectDTO.setLocation("London");
+        projectDTO.setProjectName("batching-benchmark");
+        projectDTO.setProjectStatus(ProjectStatus.PLANNING);
+        project = projectService.save(projectDTO);
+    }
+
+    @Test
+    public void enrollmentIsBatched() {
+        List<SubjectDTO> subjects = new ArrayList<>(SUBJECT_COUNT);
+        for (int i = 0; i < SUBJECT_COUNT; i++) {
+            SubjectDTO subject = new SubjectDTO();
+            subject.setLogin("batching-" + i);
+            subject.setExternalId("batching-" + i);
+            subject.setProject(project);
+            subjects.add(subject);
+        }
+
+        statistics.clear();
+        List<SubjectEnrollmentResultDTO> results = subjectService.createSubjects(project,
+                subjects);
+        em.flush();
+        long statements = statistics.getPrepareStatementCount();
+        log.info("Enrolling {} subjects took {} JDBC statements", SUBJECT_COUNT, statements);
+
+        assertThat(results).extracting(SubjectEnrollmentResultDTO::getStatus)
+                .containsOnly(SubjectEnrollmentResultDTO.Status.CREATED);
+        // each subject inserts a user, a subject and a user role row
+        assertThat(statements).isLessThan(SUBJECT_COUNT);
+    }
+
+    @Test
+    public void sourceUnassignmentIsBatched() {
+        SubjectDTO subjectDTO = createSubjectWithSources();
+
+        statistics.clear();
+        subjectService.discontinueSubject(subjectDTO);
+        em.flush();
+        long statements = statistics.getPrepareStatementCount();
+        log.info("Unassigning {} sources took {} JDBC statements", SOURCE_COUNT, statements);
+
+        assertThat(subjectRepository.findOne(subjectDTO.getId()).getSources()).isEmpty();
+        assertThat(statements).isLessThan(SOURCE_COUNT / 2);
+    }
+
+    @Test
+    public void sourceReassignmentIsSetBased() throws IllegalAccessException {
+        SubjectDTO subjectDTO = createSubjectWithSources();
+        List<Source> newSources = createSources("batching-new-source-", SOURCE_COUNT, false);
+        em.flush();
+
+        // keep every other current source and add all new sources
+        Set<MinimalSourceDetailsDTO> sources = new HashSet<>();
+        int i = 0;
+        for (MinimalSourceDetailsDTO source : subjectDTO.getSources()) {
+            if (i++ % 2 == 0) {
+                sources.add(source);
+            }
+        }
+        for (Source source : newSources) {
+            MinimalSourceDetailsDTO sourceDTO = new MinimalSourceDetailsDTO();
+            sourceDTO.setSourceId(source.getSourceId());
+            sources.add(sourceDTO);
+        }
+        subjectDTO.setSources(sources);
+
+        statistics.clear();
+        SubjectDTO result = subjectService.updateSubject(subjectDTO);
+        em.flush();
+        long statements = statistics.getPrepareStatementCount();
+        log.info("Reassigning {} sources took {} JDBC statements", SOURCE_COUNT * 3 / 2,
+                statements);
+
+        assertThat(result.getSources()).hasSize(SOURCE_COUNT / 2 + SOURCE_COUNT);
+        assertThat(result.getSources()).extracting(MinimalSourceDetailsDTO::isAssigned)
+                .containsOnly(true);
+        assertThat(statements).isLessThan(SOURCE_COUNT / 2);
+    }
+
+    private SubjectDTO createSubjectWithSources() {
+        SubjectDTO subjectDTO = new SubjectDTO();
+        subjectDTO.setLogin("batching-sources");
+        subjectDTO.setProject(project);
+        subjectDTO = subjectService.createSubject(subjectDTO);
+
+        Subject subject = subjectRepository.findOne(subjectDTO.getId());
+        subject.getSources().addAll(createSources("batching-source-", SOURCE_COUNT, true));
+        em.flush();
+        return subjectMapper.subjectToSubjectDTO(subject);
+    }
+
+    private List<Source> createSources(String namePrefix, int count, boolean assigned) {
+        SourceType sourceType = sourceTypeRepository.findAll().get(0);
+        List<Source> sources = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Source source = new Source()
+                    .sourceName(namePrefix + i)
+                    .assigned(assigned);
+            source.setSourceType(sourceType);
+            em.persist(source);
+            sources.add(source);
+        }
+        return sources;
+    }
+}
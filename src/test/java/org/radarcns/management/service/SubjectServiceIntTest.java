@@ -0,0 +1,86 @@
+package org.radarcns.management.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.domain.enumeration.ProjectStatus;
+import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.SubjectDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for the SubjectService.
+ *
+ * @see SubjectService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+@Transactional
+public class SubjectServiceIntTest {
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private EntityManager em;
+
+    private Statistics statistics;
+
+    private ProjectDTO project;
+
+    @Before
+    public void setUp() {
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        ProjectDTO projectDTO = new ProjectDTO();
+        projectDTO.setDescription("Subject list project");
+        projectDTO.setLocation("London");
+        projectDTO.setProjectName("subject-list");
+        projectDTO.setProjectStatus(ProjectStatus.PLANNING);
+        project = projectService.save(projectDTO);
+    }
+
+    @Test
+    public void subjectListLoadsInFixedNumberOfQueries() {
+        createSubjects("subject-list-a-", 5);
+        long fewSubjects = countFindAllStatements();
+
+        createSubjects("subject-list-b-", 20);
+        long manySubjects = countFindAllStatements();
+
+        // the number of queries does not depend on the number of subjects
+        assertThat(manySubjects).isEqualTo(fewSubjects);
+    }
+
+    private long countFindAllStatements() {
+        em.flush();
+        em.clear();
+        statistics.clear();
+        List<SubjectDTO> subjects = subjectService.findAll();
+        assertThat(subjects).isNotEmpty();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void createSubjects(String loginPrefix, int count) {
+        for (int i = 0; i < count; i++) {
+            SubjectDTO subject = new SubjectDTO();
+            subject.setLogin(loginPrefix + i);
+            subject.setProject(project);
+            subjectService.createSubject(subject);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.radarcns.management.ManagementPortalTestApp;
 import org.radarcns.management.config.Constants;
 import org.radarcns.management.domain.User;
 import org.radarcns.management.repository.UserRepository;
+import org.radarcns.management.security.DomainUserDetailsService;
 import org.radarcns.management.service.dto.UserDTO;
 import org.radarcns.management.service.mapper.UserMapper;
 import org.radarcns.management.service.util.RandomUtil;
@@ -21,6 +22,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -46,6 +48,12 @@ public class UserServiceIntTest {
     @Autowired
     private EntityManager em;
 
+    @Autowired
+    private DomainUserDetailsService userDetailsService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
     private UserDTO userDTO;
 
     @Before
@@ -107,6 +115,27 @@ public class UserServiceIntTest {
         userRepository.delete(user);
     }
 
+    @Test
+    public void assertThatNewUserHasNoPassword() {
+        User user = userService.createUser(userDTO);
+        user.setActivated(true);
+        userRepository.save(user);
+        assertThat(user.getPassword()).isEqualTo(Constants.NO_PASSWORD);
+
+        // the user can be loaded for refreshing tokens, but no password matches
+        assertThat(userDetailsService.loadUserByUsername(user.getLogin()).getPassword())
+                .isEqualTo(Constants.NO_PASSWORD);
+        assertThat(passwordEncoder.matches("johndoe2", Constants.NO_PASSWORD)).isFalse();
+
+        Optional<User> maybeUser = userService.completePasswordReset("johndoe2",
+                user.getResetKey());
+        assertThat(maybeUser.isPresent()).isTrue();
+        assertThat(passwordEncoder.matches("johndoe2", maybeUser.get().getPassword())).isTrue();
+        assertThat(userDetailsService.loadUserByUsername(user.getLogin()).getPassword())
+                .isEqualTo(maybeUser.get().getPassword());
+        userRepository.delete(user);
+    }
+
     @Test
     public void assertThatUserCanResetPassword() {
         User user = userService.createUser(userDTO);
@@ -1,6 +1,8 @@
 package org.radarcns.management.web.rest;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
@@ -9,6 +11,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import javax.persistence.EntityManager;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import org.junit.Before;
@@ -21,6 +24,7 @@ import org.radarcns.management.domain.PersistentAuditEvent;
 import org.radarcns.management.repository.PersistenceAuditEventRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
 import org.radarcns.management.service.AuditEventService;
+import org.radarcns.management.web.rest.errors.ExceptionTranslator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -46,6 +50,7 @@ public class AuditResourceIntTest {
 
     private static final String SAMPLE_PRINCIPAL = "SAMPLE_PRINCIPAL";
     private static final String SAMPLE_TYPE = "SAMPLE_TYPE";
+    private static final String LATER_TYPE = "LATER_TYPE";
     private static final LocalDateTime SAMPLE_TIMESTAMP = LocalDateTime.parse("2015-08-04T10:11:30");
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
@@ -67,6 +72,12 @@ public class AuditResourceIntTest {
     @Autowired
     private HttpServletRequest servletRequest;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
     private PersistentAuditEvent auditEvent;
 
     private MockMvc restAuditMockMvc;
@@ -75,10 +86,12 @@ public class AuditResourceIntTest {
     public void setup() throws ServletException {
         MockitoAnnotations.initMocks(this);
         AuditEventService auditEventService =
-            new AuditEventService(auditEventRepository, auditEventConverter);
+            new AuditEventService(auditEventRepository, auditEventConverter, entityManager);
         AuditResource auditResource = new AuditResource();
         ReflectionTestUtils.setField(auditResource, "auditEventService", auditEventService);
         ReflectionTestUtils.setField(auditResource, "servletRequest", servletRequest);
+        ReflectionTestUtils.setField(auditResource, "objectMapper",
+            jacksonMessageConverter.getObjectMapper());
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -87,6 +100,7 @@ public class AuditResourceIntTest {
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setConversionService(formattingConversionService)
             .setMessageConverters(jacksonMessageConverter)
+            .setControllerAdvice(exceptionTranslator)
             .addFilter(filter)
             .defaultRequest(get("/").with(OAuthHelper.bearerToken())).build();
     }
@@ -156,6 +170,55 @@ public class AuditResourceIntTest {
             .andExpect(header().string("X-Total-Count", "0"));
     }
 
+    @Test
+    public void getAuditsByCursor() throws Exception {
+        // Initialize the database with two events
+        auditEventRepository.save(auditEvent);
+        PersistentAuditEvent laterEvent = new PersistentAuditEvent();
+        laterEvent.setAuditEventType(LATER_TYPE);
+        laterEvent.setPrincipal(SAMPLE_PRINCIPAL);
+        laterEvent.setAuditEventDate(SAMPLE_TIMESTAMP.plusHours(1));
+        laterEvent.getData().put("message", "later");
+        auditEventRepository.save(laterEvent);
+
+        // First page contains the earliest event and a cursor to the next page
+        String nextCursor = restAuditMockMvc.perform(get("/management/audits?cursor=&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].type").value(SAMPLE_TYPE))
+            .andExpect(header().string("Link", containsString("rel=\"next\"")))
+            .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        // Second page contains only the later event, with its data
+        restAuditMockMvc.perform(get("/management/audits?size=1&cursor=" + nextCursor))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].type").value(LATER_TYPE))
+            .andExpect(jsonPath("$.[0].data.message").value("later"));
+    }
+
+    @Test
+    public void getAuditsByInvalidCursor() throws Exception {
+        restAuditMockMvc.perform(get("/management/audits?cursor=invalid"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void exportAuditsByDate() throws Exception {
+        // Initialize the database
+        auditEventRepository.save(auditEvent);
+
+        String fromDate  = SAMPLE_TIMESTAMP.minusDays(1).format(FORMATTER);
+        String toDate = SAMPLE_TIMESTAMP.plusDays(1).format(FORMATTER);
+
+        // Export the audits as newline delimited JSON
+        restAuditMockMvc.perform(get("/management/audits/export?fromDate=" + fromDate
+                + "&toDate=" + toDate))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(AuditResource.APPLICATION_NDJSON_VALUE))
+            .andExpect(content().string(containsString(SAMPLE_PRINCIPAL)));
+    }
+
     @Test
     public void getNonExistingAudit() throws Exception {
         // Get the audit
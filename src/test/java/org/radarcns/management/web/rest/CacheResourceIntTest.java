@@ -0,0 +1,71 @@
+package org.radarcns.management.web.rest;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.config.CacheEvictionCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Test class for the CacheResource REST controller.
+ *
+ * @see CacheResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ManagementPortalTestApp.class)
+public class CacheResourceIntTest {
+
+    private static final String TEST_MAP = "cacheResourceTest";
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private CacheEvictionCounter cacheEvictionCounter;
+
+    private MockMvc restCacheMockMvc;
+
+    @Before
+    public void setup() {
+        CacheResource cacheResource = new CacheResource(hazelcastInstance, cacheEvictionCounter);
+        this.restCacheMockMvc = MockMvcBuilders
+            .standaloneSetup(cacheResource)
+            .build();
+    }
+
+    @After
+    public void tearDown() {
+        hazelcastInstance.getMap(TEST_MAP).destroy();
+    }
+
+    @Test
+    public void getCacheStatistics() throws Exception {
+        IMap<String, String> map = hazelcastInstance.getMap(TEST_MAP);
+        map.put("key", "value");
+        map.get("key");
+
+        restCacheMockMvc.perform(get("/management/caches"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[*].name").value(hasItem(TEST_MAP)))
+            .andExpect(jsonPath("$.[?(@.name == '" + TEST_MAP + "')].entries")
+                .value(hasItem(1)))
+            .andExpect(jsonPath("$.[?(@.name == '" + TEST_MAP + "')].evictions")
+                .value(hasItem(0)));
+    }
+}
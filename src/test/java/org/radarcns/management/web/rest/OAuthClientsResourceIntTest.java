@@ -1,26 +1,36 @@
 package org.radarcns.management.web.rest;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.radarcns.management.ManagementPortalApp;
 import org.radarcns.management.repository.SubjectRepository;
+import org.radarcns.management.security.CachingClientDetailsService;
 import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.radarcns.management.service.SubjectService;
 import org.radarcns.management.service.UserService;
 import org.radarcns.management.service.dto.ClientDetailsDTO;
+import org.radarcns.management.service.dto.SubjectDTO;
 import org.radarcns.management.service.mapper.ClientDetailsMapper;
 import org.radarcns.management.service.mapper.SubjectMapper;
 import org.radarcns.management.web.rest.errors.ExceptionTranslator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.audit.AuditEventRepository;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerEndpointsConfiguration;
 import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.TokenRequest;
 import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -31,6 +41,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import javax.servlet.http.HttpServletRequest;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -61,6 +72,9 @@ public class OAuthClientsResourceIntTest {
     @Autowired
     private JdbcClientDetailsService clientDetailsService;
 
+    @Autowired
+    private CachingClientDetailsService cachingClientDetailsService;
+
     @Autowired
     private ClientDetailsMapper clientDetailsMapper;
 
@@ -88,6 +102,12 @@ public class OAuthClientsResourceIntTest {
     @Autowired
     private HttpServletRequest servletRequest;
 
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private AuditEventRepository eventRepository;
+
     private MockMvc restProjectMockMvc;
 
     private ClientDetailsDTO details;
@@ -113,6 +133,9 @@ public class OAuthClientsResourceIntTest {
                 servletRequest);
         ReflectionTestUtils.setField(oauthClientsResource, "clientDetailsService",
                 clientDetailsService);
+        ReflectionTestUtils.setField(oauthClientsResource, "cachingClientDetailsService",
+                cachingClientDetailsService);
+        ReflectionTestUtils.setField(oauthClientsResource, "eventRepository", eventRepository);
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -241,6 +264,40 @@ public class OAuthClientsResourceIntTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @Transactional
+    public void refreshTokenOfPairedSubject() throws Exception {
+        // a new subject has no password, but must be able to refresh its paired token
+        SubjectDTO subjectDTO = subjectService.createSubject(
+                SubjectResourceIntTest.createEntityDTO(em));
+
+        SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(new UsernamePasswordAuthenticationToken(
+                OAuthHelper.USER, null));
+        SecurityContextHolder.setContext(securityContext);
+        String content;
+        try {
+            content = restProjectMockMvc.perform(get("/api/oauth-clients/pair")
+                    .param("login", subjectDTO.getLogin())
+                    .param("clientId", details.getClientId()))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        String refreshToken = JsonPath.read(content, "$.refreshToken");
+
+        OAuth2AccessToken token = authorizationServerEndpointsConfiguration
+                .getEndpointsConfigurer().getTokenServices().refreshAccessToken(refreshToken,
+                        new TokenRequest(new HashMap<>(), details.getClientId(),
+                                Collections.emptySet(), "refresh_token"));
+
+        assertThat(token.getValue()).isNotEmpty();
+        assertThat(token.getRefreshToken().getValue()).isNotEqualTo(refreshToken);
+        assertThat(token.getAdditionalInformation().get("sub"))
+                .isEqualTo(subjectDTO.getLogin());
+    }
+
     public static ClientDetailsDTO createClient() {
         ClientDetailsDTO result = new ClientDetailsDTO();
         result.setClientId("TEST_CLIENT");
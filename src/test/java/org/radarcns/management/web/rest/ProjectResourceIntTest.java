@@ -1,16 +1,20 @@
 package org.radarcns.management.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.radarcns.management.web.rest.TestUtil.sameInstant;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.jayway.jsonpath.JsonPath;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
@@ -24,14 +28,18 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.service.CatalogVersionService;
 import org.radarcns.management.domain.Project;
 import org.radarcns.management.domain.enumeration.ProjectStatus;
 import org.radarcns.management.repository.ProjectRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
 import org.radarcns.management.service.ProjectService;
+import org.radarcns.management.service.SubjectService;
 import org.radarcns.management.service.dto.ProjectDTO;
+import org.radarcns.management.service.dto.SubjectDTO;
 import org.radarcns.management.service.mapper.ProjectMapper;
 import org.radarcns.management.web.rest.errors.ExceptionTranslator;
+import org.radarcns.management.web.rest.util.NdjsonUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -87,6 +95,12 @@ public class ProjectResourceIntTest {
     @Autowired
     private ProjectService projectService;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private SubjectService subjectService;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -112,6 +126,11 @@ public class ProjectResourceIntTest {
         ProjectResource projectResource = new ProjectResource();
         ReflectionTestUtils.setField(projectResource, "projectService", projectService);
         ReflectionTestUtils.setField(projectResource, "servletRequest", servletRequest);
+        ReflectionTestUtils.setField(projectResource, "catalogVersionService",
+            catalogVersionService);
+        ReflectionTestUtils.setField(projectResource, "subjectService", subjectService);
+        ReflectionTestUtils.setField(projectResource, "objectMapper",
+            jacksonMessageConverter.getObjectMapper());
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -272,6 +291,51 @@ public class ProjectResourceIntTest {
             .andExpect(jsonPath("$.[*].projectAdmin").value(hasItem(DEFAULT_PROJECT_ADMIN.intValue())));
     }
 
+    @Test
+    @Transactional
+    public void getMinimalSubjectsOfProject() throws Exception {
+        // Initialize the database
+        for (int i = 0; i < 3; i++) {
+            SubjectDTO subjectDTO = SubjectResourceIntTest.createEntityDTO(em);
+            subjectDTO.setExternalId("minimal-subject-" + i);
+            subjectService.createSubject(subjectDTO);
+        }
+
+        // Get a page of minimal subjects of the project, without a sort order
+        String content = restProjectMockMvc.perform(
+                get("/api/projects/{projectName}/subjects?minimized=true&page=0&size=1000",
+                    "radar"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("X-Total-Count"))
+            .andExpect(header().exists("Link"))
+            .andExpect(jsonPath("$.[*].externalId").value(hasItem("minimal-subject-2")))
+            .andExpect(jsonPath("$.[*].project.projectName").value(hasItem("radar")))
+            .andReturn().getResponse().getContentAsString();
+
+        // pages are ordered by id by default, so that paging through them is stable
+        List<Integer> ids = JsonPath.read(content, "$.[*].id");
+        assertThat(ids.size()).isGreaterThanOrEqualTo(3);
+        assertThat(ids).isSorted();
+    }
+
+    @Test
+    @Transactional
+    public void streamSubjectsOfProject() throws Exception {
+        // Initialize the database
+        SubjectDTO subjectDTO = subjectService.createSubject(
+            SubjectResourceIntTest.createEntityDTO(em));
+
+        // Stream the subjects of the project; sub-4 is in another project
+        restProjectMockMvc.perform(get("/api/projects/{projectName}/subjects?stream=true",
+                "radar"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(NdjsonUtil.APPLICATION_NDJSON_VALUE))
+            .andExpect(content().string(containsString(
+                "\"login\":\"" + subjectDTO.getLogin() + "\"")))
+            .andExpect(content().string(containsString("\"login\":\"sub-1\"")))
+            .andExpect(content().string(not(containsString("\"login\":\"sub-4\""))));
+    }
+
     @Test
     @Transactional
     public void getProject() throws Exception {
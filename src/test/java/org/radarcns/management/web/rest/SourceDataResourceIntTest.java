@@ -7,6 +7,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -23,6 +24,8 @@ import org.radarcns.management.domain.SourceData;
 import org.radarcns.management.domain.enumeration.ProcessingState;
 import org.radarcns.management.repository.SourceDataRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.radarcns.management.service.CatalogVersionService;
+import org.radarcns.management.service.CatalogVersionService.Catalog;
 import org.radarcns.management.service.SourceDataService;
 import org.radarcns.management.service.dto.SourceDataDTO;
 import org.radarcns.management.service.mapper.SourceDataMapper;
@@ -74,6 +77,9 @@ public class SourceDataResourceIntTest {
     @Autowired
     private SourceDataService sourceDataService;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -99,6 +105,8 @@ public class SourceDataResourceIntTest {
         SourceDataResource sourceDataResource = new SourceDataResource();
         ReflectionTestUtils.setField(sourceDataResource, "sourceDataService", sourceDataService);
         ReflectionTestUtils.setField(sourceDataResource, "servletRequest", servletRequest);
+        ReflectionTestUtils.setField(sourceDataResource, "catalogVersionService",
+            catalogVersionService);
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -212,6 +220,28 @@ public class SourceDataResourceIntTest {
             .andExpect(jsonPath("$.[*].frequency").value(hasItem(DEFAULT_FREQUENCY.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllSourceDataNotModified() throws Exception {
+        // Initialize the database
+        sourceDataRepository.saveAndFlush(sourceData);
+
+        String etag = catalogVersionService.getETag(Catalog.SOURCE_DATA);
+
+        // Get all the sourceDataList with its current ETag
+        restSourceDataMockMvc.perform(get("/api/source-data"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", etag));
+
+        restSourceDataMockMvc.perform(get("/api/source-data").header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+
+        // An outdated ETag gets the full list
+        restSourceDataMockMvc.perform(get("/api/source-data").header("If-None-Match", "\"0\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", etag));
+    }
+
     @Test
     @Transactional
     public void getSourceData() throws Exception {
@@ -1,6 +1,7 @@
 package org.radarcns.management.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.notNullValue;
@@ -33,6 +34,7 @@ import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.mapper.SourceMapper;
 import org.radarcns.management.service.mapper.SourceTypeMapper;
 import org.radarcns.management.web.rest.errors.ExceptionTranslator;
+import org.radarcns.management.web.rest.util.NdjsonUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -112,6 +114,8 @@ public class SourceResourceIntTest {
         ReflectionTestUtils.setField(sourceResource, "sourceService", sourceService);
         ReflectionTestUtils.setField(sourceResource, "sourceRepository", sourceRepository);
         ReflectionTestUtils.setField(sourceResource, "projectService", projectService);
+        ReflectionTestUtils.setField(sourceResource, "objectMapper",
+            jacksonMessageConverter.getObjectMapper());
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -248,6 +252,20 @@ public class SourceResourceIntTest {
             .andExpect(jsonPath("$.[*].assigned").value(hasItem(DEFAULT_ASSIGNED.booleanValue())));
     }
 
+    @Test
+    @Transactional
+    public void streamAllSources() throws Exception {
+        // Initialize the database
+        sourceRepository.saveAndFlush(source);
+
+        // Stream all the sources as newline delimited JSON
+        restDeviceMockMvc.perform(get("/api/sources?stream=true"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(NdjsonUtil.APPLICATION_NDJSON_VALUE))
+            .andExpect(content().string(containsString(
+                "\"sourceName\":\"" + DEFAULT_SOURCE_NAME + "\"")));
+    }
+
     @Test
     @Transactional
     public void getSource() throws Exception {
@@ -1,6 +1,7 @@
 package org.radarcns.management.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -20,6 +21,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.radarcns.management.ManagementPortalTestApp;
+import org.radarcns.management.service.CatalogVersionService;
+import org.radarcns.management.web.rest.util.NdjsonUtil;
 import org.radarcns.management.domain.SourceData;
 import org.radarcns.management.domain.SourceType;
 import org.radarcns.management.domain.enumeration.SourceTypeScope;
@@ -82,6 +85,9 @@ public class SourceTypeResourceIntTest {
     @Autowired
     private SourceDataRepository sourceDataRepository;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -108,6 +114,10 @@ public class SourceTypeResourceIntTest {
         ReflectionTestUtils.setField(sourceTypeResource, "sourceTypeService" , sourceTypeService);
         ReflectionTestUtils.setField(sourceTypeResource, "sourceTypeRepository" , sourceTypeRepository);
         ReflectionTestUtils.setField(sourceTypeResource, "servletRequest", servletRequest);
+        ReflectionTestUtils.setField(sourceTypeResource, "catalogVersionService",
+            catalogVersionService);
+        ReflectionTestUtils.setField(sourceTypeResource, "objectMapper",
+            jacksonMessageConverter.getObjectMapper());
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -265,6 +275,21 @@ public class SourceTypeResourceIntTest {
             .andExpect(jsonPath("$.[*].sourceTypeScope").value(hasItem(DEFAULT_SOURCE_TYPE_SCOPE.toString())));
     }
 
+    @Test
+    @Transactional
+    public void streamAllSourceTypes() throws Exception {
+        // Initialize the database
+        sourceTypeRepository.saveAndFlush(sourceType);
+
+        // Stream all the sourceTypes by accepting newline delimited JSON
+        restSourceTypeMockMvc.perform(get("/api/source-types")
+                .accept(NdjsonUtil.APPLICATION_NDJSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(NdjsonUtil.APPLICATION_NDJSON_VALUE))
+            .andExpect(content().string(containsString(
+                "\"producer\":\"" + DEFAULT_PRODUCER + "\"")));
+    }
+
     @Test
     @Transactional
     public void getSourceType() throws Exception {
@@ -1,7 +1,9 @@
 package org.radarcns.management.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -9,9 +11,13 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.jayway.jsonpath.JsonPath;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
@@ -23,17 +29,20 @@ import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.radarcns.management.ManagementPortalTestApp;
 import org.radarcns.management.domain.Subject;
-import org.radarcns.management.repository.ProjectRepository;
 import org.radarcns.management.repository.SubjectRepository;
 import org.radarcns.management.security.JwtAuthenticationFilter;
+import org.radarcns.management.service.CatalogSnapshotService;
+import org.radarcns.management.service.ProjectService;
 import org.radarcns.management.service.SourceTypeService;
 import org.radarcns.management.service.SubjectService;
 import org.radarcns.management.service.dto.MinimalSourceDetailsDTO;
 import org.radarcns.management.service.dto.ProjectDTO;
 import org.radarcns.management.service.dto.SourceTypeDTO;
 import org.radarcns.management.service.dto.SubjectDTO;
+import org.radarcns.management.service.dto.SubjectEnrollmentResultDTO;
 import org.radarcns.management.service.mapper.SubjectMapper;
 import org.radarcns.management.web.rest.errors.ExceptionTranslator;
+import org.radarcns.management.web.rest.util.NdjsonUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -97,11 +106,14 @@ public class SubjectResourceIntTest {
     private EntityManager em;
 
     @Autowired
-    private ProjectRepository projectRepository;
+    private CatalogSnapshotService catalogSnapshotService;
 
     @Autowired
     private HttpServletRequest servletRequest;
 
+    @Autowired
+    private ProjectService projectService;
+
     private MockMvc restSubjectMockMvc;
 
     @Before
@@ -111,9 +123,12 @@ public class SubjectResourceIntTest {
         ReflectionTestUtils.setField(subjectResource, "subjectService" , subjectService);
         ReflectionTestUtils.setField(subjectResource, "subjectRepository" , subjectRepository);
         ReflectionTestUtils.setField(subjectResource, "subjectMapper" , subjectMapper);
-        ReflectionTestUtils.setField(subjectResource, "projectRepository" , projectRepository);
-        ReflectionTestUtils.setField(subjectResource, "sourceTypeService", sourceTypeService);
+        ReflectionTestUtils.setField(subjectResource, "catalogSnapshotService",
+            catalogSnapshotService);
         ReflectionTestUtils.setField(subjectResource, "servletRequest", servletRequest);
+        ReflectionTestUtils.setField(subjectResource, "objectMapper",
+            jacksonMessageConverter.getObjectMapper());
+        ReflectionTestUtils.setField(subjectResource, "projectService", projectService);
 
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
         filter.init(new MockFilterConfig());
@@ -169,6 +184,73 @@ public class SubjectResourceIntTest {
         assertEquals(testSubject.getUser().getRoles().size(),1);
     }
 
+    @Test
+    @Transactional
+    public void createSubjectsInBulk() throws Exception {
+        int databaseSizeBeforeCreate = subjectRepository.findAll().size();
+
+        // the second subject reuses the external ID of the first, so it must be rejected
+        SubjectDTO first = createEntityDTO(em);
+        SubjectDTO second = createEntityDTO(em);
+
+        restSubjectMockMvc.perform(post("/api/projects/{projectName}/subjects/bulk", "radar")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(first, second))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].status").value(
+                SubjectEnrollmentResultDTO.Status.CREATED.toString()))
+            .andExpect(jsonPath("$.[0].login").value(first.getLogin()))
+            .andExpect(jsonPath("$.[1].status").value(
+                SubjectEnrollmentResultDTO.Status.FAILED.toString()));
+
+        List<Subject> subjectList = subjectRepository.findAll();
+        assertThat(subjectList).hasSize(databaseSizeBeforeCreate + 1);
+        Subject testSubject = subjectRepository.findOneWithEagerBySubjectLogin(first.getLogin())
+            .get();
+        assertThat(testSubject.getExternalId()).isEqualTo(DEFAULT_ENTERNAL_ID);
+        assertEquals(1, testSubject.getUser().getRoles().size());
+    }
+
+    @Test
+    @Transactional
+    public void createSubjectsInBulkOverLimit() throws Exception {
+        int databaseSizeBeforeCreate = subjectRepository.findAll().size();
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i <= SubjectResource.MAX_BULK_ENROLLMENT_SIZE; i++) {
+            json.append(i == 0 ? "{}" : ",{}");
+        }
+        json.append(']');
+
+        restSubjectMockMvc.perform(post("/api/projects/{projectName}/subjects/bulk", "radar")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(json.toString()))
+            .andExpect(status().isBadRequest());
+
+        assertThat(subjectRepository.findAll()).hasSize(databaseSizeBeforeCreate);
+    }
+
+    @Test
+    @Transactional
+    public void createSubjectsInBulkFromCsv() throws Exception {
+        String csv = "login,externalId,site\n"
+            + "bulk-subject-1,bulk-1,London\n"
+            + "bulk-subject-2,bulk-2,\n";
+
+        restSubjectMockMvc.perform(post("/api/projects/{projectName}/subjects/bulk", "radar")
+            .contentType(SubjectResource.TEXT_CSV_VALUE)
+            .content(csv))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].status").value(hasItem(
+                SubjectEnrollmentResultDTO.Status.CREATED.toString())))
+            .andExpect(jsonPath("$.[1].login").value("bulk-subject-2"));
+
+        Subject testSubject = subjectRepository.findOneWithEagerBySubjectLogin("bulk-subject-1")
+            .get();
+        assertThat(testSubject.getExternalId()).isEqualTo("bulk-1");
+        assertThat(testSubject.getAttributes()).containsEntry("site", "London");
+    }
+
     @Test
     @Transactional
     public void createSubjectWithExistingId() throws Exception {
@@ -203,6 +285,82 @@ public class SubjectResourceIntTest {
             .andExpect(jsonPath("$.[*].status").value(hasItem(DEFAULT_STATUS.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllSubjectsMinimized() throws Exception {
+        // Initialize the database
+        SubjectDTO subjectDTO = subjectService.createSubject(createEntityDTO(em));
+
+        // Get a page of minimal subjects of the project
+        restSubjectMockMvc.perform(get("/api/subjects?minimized=true&projectName=radar&page=0"
+                + "&size=1000&sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("X-Total-Count"))
+            .andExpect(header().exists("Link"))
+            .andExpect(jsonPath("$.[*].login").value(hasItem(subjectDTO.getLogin())))
+            .andExpect(jsonPath("$.[*].project.projectName").value(hasItem("radar")))
+            .andExpect(jsonPath("$.[*].status").value(hasItem(DEFAULT_STATUS.toString())));
+    }
+
+    @Test
+    @Transactional
+    public void getMinimalSubjectsSortedByLogin() throws Exception {
+        // login is a property of the user, not of the subject
+        String content = restSubjectMockMvc.perform(get("/api/subjects?minimized=true"
+                + "&projectName=radar&page=0&size=1000&sort=login,desc"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        List<String> logins = JsonPath.read(content, "$.[*].login");
+        assertThat(logins).contains("sub-1", "sub-2", "sub-3")
+            .isSortedAccordingTo(Comparator.reverseOrder());
+
+        restSubjectMockMvc.perform(get("/api/subjects?minimized=true&sort=attributes"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getMinimalSubjectsLinksEncodeProjectName() throws Exception {
+        restSubjectMockMvc.perform(get("/api/subjects").param("minimized", "true")
+                .param("projectName", "no such&project"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Link",
+                containsString("projectName=no%20such%26project&page=0")));
+    }
+
+    @Test
+    @Transactional
+    public void streamAllSubjects() throws Exception {
+        // Initialize the database
+        SubjectDTO subjectDTO = createEntityDTO(em);
+        subjectDTO.getAttributes().put("site", "stream-site");
+        subjectDTO = subjectService.createSubject(subjectDTO);
+
+        // Stream all the subjects as newline delimited JSON
+        restSubjectMockMvc.perform(get("/api/subjects?stream=true"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(NdjsonUtil.APPLICATION_NDJSON_VALUE))
+            .andExpect(content().string(containsString(
+                "\"login\":\"" + subjectDTO.getLogin() + "\"")))
+            .andExpect(content().string(containsString("\"site\":\"stream-site\"")))
+            .andExpect(content().string(containsString("\"login\":\"sub-4\"")));
+    }
+
+    @Test
+    @Transactional
+    public void streamSubjectsOfProject() throws Exception {
+        // Initialize the database
+        SubjectDTO subjectDTO = subjectService.createSubject(createEntityDTO(em));
+
+        // Stream the subjects of the project; sub-4 is in another project
+        restSubjectMockMvc.perform(get("/api/subjects?stream=true&projectName=radar"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(NdjsonUtil.APPLICATION_NDJSON_VALUE))
+            .andExpect(content().string(containsString(
+                "\"login\":\"" + subjectDTO.getLogin() + "\"")))
+            .andExpect(content().string(not(containsString("\"login\":\"sub-4\""))));
+    }
+
     @Test
     @Transactional
     public void getSubject() throws Exception {